@@ -0,0 +1,123 @@
+""" Throughput benchmark: plays N games concurrently against a server with a simple bot and reports
+the games, requests and moves per second. The bot sends the moves it deduces (red flags and chords)
+in batches and uncovers a random cell when it can not deduce any
+
+    $ python3 benchmark.py --url http://localhost:8080 --games 200 --concurrency 50
+"""
+import argparse
+import asyncio
+import random
+import time
+import uuid
+
+from minesweeper_async_client import AsyncMinesweeperClient
+from minesweeper_client import get_cells
+
+MAX_MOVES = 256
+
+
+class Stats:
+
+    def __init__(self):
+        self.games = 0
+        self.won = 0
+        self.requests = 0
+        self.moves = 0
+
+
+def next_moves(game, rng):
+    """ returns the moves deduced from the uncovered numbers: red flags on the covered adjacent cells
+    when they are as many as the missing flags, chords when the flags are complete. If there are none,
+    a random covered cell is uncovered """
+    cells = get_cells(game.data['board'])
+    rows = len(cells)
+    columns = len(cells[0])
+    moves = []
+    flagged = set()
+    for row in range(rows):
+        for column in range(columns):
+            code = cells[row][column]
+            if not code.isdigit() or code == '0':
+                continue
+            covered = []
+            flags = 0
+            for adjacent_row in range(max(row - 1, 0), min(row + 2, rows)):
+                for adjacent_column in range(max(column - 1, 0), min(column + 2, columns)):
+                    adjacent = cells[adjacent_row][adjacent_column]
+                    if adjacent == 'F' or (adjacent_row, adjacent_column) in flagged:
+                        flags += 1
+                    elif adjacent in ('C', 'Q'):
+                        covered.append((adjacent_row, adjacent_column))
+            if not covered:
+                continue
+            if flags == int(code):
+                moves.append(('chord', row, column))
+            elif flags + len(covered) == int(code):
+                for position in covered:
+                    flagged.add(position)
+                    moves.append(('flag',) + position)
+            if len(moves) >= MAX_MOVES - 8:
+                return moves
+    if not moves:
+        covered = [(row, column) for row in range(rows) for column in range(columns) if cells[row][column] in ('C', 'Q')]
+        if covered:
+            moves.append(('uncover',) + rng.choice(covered))
+        else:
+            # only misplaced flags are left
+            flags = [(row, column) for row in range(rows) for column in range(columns) if cells[row][column] == 'F']
+            moves.append(('unflag',) + rng.choice(flags))
+    return moves
+
+
+async def play(client, args, stats, rng):
+    game = await client.new_game(args.rows, args.columns, args.mines)
+    stats.requests += 1
+    moves = [('uncover', args.rows // 2, args.columns // 2)]
+    while game.status == 'Started':
+        _, game = await client.apply_moves(game, moves)
+        stats.requests += 1
+        stats.moves += len(moves)
+        if game.status == 'Started':
+            moves = next_moves(game, rng)
+    stats.games += 1
+    stats.won += (game.status == 'Won')
+
+
+async def run(args):
+    stats = Stats()
+    rng = random.Random(args.seed)
+    semaphore = asyncio.Semaphore(args.concurrency)
+    async with AsyncMinesweeperClient(args.url, packed=args.packed, deltas=not args.no_deltas,
+                                      limit=args.concurrency) as client:
+        username = 'benchmark-' + uuid.uuid4().hex[:12]
+        await client.register(username, 'benchmark')
+        await client.login(username, 'benchmark')
+
+        async def play_one():
+            async with semaphore:
+                await play(client, args, stats, rng)
+
+        start = time.perf_counter()
+        await asyncio.gather(*(play_one() for _ in range(args.games)))
+        elapsed = time.perf_counter() - start
+    print('{} games ({} won) in {:.2f} secs'.format(stats.games, stats.won, elapsed))
+    print('{:.1f} games/s, {:.1f} requests/s, {:.1f} moves/s'.format(stats.games / elapsed, stats.requests / elapsed,
+                                                                    stats.moves / elapsed))
+
+
+def main():
+    parser = argparse.ArgumentParser(description='Plays games concurrently against a Minesweeper server')
+    parser.add_argument('--url', default='http://localhost:8080', help='server url')
+    parser.add_argument('--games', type=int, default=100, help='number of games to play')
+    parser.add_argument('--concurrency', type=int, default=20, help='games played at once')
+    parser.add_argument('--rows', type=int, default=16)
+    parser.add_argument('--columns', type=int, default=16)
+    parser.add_argument('--mines', type=int, default=40)
+    parser.add_argument('--packed', action='store_true', help='asks for the boards packed on 4-bit codes')
+    parser.add_argument('--no-deltas', action='store_true', help='asks for the whole board on every request')
+    parser.add_argument('--seed', type=int, default=None, help='seed of the random uncovers')
+    asyncio.run(run(parser.parse_args()))
+
+
+if __name__ == '__main__':
+    main()
@@ -0,0 +1,138 @@
+import json
+
+import aiohttp
+
+try:
+    from .minesweeper_client import Game, MinesweeperClientException, PACKED_JSON, get_moves
+except ImportError:
+    # used as a module of its own folder (e.g. by benchmark.py)
+    from minesweeper_client import Game, MinesweeperClientException, PACKED_JSON, get_moves
+
+
+class AsyncMinesweeperClient:
+    """ Minesweeper client for asyncio, to play many games at once from a single thread. Its requests
+    share a session whose connections to the server are kept alive (up to limit of them at once). The
+    games are updated with only the cells changed by each action unless deltas is False """
+
+    def __init__(self, server_url, packed=False, deltas=True, limit=100):
+        self._server_url = server_url
+        self._token = None
+        self._packed = packed
+        self._deltas = deltas
+        self._limit = limit
+        self._session = None
+
+    async def __aenter__(self):
+        return self
+
+    async def __aexit__(self, *args):
+        await self.close()
+
+    async def close(self):
+        """ closes the connections kept alive """
+        if self._session is not None:
+            await self._session.close()
+            self._session = None
+
+    async def register(self, username, password):
+        """ registers a new user """
+        await self._request('POST', self._api_url() + "/register", headers={},
+                            data={'username': username, 'password': password})
+
+    async def login(self, username, password):
+        """ performs user login and receives a token if successful """
+        data = await self._request('POST', self._api_url() + "/login", headers={},
+                                   data={'username': username, 'password': password})
+        self._token = data['token']
+
+    async def new_game(self, rows=10, columns=10, mines=10):
+        """ creates a new board with the given dimensions and number of mines """
+        data = await self._request('POST', self._api_url(), data={'rows': rows, 'columns': columns, 'mines': mines})
+        return Game(data)
+
+    async def get_game(self, id):
+        """ gets an existing game """
+        return Game(await self._request('GET', self._api_url() + "/" + id))
+
+    async def refresh(self, game):
+        """ updates a game with the changes made since its version """
+        data = await self._request('GET', self._api_url() + "/" + game.id, params=self._get_params(game))
+        return self._update(game, data)
+
+    async def uncover(self, game, row, column):
+        """ uncovers/reveals the cell of the game on the indicated position """
+        return await self._cell_request('PUT', "uncover", game, row, column)
+
+    async def chord(self, game, row, column):
+        """ uncovers the adjacent cells without red flag of an uncovered cell whose red flags match
+        its adjacent mines """
+        return await self._cell_request('PUT', "chord", game, row, column)
+
+    async def set_red_flag(self, game, row, column):
+        """ sets a red flag on the cell of the game on the indicated position """
+        return await self._cell_request('PUT', "red_flag", game, row, column)
+
+    async def remove_red_flag(self, game, row, column):
+        """ removes a red flag on the cell of the game on the indicated position """
+        return await self._cell_request('DELETE', "red_flag", game, row, column)
+
+    async def set_question_mark(self, game, row, column):
+        """ sets a question mark on the cell of the game on the indicated position """
+        return await self._cell_request('PUT', "question_mark", game, row, column)
+
+    async def remove_question_mark(self, game, row, column):
+        """ removes a question mark on the cell of the game on the indicated position """
+        return await self._cell_request('DELETE', "question_mark", game, row, column)
+
+    async def apply_moves(self, game, moves):
+        """ applies several (action, row, column) moves on the game in one request (see
+        MinesweeperClient.apply_moves). Returns the result of each move and the game """
+        data = await self._request('POST', '{}/{}/moves'.format(self._api_url(), game.id),
+                                   params=self._get_params(game), json=get_moves(moves))
+        return data['moves'], self._update(game, data['game'])
+
+    async def _cell_request(self, method, action, game, row, column):
+        data = await self._request(method, '{}/{}/{}'.format(self._api_url(), game.id, action),
+                                   params=self._get_params(game), data={'row': row, 'column': column})
+        return self._update(game, data)
+
+    async def _request(self, method, url, headers=None, **kwargs):
+        """ sends a request and returns its json body, raising the server's error if it fails """
+        session = self._get_session()
+        async with session.request(method, url, headers=(self._get_headers() if headers is None else headers),
+                                   **kwargs) as response:
+            if response.status != 200:
+                try:
+                    error_msg = (await response.json())['error']
+                except Exception:
+                    error_msg = await response.read()
+                raise MinesweeperClientException(error_msg)
+            body = await response.read()
+            return (json.loads(body) if body else None)
+
+    def _get_session(self):
+        # the session is bound to the running loop, so it is created on the first request
+        if self._session is None:
+            self._session = aiohttp.ClientSession(connector=aiohttp.TCPConnector(limit=self._limit))
+        return self._session
+
+    def _update(self, game, data):
+        if self._deltas:
+            return game.update(data)
+        return Game(data)
+
+    def _api_url(self):
+        return self._server_url + "/minesweeper"
+
+    def _get_params(self, game):
+        if self._deltas and game.version is not None:
+            return {'since': game.version}
+        return None
+
+    def _get_headers(self):
+        headers = {}
+        if self._token is not None:
+            headers['Authorization'] = self._token
+        if self._packed:
+            headers['Accept'] = PACKED_JSON
+        return headers
@@ -1,4 +1,8 @@
+import base64
+import json
+
 import requests
+from requests.adapters import HTTPAdapter
 from beautifultable import BeautifulTable
 from termcolor import colored
 
@@ -15,6 +19,36 @@ class Game:
     def id(self):
         return self.data['id']
 
+    @property
+    def version(self):
+        return self.data.get('version')
+
+    @property
+    def status(self):
+        return self.data['status']
+
+    def update(self, data):
+        """ updates the game with the response to a request sent with since=version: the board only
+        has the cells changed since then when the server still knows them, or else it is the whole board """
+        board = data.get('board')
+        if board is not None and 'changes' in board:
+            current = self.data['board']
+            cells = get_cells(current)
+            first_row = current.get('row', 0)
+            first_column = current.get('column', 0)
+            # each change is a [row, column, code] triple
+            for change_row, change_column, code in board['changes']:
+                row = change_row - first_row
+                column = change_column - first_column
+                # large boards only keep a window of cells
+                if 0 <= row < len(cells) and 0 <= column < len(cells[row]):
+                    cells[row][column] = code
+            board = {key: value for key, value in current.items() if key != 'packed'}
+            board['cells'] = cells
+            data = dict(data, board=board)
+        self.data = data
+        return self
+
     def print(self):
         print('Id: {}'.format(self.id))
         print('Game: {}'.format(self.data['status']))
@@ -24,12 +58,14 @@ class Game:
 
     def get_printable_board(self):
         table = BeautifulTable()
-        board = self.data['board']['cells']
+        board = get_cells(self.data['board'])
+        # large boards only return a window of cells starting at (row, column)
+        first_column = self.data['board'].get('column', 0)
         first_row = ["-"]
         row_size = len(board[0])
-        first_row.extend(list(map(lambda x: colored(x, "blue"), range(row_size))))
+        first_row.extend(list(map(lambda x: colored(x, "blue"), range(first_column, first_column + row_size))))
         table.rows.append(first_row)
-        row_num = 0
+        row_num = self.data['board'].get('row', 0)
         for row in board:
             board_row = [colored(row_num, "blue")]
             for cell in row:
@@ -43,67 +79,182 @@ class Game:
         return table
 
 
+PACKED_JSON = 'application/vnd.minesweeper.packed+json'
+PACKED_CODES = ['0', '1', '2', '3', '4', '5', '6', '7', '8', 'C', 'F', 'Q', 'M']
+PACKED_RUN = 15
+
+
+def get_cells(board):
+    """ returns the rows of cells of a board, decoding them if they are packed """
+    if 'packed' not in board:
+        return board['cells']
+    rows = board['rows']
+    columns = board['columns']
+    if 'row' in board:
+        # large boards and regions only return a window of cells
+        rows = board['height']
+        columns = board['width']
+    codes = decode_packed(base64.b64decode(board['packed']), rows * columns)
+    return [codes[row * columns:(row + 1) * columns] for row in range(rows)]
+
+
+def decode_packed(data, count):
+    """ decodes count cells packed on 4-bit codes, where runs of covered cells are
+    a RUN code followed by the run length on 3-bit groups (lowest first) whose 4th bit
+    tells that another group follows """
+    nibbles = (nibble for byte in data for nibble in (byte >> 4, byte & 0x0F))
+    codes = []
+    while len(codes) < count:
+        code = next(nibbles)
+        if code == PACKED_RUN:
+            length = 0
+            shift = 0
+            while True:
+                part = next(nibbles)
+                length |= (part & 7) << shift
+                shift += 3
+                if not part & 8:
+                    break
+            codes.extend(['C'] * length)
+        else:
+            codes.append(PACKED_CODES[code])
+    return codes
+
+
 class MinesweeperClientException(Exception):
     pass
 
 
 class MinesweeperClient:
-    """ Minesweeper client """
+    """ Minesweeper client. Its requests share a session, so the connections to the server are kept
+    alive and reused (up to pool_size of them at once) instead of opening one per request """
 
-    def __init__(self, server_url):
+    def __init__(self, server_url, packed=False, deltas=False, pool_size=10):
         self._server_url = server_url
         self._token = None
+        # asks for the boards packed on 4-bit codes, much smaller than the cells
+        self._packed = packed
+        # asks for the cells changed since the version of the game known and applies them to it
+        self._deltas = deltas
+        self._session = requests.Session()
+        adapter = HTTPAdapter(pool_connections=1, pool_maxsize=pool_size)
+        self._session.mount('http://', adapter)
+        self._session.mount('https://', adapter)
+
+    def __enter__(self):
+        return self
+
+    def __exit__(self, *args):
+        self.close()
+
+    def close(self):
+        """ closes the connections kept alive """
+        self._session.close()
 
     def register(self, username, password):
         """ registers a new user """
-        response = requests.post(self._api_url() + "/register",
-                                 headers={},
-                                 data={'username': username, 'password': password})
+        response = self._session.post(self._api_url() + "/register",
+                                      headers={},
+                                      data={'username': username, 'password': password})
         self._validate_response(response)
 
     def login(self, username, password):
         """ performs user login and receives a token if successful """
-        response = requests.post(self._api_url() + "/login",
-                                 headers={},
-                                 data={'username': username, 'password': password})
+        response = self._session.post(self._api_url() + "/login",
+                                      headers={},
+                                      data={'username': username, 'password': password})
         self._token = self._get_token(response)
 
     def new_game(self, rows=10, columns=10, mines=10):
         """ creates a new board with the given dimensions and number of mines """
-        response = requests.post(self._api_url(),
-                                 headers=self._get_headers(),
-                                 data={'rows': rows, 'columns': columns, 'mines': mines})
+        response = self._session.post(self._api_url(),
+                                      headers=self._get_headers(),
+                                      data={'rows': rows, 'columns': columns, 'mines': mines})
         return self._get_game(response)
 
     def get_game(self, id):
         """ gets an existing game """
-        response = requests.get(self._api_url() + "/" + id, headers=self._get_headers())
+        response = self._session.get(self._api_url() + "/" + id, headers=self._get_headers())
         return self._get_game(response)
 
+    def refresh(self, game):
+        """ updates a game with the changes made since its version (by another client), or with the
+        whole game when deltas are not asked for """
+        response = self._session.get(self._api_url() + "/" + game.id, headers=self._get_headers(),
+                                     params=self._get_params(game))
+        return self._get_game(response, game)
+
+    def list_games(self, status=None, page=0, size=20):
+        """ lists the summaries (id, status, dimensions, duration and progress) of the user's games,
+        the most recently started first. Returns the summaries and the total number of games """
+        params = {'page': page, 'size': size}
+        if status:
+            params['status'] = status
+        response = self._session.get(self._api_url() + "/games", headers=self._get_headers(), params=params)
+        self._validate_response(response)
+        data = response.json()
+        return data['games'], data['total']
+
+    def get_region(self, id, row, column, height, width):
+        """ gets an existing game with only the cells of a region of its board """
+        response = self._session.get('{}/{}/cells'.format(self._api_url(), id), headers=self._get_headers(),
+                                     params={'row': row, 'column': column, 'height': height, 'width': width})
+        return self._get_game(response)
+
+    def follow(self, id):
+        """ yields the (event, game data) of a game as it changes: first ('game', the game)
+        and then ('change', the game with only the changed cells) per action """
+        response = self._session.get('{}/{}/events'.format(self._api_url(), id), headers=self._get_headers(),
+                                     stream=True)
+        self._validate_response(response)
+        event = {}
+        for line in response.iter_lines(decode_unicode=True):
+            if line:
+                field, _, value = line.partition(':')
+                event[field] = value
+            elif 'data' in event:
+                yield event.get('event', 'message'), json.loads(event['data'])
+                event = {}
+
     def uncover(self, game, row, column):
         """ uncovers/reveals the cell of the game on the indicated position """
         response = self._put_request("uncover", game, row, column)
-        return self._get_game(response)
+        return self._get_game(response, game)
+
+    def chord(self, game, row, column):
+        """ uncovers the adjacent cells without red flag of the uncovered cell of the game on the indicated
+        position, when its red flags match its adjacent mines """
+        response = self._put_request("chord", game, row, column)
+        return self._get_game(response, game)
 
     def set_red_flag(self, game, row, column):
         """ sets a red flag on the cell of the game on the indicated position """
         response = self._put_request("red_flag", game, row, column)
-        return self._get_game(response)
+        return self._get_game(response, game)
 
     def remove_red_flag(self, game, row, column):
         """ removes a red flag on the cell of the game on the indicated position """
         response = self._delete_request("red_flag", game, row, column)
-        return self._get_game(response)
+        return self._get_game(response, game)
 
     def set_question_mark(self, game, row, column):
         """ sets a question mark on the cell of the game on the indicated position """
         response = self._put_request("question_mark", game, row, column)
-        return self._get_game(response)
+        return self._get_game(response, game)
 
     def remove_question_mark(self, game, row, column):
         """ removes a question mark on the cell of the game on the indicated position """
         response = self._delete_request("question_mark", game, row, column)
-        return self._get_game(response)
+        return self._get_game(response, game)
+
+    def apply_moves(self, game, moves):
+        """ applies several (action, row, column) moves on the game in one request, where action is
+        uncover, chord, flag, unflag, question or unquestion. Returns the result of each move and the game """
+        response = self._session.post('{}/{}/moves'.format(self._api_url(), game.id), headers=self._get_headers(),
+                                      params=self._get_params(game), json=get_moves(moves))
+        self._validate_response(response)
+        data = response.json()
+        return data['moves'], self._update(game, data['game'])
 
     def _validate_response(self, response):
         if response.status_code != requests.codes.ok:
@@ -117,10 +268,16 @@ class MinesweeperClient:
         self._validate_response(response)
         return response.json()['token']
 
-    def _get_game(self, response):
+    def _get_game(self, response, game=None):
         """ verifies the response and returns the game's information if there is no error """
         self._validate_response(response)
-        return Game(response.json())
+        return self._update(game, response.json())
+
+    def _update(self, game, data):
+        """ applies the changes on the game the request was sent for, when they were asked for """
+        if self._deltas and game is not None:
+            return game.update(data)
+        return Game(data)
 
     def _api_url(self):
         return self._server_url + "/minesweeper"
@@ -130,14 +287,28 @@ class MinesweeperClient:
         return response.json()['error']
 
     def _put_request(self, action, game, row, column):
-        return requests.put('{}/{}/{}'.format(self._api_url(), game.id, action),
-                            headers=self._get_headers(),
-                            data={'row': row, 'column': column})
+        return self._session.put('{}/{}/{}'.format(self._api_url(), game.id, action),
+                                 headers=self._get_headers(), params=self._get_params(game),
+                                 data={'row': row, 'column': column})
 
     def _delete_request(self, action, game, row, column):
-        return requests.delete('{}/{}/{}'.format(self._api_url(), game.id, action),
-                               headers=self._get_headers(),
-                               data={'row': row, 'column': column})
+        return self._session.delete('{}/{}/{}'.format(self._api_url(), game.id, action),
+                                    headers=self._get_headers(), params=self._get_params(game),
+                                    data={'row': row, 'column': column})
+
+    def _get_params(self, game):
+        """ asks for the cells changed since the version of the game known """
+        if self._deltas and game.version is not None:
+            return {'since': game.version}
+        return None
 
     def _get_headers(self):
-        return {'Authorization': self._token}
+        headers = {'Authorization': self._token}
+        if self._packed:
+            headers['Accept'] = PACKED_JSON
+        return headers
+
+
+def get_moves(moves):
+    """ returns the body of a batch of (action, row, column) moves """
+    return [{'action': action, 'row': row, 'column': column} for action, row, column in moves]
@@ -1,8 +1,11 @@
+import asyncio
+import base64
+
 import pytest
 import responses
 import json
 
-from .minesweeper_client import MinesweeperClient, MinesweeperClientException, Game
+from .minesweeper_client import MinesweeperClient, MinesweeperClientException, Game, get_cells
 
 url = "http://mockserver:8080"
 
@@ -98,6 +101,17 @@ def test_get_game_throws_exception_if_status_code_not_found(client, api_url, hea
         client.get_game(id)
 
 
+@responses.activate
+def test_list_games_returns_the_summaries(client, api_url):
+    response = {"games": [{"id": "b12551c1-ae98-46eb-9fcb-3fbca459c540", "status": "Started", "rows": 10,
+                           "columns": 10, "mines": 10, "duration": 30, "progress": 25}],
+                "page": 0, "size": 20, "total": 1}
+    responses.add(responses.GET, api_url + "/games", json=response, status=200)
+    games, total = client.list_games(status="Started")
+    assert total == 1
+    assert games[0]['progress'] == 25
+
+
 @responses.activate
 def test_uncover_returns_game_with_uncovered_cell(client, api_url, headers):
     id = "b12551c1-ae98-46eb-9fcb-3fbca459c532"
@@ -115,6 +129,23 @@ def test_uncover_returns_game_with_uncovered_cell(client, api_url, headers):
     assert changed_game.data['board']['cells'] == new_cells
 
 
+@responses.activate
+def test_chord_returns_game_with_uncovered_adjacent_cells(client, api_url, headers):
+    id = "b12551c1-ae98-46eb-9fcb-3fbca459c539"
+    game = _create_game(id)
+    new_cells = [["1", "F", "1"], ["1", "1", "1"], ["0", "0", "0"]]
+    response = {
+        "id": id,
+        "status": "Started",
+        "duration": "100",
+        "board": {"cells": new_cells}
+    }
+    responses.add(responses.PUT, api_url + "/" + id + "/chord", headers=headers, json=response, status=200)
+    changed_game = client.chord(game, 1, 1)
+    assert changed_game.id == id
+    assert changed_game.data['board']['cells'] == new_cells
+
+
 @responses.activate
 def test_set_red_flag_returns_game_with_flagged_cell(client, api_url, headers):
     id = "b12551c1-ae98-46eb-9fcb-3fbca459c533"
@@ -193,3 +224,105 @@ def _create_game(id):
         "board": {"cells": cells}
     }
     return Game(data)
+
+
+def test_packed_cells_are_decoded():
+    # "1", "F", "M", a run of 100 covered cells and "0": 1A CF CC 10
+    board = {"rows": 1, "columns": 104, "packed": base64.b64encode(bytes([0x1A, 0xCF, 0xCC, 0x10])).decode()}
+    cells = get_cells(board)
+    assert cells == [["1", "F", "M"] + ["C"] * 100 + ["0"]]
+
+
+@responses.activate
+def test_packed_client_asks_for_packed_boards(api_url):
+    client = MinesweeperClient(url, packed=True)
+    id = "b12551c1-ae98-46eb-9fcb-3fbca459c532"
+    response = {
+        "id": id,
+        "status": "Started",
+        "duration": "1",
+        "board": {"rows": 2, "columns": 2, "packed": base64.b64encode(bytes([0x99, 0x91])).decode()}
+    }
+    responses.add(responses.GET, api_url + "/" + id, json=response, status=200)
+    game = client.get_game(id)
+    assert responses.calls[0].request.headers['Accept'] == 'application/vnd.minesweeper.packed+json'
+    assert get_cells(game.data['board']) == [["C", "C"], ["C", "1"]]
+
+
+def test_packed_region_is_decoded_with_its_size():
+    # "C", "1", "C" of a 1x3 region of a 4x4 board: 91 90
+    board = {"row": 0, "column": 1, "height": 1, "width": 3, "rows": 4, "columns": 4,
+             "packed": base64.b64encode(bytes([0x91, 0x90])).decode()}
+    assert get_cells(board) == [["C", "1", "C"]]
+
+
+@responses.activate
+def test_follow_yields_the_events_of_the_game(client, api_url):
+    id = "b12551c1-ae98-46eb-9fcb-3fbca459c532"
+    body = ('id:3\nevent:game\ndata:{"id": "' + id + '", "version": 3, "board": {"cells": [["C"]]}}\n\n'
+            'id:4\nevent:change\ndata:{"id": "' + id + '", "version": 4, "board": {"changes": [[0, 0, "F"]]}}\n\n')
+    responses.add(responses.GET, api_url + "/" + id + "/events", body=body, status=200, content_type='text/event-stream')
+    events = list(client.follow(id))
+    assert [event for event, _ in events] == ['game', 'change']
+    assert events[1][1]['board']['changes'] == [[0, 0, 'F']]
+
+
+@responses.activate
+def test_apply_moves_sends_them_in_one_request(client, api_url):
+    game = _create_game("b12551c1-ae98-46eb-9fcb-3fbca459c532")
+    response = {"moves": [{"result": "Applied"}, {"result": "Rejected", "error": "invalid action: jump"}],
+                "game": {"id": game.id, "status": "Started", "duration": "1", "board": {"cells": [["F"]]}}}
+    responses.add(responses.POST, api_url + "/" + game.id + "/moves", json=response, status=200)
+    results, result_game = client.apply_moves(game, [("flag", 0, 0), ("jump", 0, 0)])
+    assert json.loads(responses.calls[0].request.body) == [{"action": "flag", "row": 0, "column": 0},
+                                                          {"action": "jump", "row": 0, "column": 0}]
+    assert results[1]['result'] == 'Rejected'
+    assert result_game.id == game.id
+
+
+@responses.activate
+def test_actions_with_deltas_ask_for_the_changes_and_apply_them_to_the_game(api_url):
+    client = MinesweeperClient(url, deltas=True)
+    id = "b12551c1-ae98-46eb-9fcb-3fbca459c532"
+    game = Game({"id": id, "status": "Started", "duration": 1, "version": 3,
+                 "board": {"cells": [["C", "C"], ["C", "C"]]}})
+    response = {"id": id, "status": "Started", "duration": 2, "version": 4, "board": {"changes": [[1, 0, "F"]]}}
+    responses.add(responses.PUT, api_url + "/" + id + "/red_flag", json=response, status=200)
+    changed_game = client.set_red_flag(game, 1, 0)
+    assert "since=3" in responses.calls[0].request.url
+    assert changed_game is game
+    assert game.version == 4
+    assert game.data['board']['cells'] == [["C", "C"], ["F", "C"]]
+
+
+def test_update_without_changes_replaces_the_whole_game():
+    game = Game({"id": "1", "status": "Started", "version": 3, "board": {"cells": [["C"]]}})
+    game.update({"id": "1", "status": "Lost", "version": 9, "board": {"cells": [["M"]]}})
+    assert game.status == "Lost"
+    assert game.data['board']['cells'] == [["M"]]
+
+
+def test_update_decodes_a_packed_board_before_applying_the_changes():
+    board = {"rows": 1, "columns": 3, "packed": base64.b64encode(bytes([0x91, 0x90])).decode()}
+    game = Game({"id": "1", "status": "Started", "version": 3, "board": board})
+    game.update({"id": "1", "status": "Started", "version": 4, "board": {"changes": [[0, 2, "Q"]]}})
+    assert get_cells(game.data['board']) == [["C", "1", "Q"]]
+
+
+def test_async_client_applies_moves_with_deltas():
+    aioresponses = pytest.importorskip("aioresponses")
+    from .minesweeper_async_client import AsyncMinesweeperClient
+    id = "b12551c1-ae98-46eb-9fcb-3fbca459c532"
+    game = Game({"id": id, "status": "Started", "duration": 1, "version": 3, "board": {"cells": [["C", "C"]]}})
+    response = {"moves": [{"result": "Applied"}],
+                "game": {"id": id, "status": "Started", "duration": 2, "version": 4, "board": {"changes": [[0, 1, "F"]]}}}
+
+    async def apply_moves():
+        async with AsyncMinesweeperClient(url) as client:
+            return await client.apply_moves(game, [("flag", 0, 1)])
+
+    with aioresponses.aioresponses() as mocked:
+        mocked.post(url + "/minesweeper/" + id + "/moves?since=3", payload=response)
+        results, changed_game = asyncio.run(apply_moves())
+    assert results[0]['result'] == 'Applied'
+    assert changed_game.data['board']['cells'] == [["C", "F"]]
@@ -0,0 +1,26 @@
+package com.minesweeper.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.minesweeper.model.BoardGenerator;
+
+/**
+ * Registers the generator of the mines layouts, given to the new games (see
+ * GameService) and to the games loaded (see BoardGeneratorCallback)
+ */
+@Configuration
+public class BoardConfiguration {
+
+    @Bean
+    public BoardGenerator boardGenerator(
+            @Value("${minesweeper.board.parallel-threshold:" + BoardGenerator.DEFAULT_PARALLEL_THRESHOLD + "}") long parallelThreshold) {
+        return new BoardGenerator(parallelThreshold);
+    }
+
+    @Bean
+    public BoardGeneratorCallback boardGeneratorCallback(BoardGenerator generator) {
+        return new BoardGeneratorCallback(generator);
+    }
+}
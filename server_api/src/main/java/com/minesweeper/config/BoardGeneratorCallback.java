@@ -0,0 +1,26 @@
+package com.minesweeper.config;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.mapping.event.AfterConvertCallback;
+
+import com.minesweeper.model.BoardGenerator;
+import com.minesweeper.model.Game;
+
+/**
+ * Gives the board generator to the games read from Mongo, whose mines layout
+ * is generated again when first needed
+ */
+public class BoardGeneratorCallback implements AfterConvertCallback<Game> {
+
+    private final BoardGenerator generator;
+
+    public BoardGeneratorCallback(BoardGenerator generator) {
+        this.generator = generator;
+    }
+
+    @Override
+    public Game onAfterConvert(Game game, Document document, String collection) {
+        game.setBoardGenerator(generator);
+        return game;
+    }
+}
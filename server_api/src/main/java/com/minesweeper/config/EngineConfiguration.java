@@ -0,0 +1,32 @@
+package com.minesweeper.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+
+import com.minesweeper.service.GameEngine;
+
+/**
+ * Registers the engine applying the actions on the games, with a shard per
+ * processor unless configured otherwise. It stops before the store, so the
+ * store writes the changes of the last actions.
+ *
+ * A shard per processor fits the actions themselves, which only use the CPU:
+ * the games are loaded before reaching the shard (see GameService). The
+ * writes done on the shard still wait for the database: the ones of new and
+ * finished games, of the dirty games the store evicts and every write when
+ * the store writes through. With a slow database, more shards than
+ * processors keep the other games moving: the queue and the latencies of
+ * each shard are logged by MetricsReporter to tell
+ */
+@Configuration
+public class EngineConfiguration {
+
+    @Bean(destroyMethod = "close")
+    @DependsOn("gameStore")
+    public GameEngine gameEngine(@Value("${minesweeper.engine.shards:0}") int shards,
+            @Value("${minesweeper.engine.queue-capacity:1024}") int queueCapacity) {
+        return new GameEngine(shards > 0 ? shards : Runtime.getRuntime().availableProcessors(), queueCapacity);
+    }
+}
@@ -0,0 +1,48 @@
+package com.minesweeper.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+
+/**
+ * Creates the indexes declared on the documents once the application is
+ * ready, on its own thread. Creating them when the mapping context is built
+ * (auto-index-creation) blocks the start up until Mongo answers, so a database
+ * not reachable only leaves a warning and the indexes to the next start up
+ */
+public class IndexCreator implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexCreator.class);
+
+    private final MongoOperations operations;
+    private final Class<?>[] documents;
+
+    public IndexCreator(MongoOperations operations, Class<?>... documents) {
+        this.operations = operations;
+        this.documents = documents;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        Thread thread = new Thread(this::createIndexes, "index-creator");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void createIndexes() {
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(operations.getConverter().getMappingContext());
+        for (Class<?> document : documents) {
+            try {
+                IndexOperations indexes = operations.indexOps(document);
+                resolver.resolveIndexFor(document).forEach(indexes::ensureIndex);
+            } catch (RuntimeException e) {
+                LOGGER.warn("indexes of {} not created: {}", document.getSimpleName(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.minesweeper.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.minesweeper.repository.GameStore;
+import com.minesweeper.service.GameEngine;
+import com.minesweeper.service.GameService;
+
+/**
+ * Registers the reporter logging the counters of the application every report
+ * interval (see MetricsReporter)
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public MetricsReporter metricsReporter(GameStore store, GameService service, GameEngine engine,
+            @Value("${minesweeper.metrics.report-interval:60000}") long reportInterval) {
+        return new MetricsReporter(store, service, engine, reportInterval);
+    }
+}
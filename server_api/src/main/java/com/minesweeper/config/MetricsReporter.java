@@ -0,0 +1,84 @@
+package com.minesweeper.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.minesweeper.repository.GameStore;
+import com.minesweeper.service.GameEngine;
+import com.minesweeper.service.GameService;
+
+/**
+ * Logs the counters of the store, the service and the engine every report
+ * interval: how the games are served from memory and written, how many
+ * actions found their game changed by someone else, and how each shard keeps
+ * up with its actions. The counters and the maximum latency add up since the
+ * application started
+ */
+public class MetricsReporter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetricsReporter.class);
+
+    private final GameStore store;
+    private final GameService service;
+    private final GameEngine engine;
+    private final ScheduledExecutorService reporter;
+
+    /**
+     * @param store
+     * @param service
+     * @param engine
+     * @param reportInterval
+     *            time in milliseconds between reports, 0 to not report
+     */
+    public MetricsReporter(GameStore store, GameService service, GameEngine engine, long reportInterval) {
+        this.store = store;
+        this.service = service;
+        this.engine = engine;
+        if (reportInterval > 0) {
+            reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "metrics-reporter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reporter.scheduleWithFixedDelay(this::report, reportInterval, reportInterval, TimeUnit.MILLISECONDS);
+        } else {
+            reporter = null;
+        }
+    }
+
+    public void report() {
+        if (LOGGER.isInfoEnabled()) {
+            getReport().forEach(LOGGER::info);
+        }
+    }
+
+    /**
+     * @return a line per component, and per shard of the engine
+     */
+    List<String> getReport() {
+        List<String> lines = new ArrayList<String>();
+        lines.add(String.format("store: %d games, %d dirty, %d hits, %d misses, %d evictions (%d dirty), %d writes, %d write errors, %d conflicts",
+                store.size(), store.countDirty(), store.getHits(), store.getMisses(), store.getEvictions(), store.getDirtyEvictions(),
+                store.getWrites(), store.getWriteErrors(), store.getConflicts()));
+        lines.add(String.format("service: %d conflicts, %d retries, %d failures", service.getConflicts(), service.getRetries(),
+                service.getFailures()));
+        for (int shard = 0; shard < engine.getShards(); shard++) {
+            lines.add(String.format("shard %d: %d queued, %d completed, %d rejected, %d us average latency, %d us max latency", shard,
+                    engine.getQueueDepth(shard), engine.getCompleted(shard), engine.getRejected(shard), engine.getAverageLatency(shard),
+                    engine.getMaxLatency(shard)));
+        }
+        return lines;
+    }
+
+    public void close() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+        }
+    }
+}
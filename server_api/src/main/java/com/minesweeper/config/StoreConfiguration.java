@@ -0,0 +1,61 @@
+package com.minesweeper.config;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+import com.minesweeper.model.Game;
+import com.minesweeper.model.GameMove;
+import com.minesweeper.repository.DocumentGameRepository;
+import com.minesweeper.repository.EventSourcedGameRepository;
+import com.minesweeper.repository.GameRepository;
+import com.minesweeper.repository.GameStore;
+import com.minesweeper.repository.IGameRepository;
+
+/**
+ * Registers the store of the games kept on memory in front of the repository,
+ * which writes the changes of the games in the background (see GameStore) and
+ * the rest of them when the application stops. The games are persisted as
+ * documents or, in the events mode, as move logs with periodic snapshots
+ * (see EventSourcedGameRepository). The indexes of both are created once the
+ * application is ready (see IndexCreator)
+ */
+@Configuration
+public class StoreConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public GameStore gameStore(GameRepository repository, MongoOperations operations, ScheduledExecutorService gameFlusher,
+            @Value("${minesweeper.store.max-games:10000}") int maxGames, @Value("${minesweeper.store.flush-interval:500}") long flushInterval,
+            @Value("${minesweeper.store.mode:documents}") String mode, @Value("${minesweeper.store.snapshot-interval:64}") int snapshotInterval) {
+        return new GameStore(repository, getGames(repository, operations, mode, snapshotInterval), maxGames, flushInterval, gameFlusher);
+    }
+
+    private IGameRepository getGames(GameRepository repository, MongoOperations operations, String mode, int snapshotInterval) {
+        switch (mode) {
+        case "documents":
+            return new DocumentGameRepository(repository);
+        case "events":
+            return new EventSourcedGameRepository(repository, operations, snapshotInterval);
+        default:
+            throw new IllegalArgumentException("invalid store mode: " + mode);
+        }
+    }
+
+    @Bean
+    public IndexCreator indexCreator(MongoOperations operations) {
+        return new IndexCreator(operations, Game.class, GameMove.class);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ScheduledExecutorService gameFlusher() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
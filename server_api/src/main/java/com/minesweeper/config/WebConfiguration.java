@@ -0,0 +1,62 @@
+package com.minesweeper.config;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.minesweeper.controller.BoardViewResolver;
+import com.minesweeper.controller.GameEventStreams;
+import com.minesweeper.controller.GameInfoOctetStreamConverter;
+import com.minesweeper.controller.GameResponseCache;
+
+/**
+ * Registers how the board is negotiated with the clients: the board view
+ * argument and the binary game information, plus the cache of the games'
+ * responses written on them and the push channel of their changes
+ */
+@Configuration
+public class WebConfiguration implements WebMvcConfigurer {
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new BoardViewResolver());
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new GameInfoOctetStreamConverter());
+    }
+
+    @Bean
+    public GameResponseCache gameResponseCache(ObjectMapper objectMapper, @Value("${minesweeper.cache.max-entries:1024}") int maxEntries,
+            @Value("${minesweeper.cache.max-bytes:67108864}") long maxBytes) {
+        List<HttpMessageConverter<?>> converters = Arrays.asList(new MappingJackson2HttpMessageConverter(objectMapper),
+                new GameInfoOctetStreamConverter());
+        return new GameResponseCache(converters, maxEntries, maxBytes);
+    }
+
+    @Bean
+    public GameEventStreams gameEventStreams(ObjectMapper objectMapper, ExecutorService eventSenders,
+            @Value("${minesweeper.events.queue-capacity:64}") int queueCapacity, @Value("${minesweeper.events.timeout:1800000}") long timeout) {
+        return new GameEventStreams(objectMapper, eventSenders, queueCapacity, timeout);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService eventSenders(@Value("${minesweeper.events.threads:4}") int threads) {
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "game-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
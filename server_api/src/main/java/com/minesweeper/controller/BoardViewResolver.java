@@ -0,0 +1,87 @@
+package com.minesweeper.controller;
+
+import java.util.List;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.ServletRequestBindingException;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import com.minesweeper.service.BoardView;
+
+/**
+ * Resolves how the client wants the board of a game from the request: the
+ * optional since parameter (board's version known by the client) and the
+ * Accept header, where application/octet-stream or
+ * application/vnd.minesweeper.packed+json ask for the cells packed on 4-bit
+ * codes. The binary representation has no room for changes, so it always
+ * carries the whole board. The optional viewport parameter,
+ * "row,column,height,width", restricts the board to the region the client
+ * shows
+ */
+public class BoardViewResolver implements HandlerMethodArgumentResolver {
+
+    private static final MediaType PACKED_JSON = MediaType.valueOf(BoardView.PACKED_JSON_VALUE);
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return BoardView.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer, NativeWebRequest webRequest,
+            WebDataBinderFactory binderFactory) throws Exception {
+        BoardView view = new BoardView(getSince(webRequest.getParameter("since")), false);
+        setViewport(view, webRequest.getParameter("viewport"));
+        for (MediaType mediaType : getAccepted(webRequest.getHeader(HttpHeaders.ACCEPT))) {
+            if (MediaType.APPLICATION_OCTET_STREAM.equalsTypeAndSubtype(mediaType)) {
+                view.packed = true;
+                view.since = null;
+                break;
+            }
+            if (PACKED_JSON.equalsTypeAndSubtype(mediaType)) {
+                view.packed = true;
+            }
+        }
+        return view;
+    }
+
+    private Long getSince(String since) throws ServletRequestBindingException {
+        try {
+            return (since != null ? Long.valueOf(since) : null);
+        } catch (NumberFormatException e) {
+            throw new ServletRequestBindingException("invalid since: " + since);
+        }
+    }
+
+    private void setViewport(BoardView view, String viewport) throws ServletRequestBindingException {
+        if (viewport == null) {
+            return;
+        }
+        String[] values = viewport.split(",");
+        if (values.length != 4) {
+            throw new ServletRequestBindingException("invalid viewport: " + viewport);
+        }
+        try {
+            view.row = Integer.valueOf(values[0].trim());
+            view.column = Integer.valueOf(values[1].trim());
+            view.height = Integer.valueOf(values[2].trim());
+            view.width = Integer.valueOf(values[3].trim());
+        } catch (NumberFormatException e) {
+            throw new ServletRequestBindingException("invalid viewport: " + viewport);
+        }
+    }
+
+    private List<MediaType> getAccepted(String accept) throws ServletRequestBindingException {
+        try {
+            return MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            throw new ServletRequestBindingException("invalid accept header: " + accept);
+        }
+    }
+}
@@ -17,6 +17,8 @@ import com.minesweeper.model.GameException;
 import com.minesweeper.security.InvalidLoginException;
 import com.minesweeper.security.UnauthorizedException;
 import com.minesweeper.security.UserAlreadyExistsException;
+import com.minesweeper.service.GameBusyException;
+import com.minesweeper.service.GameConflictException;
 import com.minesweeper.service.GameNotFoundException;
 
 @ControllerAdvice
@@ -34,6 +36,18 @@ public class ControllerExceptionHandler extends ResponseEntityExceptionHandler {
         return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(GameConflictException.class)
+    protected ResponseEntity<Object> handleGameConflictException(GameConflictException ex) {
+        Map<String, Object> body = createErrorBody(HttpStatus.CONFLICT, ex.getMessage());
+        return new ResponseEntity<>(body, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(GameBusyException.class)
+    protected ResponseEntity<Object> handleGameBusyException(GameBusyException ex) {
+        Map<String, Object> body = createErrorBody(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage());
+        return new ResponseEntity<>(body, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @ExceptionHandler(BoardException.class)
     protected ResponseEntity<Object> handleBoardException(BoardException ex) {
         Map<String, Object> body = createErrorBody(HttpStatus.BAD_REQUEST, ex.getMessage());
@@ -1,26 +1,50 @@
 package com.minesweeper.controller;
 
+import java.io.IOException;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
+import com.minesweeper.controller.GameResponseCache.CachedResponse;
+import com.minesweeper.model.Game.Status;
+import com.minesweeper.service.BoardView;
 import com.minesweeper.service.GameInfo;
 import com.minesweeper.service.GameService;
+import com.minesweeper.service.GamesInfo;
 import com.minesweeper.service.IGameService;
+import com.minesweeper.service.MoveInfo;
+import com.minesweeper.service.MovesInfo;
 
 @RestController
 public class GameController {
 
+    /** finished games do not change, so they can be cached for long **/
+    private static final long FINISHED_MAX_AGE_DAYS = 365;
+
     private final IGameService service;
+    private final GameResponseCache responses;
+    private final GameEventStreams events;
 
-    public GameController(GameService service) {
+    public GameController(GameService service, GameResponseCache responses, GameEventStreams events) {
         this.service = service;
+        this.responses = responses;
+        this.events = events;
     }
 
     /**
@@ -28,23 +52,114 @@ public class GameController {
      * 
      * @param parameters
      *            rows, columns and mines
+     * @param view
+     *            how the client wants the board (see BoardViewResolver)
      * @return the id of the created game
      */
     @PostMapping(value = "/minesweeper", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
-    public GameInfo createGame(Integer rows, Integer columns, Integer mines) {
-        return service.createGame(rows, columns, mines);
+    public GameInfo createGame(Integer rows, Integer columns, Integer mines, BoardView view) {
+        return service.createGame(rows, columns, mines, view);
+    }
+
+    /**
+     * Lists the games of the user, the most recently started first, without
+     * their boards
+     * 
+     * @param status
+     *            of the games to list (all of them if not provided)
+     * @param page
+     *            number, starting at 0
+     * @param size
+     *            of the page
+     * @return a page of the summaries of the games
+     */
+    @GetMapping("/minesweeper/games")
+    public GamesInfo getGames(String status, Integer page, Integer size) {
+        return service.getGames(status, page, size);
     }
 
     /**
-     * Returns the game with the given id
+     * Returns the game with the given id. The board's version is its ETag:
+     * when the client already has it (If-None-Match) the answer is 304 without
+     * loading the board, and otherwise the response is served from the cache
+     * of responses if it was already written. Finished games do not change, so
+     * they are cached by the client for long, while the rest must be validated
      * 
      * @param gameId
      *            of the game to return
+     * @param view
+     *            how the client wants the board (see BoardViewResolver)
+     * @param headers
+     *            of the request
      * @return the information of the game
+     * @throws IOException
+     * @throws HttpMediaTypeNotAcceptableException
      */
     @GetMapping("/minesweeper/{gameId}")
-    public GameInfo getGame(@PathVariable String gameId) {
-        return service.getGame(getId(gameId));
+    public ResponseEntity<byte[]> getGame(@PathVariable String gameId, BoardView view, @RequestHeader HttpHeaders headers)
+            throws IOException, HttpMediaTypeNotAcceptableException {
+        UUID id = getId(gameId);
+        GameInfo state = service.getGameState(id);
+        String eTag = getETag(state.version);
+        if (headers.getIfNoneMatch().contains(eTag) || headers.getIfNoneMatch().contains("W/" + eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(getCacheControl(state.status))
+                    .varyBy(HttpHeaders.ACCEPT).build();
+        }
+        MediaType mediaType = responses.getMediaType(headers.getFirst(HttpHeaders.ACCEPT));
+        CachedResponse response = responses.getResponse(state, view, mediaType, () -> service.getGame(id, view));
+        return ResponseEntity.ok().headers(response.getHeaders()).eTag(getETag(response.getVersion()))
+                .cacheControl(getCacheControl(response.getStatus())).varyBy(HttpHeaders.ACCEPT).body(response.getBody());
+    }
+
+    /**
+     * Streams the changes of the game with the given id as server-sent events:
+     * first the game and then the changed cells of each action (see
+     * GameEventStreams). A client reconnecting with the Last-Event-ID header
+     * first gets the changes since that version
+     * 
+     * @param gameId
+     *            of the game
+     * @param lastEventId
+     *            board's version of the last event got by the client, if any
+     * @param view
+     *            how the client wants the board on the first event (see
+     *            BoardViewResolver)
+     * @return the stream of events
+     */
+    @GetMapping("/minesweeper/{gameId}/events")
+    public ResponseEntity<ResponseBodyEmitter> getEvents(@PathVariable String gameId,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId, BoardView view) {
+        UUID id = getId(gameId);
+        if (lastEventId != null && view.since == null) {
+            view.since = lastEventId;
+        }
+        // checks the game exists and belongs to the user before subscribing
+        service.getGameState(id);
+        ResponseBodyEmitter emitter = events.subscribe(id, () -> service.getGame(id, view));
+        return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).cacheControl(CacheControl.noStore()).body(emitter);
+    }
+
+    /**
+     * Returns a region of the board of the game with the given id, read
+     * straight from the board
+     * 
+     * @param gameId
+     *            of the game
+     * @param row
+     *            of the region's first cell
+     * @param column
+     *            of the region's first cell
+     * @param height
+     *            of the region
+     * @param width
+     *            of the region
+     * @param view
+     *            how the client wants the board (see BoardViewResolver)
+     * @return the information of the game with the region's cells
+     */
+    @GetMapping("/minesweeper/{gameId}/cells")
+    public GameInfo getCells(@PathVariable String gameId, Integer row, Integer column, Integer height, Integer width, BoardView view) {
+        return service.getCells(getId(gameId), row, column, height, width, view);
     }
 
     /**
@@ -56,11 +171,32 @@ public class GameController {
      *            of the cell to reveal
      * @param column
      *            of the cell to reveal
+     * @param view
+     *            how the client wants the board (see BoardViewResolver)
      * @return the information of the game
      */
     @PutMapping(value = "/minesweeper/{gameId}/uncover", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
-    public GameInfo uncoverCell(@PathVariable String gameId, Integer row, Integer column) {
-        return service.uncoverCell(getId(gameId), row, column);
+    public GameInfo uncoverCell(@PathVariable String gameId, Integer row, Integer column, BoardView view) {
+        return service.uncoverCell(getId(gameId), row, column, view);
+    }
+
+    /**
+     * Chords an uncovered cell of a given game: uncovers its covered adjacent
+     * cells without flag when they match its number of adjacent mines
+     * 
+     * @param gameId
+     *            the id of the game where the cell belongs to
+     * @param row
+     *            of the cell to chord
+     * @param column
+     *            of the cell to chord
+     * @param view
+     *            how the client wants the board (see BoardViewResolver)
+     * @return the information of the game
+     */
+    @PutMapping(value = "/minesweeper/{gameId}/chord", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+    public GameInfo chordCell(@PathVariable String gameId, Integer row, Integer column, BoardView view) {
+        return service.chordCell(getId(gameId), row, column, view);
     }
 
     /**
@@ -72,11 +208,13 @@ public class GameController {
      *            of the cell
      * @param column
      *            of the cell
+     * @param view
+     *            how the client wants the board (see BoardViewResolver)
      * @return the information of the game
      */
     @PutMapping(value = "/minesweeper/{gameId}/red_flag", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
-    public GameInfo setRedFlag(@PathVariable String gameId, Integer row, Integer column) {
-        return service.setRedFlag(getId(gameId), row, column);
+    public GameInfo setRedFlag(@PathVariable String gameId, Integer row, Integer column, BoardView view) {
+        return service.setRedFlag(getId(gameId), row, column, view);
     }
 
     /**
@@ -88,11 +226,13 @@ public class GameController {
      *            of the cell
      * @param column
      *            of the cell
+     * @param view
+     *            how the client wants the board (see BoardViewResolver)
      * @return the information of the game
      */
     @DeleteMapping(value = "/minesweeper/{gameId}/red_flag", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
-    public GameInfo removeRedFlag(@PathVariable String gameId, Integer row, Integer column) {
-        return service.removeRedFlag(getId(gameId), row, column);
+    public GameInfo removeRedFlag(@PathVariable String gameId, Integer row, Integer column, BoardView view) {
+        return service.removeRedFlag(getId(gameId), row, column, view);
     }
 
     /**
@@ -104,11 +244,13 @@ public class GameController {
      *            of the cell
      * @param column
      *            of the cell
+     * @param view
+     *            how the client wants the board (see BoardViewResolver)
      * @return the information of the game
      */
     @PutMapping(value = "/minesweeper/{gameId}/question_mark", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
-    public GameInfo setQuestionMark(@PathVariable String gameId, Integer row, Integer column) {
-        return service.setQuestionMark(getId(gameId), row, column);
+    public GameInfo setQuestionMark(@PathVariable String gameId, Integer row, Integer column, BoardView view) {
+        return service.setQuestionMark(getId(gameId), row, column, view);
     }
 
     /**
@@ -120,11 +262,56 @@ public class GameController {
      *            of the cell
      * @param column
      *            of the cell
+     * @param view
+     *            how the client wants the board (see BoardViewResolver)
      * @return the information of the game
      */
     @DeleteMapping(value = "/minesweeper/{gameId}/question_mark", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
-    public GameInfo removeQuestionMark(@PathVariable String gameId, Integer row, Integer column) {
-        return service.removeQuestionMark(getId(gameId), row, column);
+    public GameInfo removeQuestionMark(@PathVariable String gameId, Integer row, Integer column, BoardView view) {
+        return service.removeQuestionMark(getId(gameId), row, column, view);
+    }
+
+    /**
+     * Applies a batch of moves on a game in one request, saving the game once
+     * 
+     * @param gameId
+     *            the id of the game
+     * @param moves
+     *            actions on cells in the order to apply them
+     * @param view
+     *            how the client wants the board (see BoardViewResolver)
+     * @return the result of each move and the information of the game
+     */
+    @PostMapping(value = "/minesweeper/{gameId}/moves", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public MovesInfo applyMoves(@PathVariable String gameId, @RequestBody List<MoveInfo> moves, BoardView view) {
+        return service.applyMoves(getId(gameId), moves, view);
+    }
+
+    /**
+     * Returns the moves applied on a game after a version, to replay them on
+     * the moves entry point. They are only logged when the games are persisted
+     * as events
+     * 
+     * @param gameId
+     *            the id of the game
+     * @param since
+     *            version of the game (0 if not provided)
+     * @return the moves in the order they were applied
+     */
+    @GetMapping("/minesweeper/{gameId}/moves")
+    public List<MoveInfo> getMoves(@PathVariable String gameId, Long since) {
+        return service.getMoves(getId(gameId), since);
+    }
+
+    private String getETag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    private CacheControl getCacheControl(String status) {
+        if (Status.Started.name().equals(status)) {
+            return CacheControl.noCache().cachePrivate();
+        }
+        return CacheControl.maxAge(FINISHED_MAX_AGE_DAYS, TimeUnit.DAYS).cachePrivate();
     }
 
     private UUID getId(String id) {
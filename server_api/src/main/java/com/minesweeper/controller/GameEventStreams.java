@@ -0,0 +1,241 @@
+package com.minesweeper.controller;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.minesweeper.service.GameChangedEvent;
+import com.minesweeper.service.GameInfo;
+
+/**
+ * Push channel of the changes of the games as server-sent events. A
+ * subscriber first gets the game (a "game" event) and then a "change" event
+ * per action applied on it, with only the changed cells. Each change is
+ * encoded once and the same frame is queued to every subscriber of the game.
+ *
+ * Each subscriber has a bounded queue drained by the sender threads, so the
+ * thread applying an action never waits for a client: a subscriber whose
+ * queue is full is closed, and it can reconnect asking for the changes since
+ * the last event it got (Last-Event-ID is the board's version)
+ */
+public class GameEventStreams {
+
+    static final String GAME_EVENT = "game";
+    static final String CHANGE_EVENT = "change";
+
+    private final ObjectMapper mapper;
+    private final Executor senders;
+    private final int queueCapacity;
+    private final long timeout;
+
+    /** subscribers by game, games without subscribers are removed **/
+    private final Map<UUID, Set<Subscriber>> subscribers = new ConcurrentHashMap<UUID, Set<Subscriber>>();
+
+    /**
+     * @param mapper
+     *            writes the game information of the events
+     * @param senders
+     *            threads that write the events to the subscribers
+     * @param queueCapacity
+     *            maximum number of events pending to be written to a
+     *            subscriber
+     * @param timeout
+     *            of a subscription in milliseconds
+     */
+    public GameEventStreams(ObjectMapper mapper, Executor senders, int queueCapacity, long timeout) {
+        this.mapper = mapper;
+        this.senders = senders;
+        this.queueCapacity = queueCapacity;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Subscribes to the changes of a game. The subscriber is registered
+     * before the game is read, so no change is lost, and the changes not newer
+     * than the game are skipped
+     *
+     * @param id
+     *            of the game
+     * @param game
+     *            reads the game's information sent as first event
+     * @return the emitter of the events
+     */
+    public ResponseBodyEmitter subscribe(UUID id, Supplier<GameInfo> game) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(timeout);
+        Subscriber subscriber = new Subscriber(id, emitter);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        subscribers.compute(id, (key, gameSubscribers) -> {
+            Set<Subscriber> added = (gameSubscribers != null ? gameSubscribers : ConcurrentHashMap.newKeySet());
+            added.add(subscriber);
+            return added;
+        });
+        try {
+            GameInfo gameInfo = game.get();
+            subscriber.start(new Frame(gameInfo.version, encode(GAME_EVENT, gameInfo)));
+        } catch (RuntimeException e) {
+            remove(subscriber);
+            throw e;
+        }
+        return emitter;
+    }
+
+    /**
+     * Queues the change of a game to its subscribers, encoded once for all
+     *
+     * @param event
+     */
+    @EventListener
+    public void onGameChanged(GameChangedEvent event) {
+        GameInfo change = event.getChange();
+        Set<Subscriber> gameSubscribers = subscribers.get(change.id);
+        if (gameSubscribers == null) {
+            return;
+        }
+        Frame frame = new Frame(change.version, encode(CHANGE_EVENT, change));
+        for (Subscriber subscriber : gameSubscribers) {
+            subscriber.offer(frame);
+        }
+    }
+
+    int countSubscribers(UUID id) {
+        Set<Subscriber> gameSubscribers = subscribers.get(id);
+        return (gameSubscribers != null ? gameSubscribers.size() : 0);
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.id, (key, gameSubscribers) -> {
+            gameSubscribers.remove(subscriber);
+            return (gameSubscribers.isEmpty() ? null : gameSubscribers);
+        });
+    }
+
+    /**
+     * Returns the bytes of an event: its id is the board's version and its
+     * data the game's information on a single line
+     *
+     * @param name
+     * @param gameInfo
+     * @return
+     */
+    private byte[] encode(String name, GameInfo gameInfo) {
+        try {
+            String event = "id:" + gameInfo.version + "\nevent:" + name + "\ndata:" + mapper.writeValueAsString(gameInfo) + "\n\n";
+            return event.getBytes(StandardCharsets.UTF_8);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("game information can not be written", e);
+        }
+    }
+
+    /**
+     * Encoded event and the board's version it brings the subscriber to
+     */
+    private static class Frame {
+
+        private final long version;
+        private final byte[] bytes;
+
+        private Frame(long version, byte[] bytes) {
+            this.version = version;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Subscriber of a game whose events are written by one sender thread at a
+     * time, in order. The events queued before the game was read are held
+     * until it is written
+     */
+    private class Subscriber implements Runnable {
+
+        private final UUID id;
+        private final ResponseBodyEmitter emitter;
+        private final BlockingQueue<Frame> frames = new ArrayBlockingQueue<Frame>(queueCapacity);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile Frame first;
+        private volatile boolean started;
+        private volatile boolean closed;
+
+        /** version of the last event written, only used by the sender **/
+        private long version = -1;
+
+        private Subscriber(UUID id, ResponseBodyEmitter emitter) {
+            this.id = id;
+            this.emitter = emitter;
+        }
+
+        private void start(Frame game) {
+            first = game;
+            started = true;
+            schedule();
+        }
+
+        private void offer(Frame frame) {
+            if (!frames.offer(frame)) {
+                // too slow, it must reconnect
+                close();
+            } else if (started) {
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            if (!closed && scheduled.compareAndSet(false, true)) {
+                senders.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                Frame game = first;
+                if (game != null) {
+                    first = null;
+                    send(game);
+                }
+                Frame frame;
+                while (!closed && (frame = frames.poll()) != null) {
+                    if (frame.version > version) {
+                        send(frame);
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                close();
+            } finally {
+                scheduled.set(false);
+            }
+            if (!frames.isEmpty()) {
+                schedule();
+            }
+        }
+
+        private void send(Frame frame) throws IOException {
+            emitter.send(frame.bytes, MediaType.TEXT_EVENT_STREAM);
+            version = frame.version;
+        }
+
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            remove(this);
+            emitter.complete();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.minesweeper.controller;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import com.minesweeper.service.GameInfo;
+
+/**
+ * Writes the game information as application/octet-stream: the body is the
+ * board packed on 4-bit codes (see BoardInfo.packed) and the rest of the
+ * information goes on X-Game-* and X-Board-* headers
+ */
+public class GameInfoOctetStreamConverter extends AbstractHttpMessageConverter<GameInfo> {
+
+    public GameInfoOctetStreamConverter() {
+        super(MediaType.APPLICATION_OCTET_STREAM);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return GameInfo.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected GameInfo readInternal(Class<? extends GameInfo> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("game information can not be read", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(GameInfo gameInfo, HttpOutputMessage outputMessage) throws IOException {
+        HttpHeaders headers = outputMessage.getHeaders();
+        setHeader(headers, "X-Game-Id", gameInfo.id);
+        setHeader(headers, "X-Game-Status", gameInfo.status);
+        setHeader(headers, "X-Game-Duration", gameInfo.duration);
+        setHeader(headers, "X-Game-Username", gameInfo.username);
+        setHeader(headers, "X-Board-Version", gameInfo.version);
+        setHeader(headers, "X-Board-Rows", gameInfo.board.rows);
+        setHeader(headers, "X-Board-Columns", gameInfo.board.columns);
+        setHeader(headers, "X-Board-Row", gameInfo.board.row);
+        setHeader(headers, "X-Board-Column", gameInfo.board.column);
+        setHeader(headers, "X-Board-Height", gameInfo.board.height);
+        setHeader(headers, "X-Board-Width", gameInfo.board.width);
+        setHeader(headers, "X-Board-Window", gameInfo.board.window);
+        if (gameInfo.board.packed != null) {
+            outputMessage.getBody().write(gameInfo.board.packed);
+        }
+    }
+
+    private void setHeader(HttpHeaders headers, String name, Object value) {
+        if (value != null) {
+            headers.set(name, String.valueOf(value));
+        }
+    }
+
+    @Override
+    protected Long getContentLength(GameInfo gameInfo, MediaType contentType) {
+        return (gameInfo.board.packed != null ? (long) gameInfo.board.packed.length : 0L);
+    }
+}
@@ -0,0 +1,215 @@
+package com.minesweeper.controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.util.StringUtils;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+
+import com.minesweeper.service.BoardView;
+import com.minesweeper.service.GameInfo;
+
+/**
+ * Bounded cache of the serialized responses of the games, keyed by game,
+ * board's version and how the client wants the board (view and media type),
+ * so a game polled without changes is neither loaded nor serialized again.
+ * The response of a game only changes with its version, except for the
+ * duration of a started game, so those entries are only used while their
+ * duration is the current one. The least recently used entries are evicted
+ * once the cache holds more entries or bytes than allowed
+ */
+public class GameResponseCache {
+
+    private final List<HttpMessageConverter<?>> converters;
+    private final int maxEntries;
+    private final long maxBytes;
+
+    /** entries in access order, the eldest is the least recently used **/
+    private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true);
+    private long bytes;
+
+    /**
+     * @param converters
+     *            used to write the game information, in order of preference
+     * @param maxEntries
+     * @param maxBytes
+     */
+    public GameResponseCache(List<HttpMessageConverter<?>> converters, int maxEntries, long maxBytes) {
+        this.converters = converters;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the media type the game information is written on, the one
+     * preferred by the Accept header among the ones the converters write
+     *
+     * @param accept
+     * @return
+     * @throws HttpMediaTypeNotAcceptableException
+     */
+    public MediaType getMediaType(String accept) throws HttpMediaTypeNotAcceptableException {
+        List<MediaType> accepted = new ArrayList<MediaType>(StringUtils.hasText(accept) ? MediaType.parseMediaTypes(accept) : Collections.singletonList(MediaType.ALL));
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType mediaType : accepted) {
+            for (HttpMessageConverter<?> converter : converters) {
+                for (MediaType supported : converter.getSupportedMediaTypes()) {
+                    MediaType selected = (mediaType.isConcrete() ? mediaType : supported);
+                    if (mediaType.isCompatibleWith(supported) && selected.isConcrete() && converter.canWrite(GameInfo.class, selected)) {
+                        return selected.removeQualityValue();
+                    }
+                }
+            }
+        }
+        throw new HttpMediaTypeNotAcceptableException(getSupportedMediaTypes());
+    }
+
+    /**
+     * Returns the response of a game, from the cache when its entry is still
+     * the current one or else written from the game information returned by
+     * the loader (and cached)
+     *
+     * @param state
+     *            game information without board (see Game.toStateInfo)
+     * @param view
+     * @param mediaType
+     * @param loader
+     *            of the whole game information, only used on a miss
+     * @return
+     * @throws IOException
+     */
+    public CachedResponse getResponse(GameInfo state, BoardView view, MediaType mediaType, Supplier<GameInfo> loader) throws IOException {
+        CachedResponse response = get(getKey(state.id.toString(), state.version, view, mediaType));
+        if (response != null && response.duration == state.duration) {
+            return response;
+        }
+        GameInfo gameInfo = loader.get();
+        response = write(gameInfo, mediaType);
+        // the game may have changed since its state was read
+        put(getKey(gameInfo.id.toString(), gameInfo.version, view, mediaType), response);
+        return response;
+    }
+
+    private synchronized CachedResponse get(String key) {
+        return entries.get(key);
+    }
+
+    private synchronized void put(String key, CachedResponse response) {
+        if (response.body.length > maxBytes) {
+            return;
+        }
+        CachedResponse replaced = entries.put(key, response);
+        if (replaced != null) {
+            bytes -= replaced.body.length;
+        }
+        bytes += response.body.length;
+        Iterator<CachedResponse> eldest = entries.values().iterator();
+        while (entries.size() > maxEntries || bytes > maxBytes) {
+            bytes -= eldest.next().body.length;
+            eldest.remove();
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private String getKey(String id, long version, BoardView view, MediaType mediaType) {
+        StringBuilder key = new StringBuilder(id).append(':').append(version).append(':').append(mediaType);
+        if (view != null) {
+            key.append(':').append(view.since).append(':').append(view.packed);
+            if (view.hasViewport()) {
+                key.append(':').append(view.row).append(',').append(view.column).append(',').append(view.height).append(',').append(view.width);
+            }
+        }
+        return key.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private CachedResponse write(GameInfo gameInfo, MediaType mediaType) throws IOException {
+        for (HttpMessageConverter<?> converter : converters) {
+            if (converter.canWrite(GameInfo.class, mediaType)) {
+                BufferedOutputMessage message = new BufferedOutputMessage();
+                ((HttpMessageConverter<GameInfo>) converter).write(gameInfo, mediaType, message);
+                return new CachedResponse(gameInfo, message.getHeaders(), message.body.toByteArray());
+            }
+        }
+        throw new IllegalArgumentException("no converter for " + mediaType);
+    }
+
+    private List<MediaType> getSupportedMediaTypes() {
+        List<MediaType> supported = new ArrayList<MediaType>();
+        for (HttpMessageConverter<?> converter : converters) {
+            supported.addAll(converter.getSupportedMediaTypes());
+        }
+        return supported;
+    }
+
+    /**
+     * Serialized response of a game: its headers (content type and the ones
+     * written by the converter) and body, plus the game's version, status and
+     * duration when it was written
+     */
+    public static class CachedResponse {
+
+        private final HttpHeaders headers;
+        private final byte[] body;
+        private final long version;
+        private final String status;
+        private final long duration;
+
+        private CachedResponse(GameInfo gameInfo, HttpHeaders headers, byte[] body) {
+            this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+            this.body = body;
+            this.version = gameInfo.version;
+            this.status = gameInfo.status;
+            this.duration = gameInfo.duration;
+        }
+
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+    }
+
+    /**
+     * Output message kept on memory
+     */
+    private static class BufferedOutputMessage implements HttpOutputMessage {
+
+        private final HttpHeaders headers = new HttpHeaders();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
@@ -1,11 +1,21 @@
 package com.minesweeper.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
+
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.mapping.Field;
 
 import com.minesweeper.service.BoardInfo;
+import com.minesweeper.service.BoardView;
+import com.minesweeper.service.CellChangeInfo;
 
 /**
  * 
@@ -14,6 +24,21 @@ import com.minesweeper.service.BoardInfo;
  */
 public class Board {
 
+    /**
+     * boards with more positions than this one keep their cells on tiles
+     * generated on demand (see ChunkedBoard)
+     **/
+    public static final long MAX_PACKED_POSITIONS = 1 << 25;
+
+    /** maximum number of positions of a region returned on its own **/
+    public static final long MAX_REGION_POSITIONS = 1 << 20;
+
+    private static final int CASCADE_INITIAL_CAPACITY = 64;
+
+    /** positions whose states are kept on each block (4096, 1 KB of states) **/
+    static final int STATE_BLOCK_SHIFT = 12;
+    static final int STATE_BLOCK_CELLS = 1 << STATE_BLOCK_SHIFT;
+
     /** board's dimension parameters **/
     private int rows;
     private int columns;
@@ -21,27 +46,199 @@ public class Board {
     /** number of mines that the board contains **/
     private int mines;
 
+    /** seed that generates the mines layout (see BoardGenerator) **/
+    private long seed;
+
+    /** generator of the mines layout, given by the board's game **/
+    @Transient
+    private BoardGenerator generator = BoardGenerator.DEFAULT;
+
+    /**
+     * indicator that the mines are placed on the first uncover, away from the
+     * uncovered cell and its adjacent cells. Until then the board only holds
+     * its parameters
+     **/
+    private boolean deferred;
+
+    /** cell whose square is kept free of mines, once they are placed **/
+    private int safeCell = BoardGenerator.NO_SAFE_CELL;
+
+    /**
+     * state of each of the board's positions, packed on one byte per cell (see
+     * PackedCell) and stored row by row. A Cell object kept on nested lists
+     * takes around 24 bytes plus 4 bytes for the list reference, that is ~28
+     * bytes per position (and ~60 bytes per position once stored as a
+     * document), while this array takes 1 byte per position. It is not
+     * persisted: it is rebuilt from the seed and the states when first needed
+     **/
+    @Transient
+    private byte[] cells;
+
+    @Transient
+    private Neighborhood neighborhood;
+
+    /**
+     * status of each of the board's positions on 2 bits per cell (see
+     * CellStates), kept in sync with the cells and persisted instead of them.
+     * They are split in blocks of STATE_BLOCK_CELLS positions, null until a
+     * cell of the block changes, so that writing an action only takes the
+     * blocks it changed (see getChangedFields)
+     **/
+    private List<byte[]> stateBlocks;
+
+    /**
+     * states of a board written before they were split in blocks, moved to
+     * the blocks once the board is loaded
+     **/
+    private byte[] states;
+
+    /**
+     * cells of a board written before boards were generated from a seed, as
+     * nested lists of Cell. Its mines layout cannot be generated again, so it
+     * is moved to the mines layout below and to the blocks of states once the
+     * board is loaded
+     **/
+    @Field("cells")
+    private List<List<Cell>> legacyCells;
+
     /**
-     * matrix of cells representing each of the position's state of the board
+     * mines layout of a board moved from its legacy cells, one bit per
+     * position (see BitSet.toByteArray); null for the boards whose mines are
+     * generated from their seed
      **/
-    private List<List<Cell>> cells;
+    private byte[] mineLayout;
 
     /** number of cells already uncovered **/
-    private int cellsUncovered;
+    private long cellsUncovered;
 
     /** indicator that the board can be used (or not) to play **/
     private boolean finished;
 
+    /** version of the board, increased by every action **/
+    private long version;
+
+    /** cells changed by the last versions **/
+    private ChangeLog changes = new ChangeLog();
+
+    /** indicator that the whole board must be written, e.g. it is new **/
+    @Transient
+    private boolean unwritten;
+
+    /** blocks of states changed since the board was last written **/
+    @Transient
+    private BitSet changedBlocks = new BitSet();
+
+    /**
+     * blocks of states read by a board's information taken since they were
+     * last changed: they are copied before changing them, so the information
+     * keeps the states it was taken with (see toBoardInfo)
+     **/
+    @Transient
+    private BitSet sharedBlocks = new BitSet();
+
+    /** indicator that the list of blocks was created since then **/
+    @Transient
+    private boolean blocksCreated;
+
+    /** indicator that the unsplit states were moved to the blocks since then **/
+    @Transient
+    private boolean statesMoved;
+
+    /** indicator that the legacy cells were moved since then **/
+    @Transient
+    private boolean cellsMoved;
+
+    public Board() {
+    }
+
     public Board(int rows, int columns, int mines) {
+        this(rows, columns, mines, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Creates a board with a random seed whose mines are placed on the first
+     * uncover, so creating it takes the same time whatever its size. Boards
+     * whose cells do not fit on a single packed array are created as a
+     * ChunkedBoard, whose first uncover is safe as well
+     * 
+     * @param rows
+     * @param columns
+     * @param mines
+     * @return
+     */
+    public static Board create(int rows, int columns, int mines) {
+        long seed = ThreadLocalRandom.current().nextLong();
+        if ((long) rows * columns > MAX_PACKED_POSITIONS) {
+            return ChunkedBoard.createSafe(rows, columns, mines, seed);
+        }
+        return createDeferred(rows, columns, mines, seed);
+    }
+
+    /**
+     * Creates a board whose mines are generated from the given seed on the
+     * first uncover, away from the uncovered cell and its adjacent cells
+     * 
+     * @param rows
+     * @param columns
+     * @param mines
+     * @param seed
+     * @return
+     */
+    static Board createDeferred(int rows, int columns, int mines, long seed) {
+        Board board = new Board(rows, columns, mines, seed, false);
+        board.validatePackedSize(rows, columns);
+        board.deferred = true;
+        return board;
+    }
+
+    /**
+     * Creates a board whose mines layout is generated from the given seed, the
+     * same seed always produces the same board. The seed is the only source of randomness of a board, and the way to
+     * get a known layout: the board is rebuilt from it when loaded, so it can
+     * not take a Random instead. Tests fix their layouts by picking a seed
+     * 
+     * @param rows
+     * @param columns
+     * @param mines
+     * @param seed
+     */
+    public Board(int rows, int columns, int mines, long seed) {
+        this(rows, columns, mines, seed, true);
+    }
+
+    /**
+     * Creates a board with the given parameters, generating its packed cells
+     * or leaving the storage of the cells to the subclass
+     * 
+     * @param rows
+     * @param columns
+     * @param mines
+     * @param seed
+     * @param packed
+     */
+    protected Board(int rows, int columns, int mines, long seed, boolean packed) {
         validateParameters(rows, columns, mines);
         this.rows = rows;
         this.columns = columns;
         this.mines = mines;
-        this.cells = new ArrayList<List<Cell>>();
+        this.seed = seed;
         this.cellsUncovered = 0;
         this.finished = false;
-        initializeBoard();
-        scatterMines();
+        this.unwritten = true;
+        if (packed) {
+            validatePackedSize(rows, columns);
+            this.cells = generator.generate(rows, columns, mines, seed);
+            createStateBlocks();
+        }
+    }
+
+    /**
+     * Sets the generator the cells are rebuilt with when first needed
+     * 
+     * @param generator
+     */
+    void setGenerator(BoardGenerator generator) {
+        this.generator = generator;
     }
 
     /**
@@ -56,7 +253,28 @@ public class Board {
     public Board uncover(int row, int column) {
         validateCanDoAction();
         validatePosition(row, column);
-        doUncover(new CellPosition(row, column));
+        version++;
+        doUncover(row, column);
+        return this;
+    }
+
+    /**
+     * Chords an uncovered cell: when as many of its adjacent cells are flagged
+     * as adjacent mines it has, all the other covered adjacent cells are
+     * uncovered at once, as a single action. The cascades started on them
+     * share one traversal. If one of them contains a mine, then the board is
+     * finished
+     * 
+     * @param row
+     * @param column
+     * @return
+     */
+    public Board chord(int row, int column) {
+        validateCanDoAction();
+        validatePosition(row, column);
+        validateChord(row, column);
+        version++;
+        doChord(row, column);
         return this;
     }
 
@@ -121,117 +339,325 @@ public class Board {
         validatePosition(row, column);
         Cell cell = getCell(row, column);
         action.accept(cell);
+        // only actions allowed by the cell change the version
+        version++;
+        setPackedCell(row, column, cell.pack());
     }
 
     /**
      * Uncovers a given cell and, if it has not adjacent mines, propagates the
      * action to its adjacent cells
      * 
-     * @param cellPosition
+     * @param row
+     * @param column
      */
-    private void doUncover(CellPosition cellPosition) {
-        Cell cell = getCell(cellPosition);
-        if (cell.hasMine()) {
+    protected void doUncover(int row, int column) {
+        int index = getIndex(row, column);
+        if (deferred) {
+            placeMines(index);
+        }
+        restoreCells();
+        byte cell = cells[index];
+        if (PackedCell.hasMine(cell)) {
+            recordAllChanged();
             uncoverAllMines();
             finished = true;
         } else {
-            if (cell.isCovered()) {
-                cell.uncover();
-                cellsUncovered++;
-                if (!cell.hasAdjacentMines()) {
-                    // if the cell has not adjacent mines, then propagate the
-                    // uncover to its adjacent cells
-                    getAdjacents(cellPosition).forEach(position -> doUncover(position));
-                }
+            if (PackedCell.isCovered(cell)) {
+                uncoverInCascade(new int[] { index }, 1);
             }
             // the board is finished when all cells without mine are uncovered
             finished = areAllCellsWithoutMineUncovered();
         }
     }
 
-    private void uncoverAllMines() {
-        cells.stream().flatMap(row -> row.stream()).filter(cell -> true).forEach(cell -> cell.uncover());
+    /**
+     * Uncovers the covered adjacent cells of a chorded cell which are not
+     * flagged. If any of them contains a mine the board is lost, otherwise the
+     * cascades of all of them are propagated on the same stack
+     * 
+     * @param row
+     * @param column
+     */
+    protected void doChord(int row, int column) {
+        restoreCells();
+        int[] adjacents = new int[Neighborhood.MAX_ADJACENTS];
+        int count = getNeighborhood().getAdjacents(getIndex(row, column), adjacents);
+        int starts = 0;
+        for (int i = 0; i < count; i++) {
+            byte cell = cells[adjacents[i]];
+            if (PackedCell.isCovered(cell) && !PackedCell.isFlagged(cell)) {
+                if (PackedCell.hasMine(cell)) {
+                    recordAllChanged();
+                    uncoverAllMines();
+                    finished = true;
+                    return;
+                }
+                adjacents[starts++] = adjacents[i];
+            }
+        }
+        uncoverInCascade(adjacents, starts);
+        finished = areAllCellsWithoutMineUncovered();
     }
 
     /**
-     * Initializes the board cells
+     * Uncovers cells without mine and, while the uncovered cells have no
+     * adjacent mines, their adjacent cells. The cells pending to propagate are
+     * kept on an explicit stack, so the call stack depth does not depend on the
+     * size of the cascade. Cells are uncovered before being pushed, so each
+     * one is pushed at most once, even when several cascades meet
+     * 
+     * @param starts
+     * @param length
+     *            number of starts
      */
-    private void initializeBoard() {
-        for (int i = 0; i < rows; i++) {
-            List<Cell> row = new ArrayList<Cell>();
-            for (int j = 0; j < columns; j++) {
-                row.add(new Cell());
+    private void uncoverInCascade(int[] starts, int length) {
+        int[] pending = new int[CASCADE_INITIAL_CAPACITY];
+        int[] adjacents = new int[Neighborhood.MAX_ADJACENTS];
+        int size = 0;
+        for (int i = 0; i < length; i++) {
+            int start = starts[i];
+            if (!PackedCell.isCovered(cells[start])) {
+                continue;
+            }
+            if (uncoverCell(start)) {
+                pending[size++] = start;
+            }
+        }
+        while (size > 0) {
+            int index = pending[--size];
+            int count = getNeighborhood().getAdjacents(index, adjacents);
+            for (int i = 0; i < count; i++) {
+                int adjacent = adjacents[i];
+                // adjacents of a cell without adjacent mines have no mine
+                if (PackedCell.isCovered(cells[adjacent]) && uncoverCell(adjacent)) {
+                    if (size == pending.length) {
+                        pending = Arrays.copyOf(pending, size * 2);
+                    }
+                    pending[size++] = adjacent;
+                }
             }
-            cells.add(row);
         }
     }
 
     /**
-     * Scatters the mines across the board
+     * Uncovers a covered cell without mine
+     * 
+     * @param index
+     * @return whether the uncover must be propagated to the adjacent cells
      */
-    private void scatterMines() {
-        int minesScattered = 0;
-        while (minesScattered < mines) {
-            CellPosition position = getRandomCellPosition();
-            Cell cell = getCell(position);
-            if (!cell.hasMine()) {
-                getCell(position).addMine();
-                incrementMineCounterOnAdjacentCells(position);
-                minesScattered++;
-            }
+    private boolean uncoverCell(int index) {
+        setCell(index, PackedCell.uncover(cells[index]));
+        cellsUncovered++;
+        return PackedCell.getAdjacentMinesCounter(cells[index]) == 0;
+    }
+
+    private void uncoverAllMines() {
+        for (int index = 0; index < cells.length; index++) {
+            setCell(index, PackedCell.uncover(cells[index]));
         }
     }
 
-    protected Cell getCell(CellPosition position) {
-        return getCell(position.x, position.y);
+    /**
+     * Updates a cell keeping its status on the persisted states
+     * 
+     * @param index
+     * @param cell
+     */
+    private void setCell(int index, byte cell) {
+        cells[index] = cell;
+        int block = index >>> STATE_BLOCK_SHIFT;
+        CellStates.set(getStateBlock(block), index & (STATE_BLOCK_CELLS - 1), cell);
+        changedBlocks.set(block);
+        recordChange(index);
     }
 
-    protected Cell getCell(int x, int y) {
-        return cells.get(x).get(y);
+    private byte[] getStateBlock(int block) {
+        byte[] blockStates = stateBlocks.get(block);
+        if (blockStates == null) {
+            blockStates = CellStates.create(Math.min(STATE_BLOCK_CELLS, rows * columns - (block << STATE_BLOCK_SHIFT)));
+            stateBlocks.set(block, blockStates);
+            sharedBlocks.clear(block);
+        } else if (sharedBlocks.get(block)) {
+            blockStates = blockStates.clone();
+            stateBlocks.set(block, blockStates);
+            sharedBlocks.clear(block);
+        }
+        return blockStates;
     }
 
-    private CellPosition getRandomCellPosition() {
-        return new CellPosition(getRandom(this.rows), getRandom(this.columns));
+    private void createStateBlocks() {
+        int blocks = (rows * columns + STATE_BLOCK_CELLS - 1) >>> STATE_BLOCK_SHIFT;
+        stateBlocks = new ArrayList<byte[]>(Collections.nCopies(blocks, (byte[]) null));
+        blocksCreated = true;
     }
 
-    protected int getRandom(int value) {
-        return (int) (Math.random() * value);
+    /**
+     * Splits the states of a board written before they were kept on blocks,
+     * the blocks are written in their place
+     */
+    private void moveUnsplitStates() {
+        if (states != null) {
+            createStateBlocks();
+            for (int block = 0; block < stateBlocks.size(); block++) {
+                int from = block * STATE_BLOCK_CELLS / 4;
+                stateBlocks.set(block, Arrays.copyOfRange(states, from, Math.min(from + STATE_BLOCK_CELLS / 4, states.length)));
+            }
+            states = null;
+            statesMoved = true;
+        }
     }
 
     /**
-     * Increments the mines counter on the adjacent cells of the given position
-     * 
-     * @param cellPosition
+     * Moves the cells of a board written before boards were generated from a
+     * seed to its mines layout and its blocks of states, which are written in
+     * their place
      */
-    private void incrementMineCounterOnAdjacentCells(CellPosition cellPosition) {
-        getAdjacents(cellPosition).stream().map(position -> getCell(position)).filter(cell -> !cell.hasMine())
-                .forEach(cell -> cell.incrementAdjacentMinesCounter());
+    private void moveLegacyCells() {
+        if (legacyCells != null) {
+            BitSet layout = new BitSet(rows * columns);
+            createStateBlocks();
+            for (int row = 0; row < rows; row++) {
+                List<Cell> legacyRow = legacyCells.get(row);
+                for (int column = 0; column < columns; column++) {
+                    int index = getIndex(row, column);
+                    byte cell = legacyRow.get(column).pack();
+                    if (PackedCell.hasMine(cell)) {
+                        layout.set(index);
+                    }
+                    if (PackedCell.getStatus(cell) != Cell.Status.Covered) {
+                        CellStates.set(getStateBlock(index >>> STATE_BLOCK_SHIFT), index & (STATE_BLOCK_CELLS - 1), cell);
+                    }
+                }
+            }
+            mineLayout = layout.toByteArray();
+            legacyCells = null;
+            cellsMoved = true;
+        }
     }
 
     /**
-     * Returns the positions corresponding to the adjacent cells (the square) of
-     * a given cell position
+     * Returns the packed cells of a board moved from its legacy cells, all
+     * covered, with the mines of its layout and their adjacent mines counters
      * 
-     * @param cellPosition
      * @return
      */
-    protected List<CellPosition> getAdjacents(CellPosition cellPosition) {
-        List<CellPosition> adjacents = new ArrayList<CellPosition>();
-        int cellRow = cellPosition.x;
-        int cellColumn = cellPosition.y;
-        for (int row = cellRow - 1; row <= cellRow + 1; row++) {
-            if (isValidRow(row)) {
-                for (int column = cellColumn - 1; column <= cellColumn + 1; column++) {
-                    if (isValidColumn(column)) {
-                        CellPosition adjacent = new CellPosition(row, column);
-                        if (!adjacent.equals(cellPosition)) {
-                            adjacents.add(adjacent);
+    private byte[] restoreMineLayout() {
+        byte[] restored = new byte[rows * columns];
+        MineBitboard bitboard = new MineBitboard(rows, columns);
+        BitSet layout = BitSet.valueOf(mineLayout);
+        for (int index = layout.nextSetBit(0); index >= 0; index = layout.nextSetBit(index + 1)) {
+            restored[index] = PackedCell.addMine(restored[index]);
+            bitboard.addMine(index / columns, index % columns);
+        }
+        bitboard.countAdjacentMines(restored, 0, rows);
+        return restored;
+    }
+
+    /**
+     * Places the mines away from the square of the first uncovered cell,
+     * keeping the marks set until then
+     * 
+     * @param index
+     */
+    private void placeMines(int index) {
+        deferred = false;
+        safeCell = index;
+        cells = null;
+    }
+
+    /**
+     * Rebuilds the cells from the seed, or from the mines layout of a board
+     * written before boards were generated from a seed, and the persisted
+     * states, if they were not built yet (i.e. the board was just loaded).
+     * While the mines are not placed the cells are all empty and the states
+     * are only created once a cell is marked (see setPackedCell)
+     */
+    private void restoreCells() {
+        if (cells == null) {
+            int positions = rows * columns;
+            moveLegacyCells();
+            byte[] restored;
+            if (deferred) {
+                restored = new byte[positions];
+            } else if (mineLayout != null) {
+                restored = restoreMineLayout();
+            } else {
+                restored = generator.generate(rows, columns, mines, seed, safeCell);
+            }
+            moveUnsplitStates();
+            if (stateBlocks == null) {
+                if (!deferred) {
+                    createStateBlocks();
+                }
+            } else {
+                for (int block = 0; block < stateBlocks.size(); block++) {
+                    byte[] blockStates = stateBlocks.get(block);
+                    if (blockStates != null) {
+                        int first = block << STATE_BLOCK_SHIFT;
+                        int last = Math.min(first + STATE_BLOCK_CELLS, positions);
+                        for (int index = first; index < last; index++) {
+                            restored[index] |= CellStates.get(blockStates, index - first);
                         }
                     }
                 }
             }
+            cells = restored;
+        }
+    }
+
+    protected Cell getCell(CellPosition position) {
+        return getCell(position.x, position.y);
+    }
+
+    /**
+     * Returns a copy of the cell on the given position, changes on it are not
+     * reflected on the board
+     * 
+     * @param x
+     * @param y
+     * @return
+     */
+    protected Cell getCell(int x, int y) {
+        return new Cell(getPackedCell(x, y));
+    }
+
+    /**
+     * Returns the packed state of the cell on the given position
+     * 
+     * @param row
+     * @param column
+     * @return
+     */
+    protected byte getPackedCell(int row, int column) {
+        restoreCells();
+        return cells[getIndex(row, column)];
+    }
+
+    /**
+     * Updates the packed state of the cell on the given position
+     * 
+     * @param row
+     * @param column
+     * @param cell
+     */
+    protected void setPackedCell(int row, int column, byte cell) {
+        restoreCells();
+        if (stateBlocks == null) {
+            createStateBlocks();
         }
-        return adjacents;
+        setCell(getIndex(row, column), cell);
+    }
+
+    private int getIndex(int row, int column) {
+        return row * columns + column;
+    }
+
+    private Neighborhood getNeighborhood() {
+        if (neighborhood == null) {
+            neighborhood = new Neighborhood(rows, columns);
+        }
+        return neighborhood;
     }
 
     /**
@@ -248,11 +674,17 @@ public class Board {
         if (columns <= 0) {
             throw new BoardException("invalid columns number: " + rows);
         }
-        if (mines <= 0 || mines >= rows * columns) {
+        if (mines <= 0 || mines >= (long) rows * columns) {
             throw new BoardException("invalid mines number: " + mines);
         }
     }
 
+    private void validatePackedSize(int rows, int columns) {
+        if ((long) rows * columns > Integer.MAX_VALUE) {
+            throw new BoardException("invalid board size: " + rows + "x" + columns);
+        }
+    }
+
     private boolean isValidRow(int row) {
         return CellPosition.isInRange(this.rows, row);
     }
@@ -261,7 +693,7 @@ public class Board {
         return CellPosition.isInRange(this.columns, column);
     }
 
-    private void validatePosition(int row, int column) {
+    protected void validatePosition(int row, int column) {
         if (!isValidRow(row)) {
             throw new CellPositionException("invalid row: " + row);
         }
@@ -270,6 +702,32 @@ public class Board {
         }
     }
 
+    /**
+     * Validates that a cell can be chorded: it is uncovered and the number of
+     * its adjacent cells flagged is its number of adjacent mines
+     * 
+     * @param row
+     * @param column
+     */
+    private void validateChord(int row, int column) {
+        byte cell = getPackedCell(row, column);
+        if (PackedCell.isCovered(cell)) {
+            throw new CellException("chord not allowed, the cell is covered");
+        }
+        int flags = 0;
+        for (int adjacentRow = Math.max(row - 1, 0); adjacentRow <= Math.min(row + 1, rows - 1); adjacentRow++) {
+            for (int adjacentColumn = Math.max(column - 1, 0); adjacentColumn <= Math.min(column + 1, columns - 1); adjacentColumn++) {
+                if (PackedCell.isFlagged(getPackedCell(adjacentRow, adjacentColumn))) {
+                    flags++;
+                }
+            }
+        }
+        int counter = PackedCell.getAdjacentMinesCounter(cell);
+        if (flags != counter) {
+            throw new CellException("chord not allowed, " + flags + " adjacent flags for " + counter + " adjacent mines");
+        }
+    }
+
     private void validateCanDoAction() {
         if (isFinished()) {
             throw new BoardException("action not allowed, the board is finished");
@@ -280,15 +738,296 @@ public class Board {
         return finished;
     }
 
+    protected void setFinished(boolean finished) {
+        this.finished = finished;
+    }
+
+    /**
+     * Records the change of the cell on the given position (row * columns +
+     * column) on the current version
+     * 
+     * @param position
+     */
+    protected void recordChange(long position) {
+        changes.add(version, position);
+    }
+
+    /**
+     * Records that the current version changes too many cells to send them
+     * one by one
+     */
+    protected void recordAllChanged() {
+        changes.clear(version);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the persisted fields of the board changed since it was last
+     * written, keyed by their path on the board's document, or null if the
+     * whole board must be written (it was never written). Besides the
+     * counters, only the blocks of states holding changed cells are returned,
+     * and the log of changes only when it must be written whole (see
+     * getAppendedFields), so writing an action takes as much as the cells it
+     * changed and not as much as the board
+     * 
+     * @return
+     */
+    public Map<String, Object> getChangedFields() {
+        if (unwritten) {
+            return null;
+        }
+        Map<String, Object> fields = new LinkedHashMap<String, Object>();
+        fields.put("version", version);
+        fields.put("cellsUncovered", cellsUncovered);
+        fields.put("finished", finished);
+        fields.put("deferred", deferred);
+        fields.put("safeCell", safeCell);
+        if (changes.isRewritten()) {
+            fields.put("changes", changes);
+        } else {
+            fields.put("changes.size", changes.getSize());
+        }
+        if (statesMoved) {
+            fields.put("states", null);
+        }
+        if (cellsMoved) {
+            fields.put("cells", null);
+            fields.put("mineLayout", mineLayout);
+        }
+        if (blocksCreated) {
+            fields.put("stateBlocks", stateBlocks);
+        } else {
+            for (int block = changedBlocks.nextSetBit(0); block >= 0; block = changedBlocks.nextSetBit(block + 1)) {
+                fields.put("stateBlocks." + block, stateBlocks.get(block));
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Returns the entries appended to the persisted arrays of the board since
+     * it was last written, keyed by the path of their array: the changes
+     * recorded on the log of changes, unless it must be written whole
+     * 
+     * @return
+     */
+    public Map<String, List<Long>> getAppendedFields() {
+        if (unwritten || changes.isRewritten()) {
+            return Collections.emptyMap();
+        }
+        long[] positions = changes.getAppendedPositions();
+        if (positions.length == 0) {
+            return Collections.emptyMap();
+        }
+        Map<String, List<Long>> fields = new LinkedHashMap<String, List<Long>>();
+        fields.put("changes.positions", toList(positions));
+        fields.put("changes.versions", toList(changes.getAppendedVersions()));
+        return fields;
+    }
+
+    private static List<Long> toList(long[] values) {
+        List<Long> list = new ArrayList<Long>(values.length);
+        for (long value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    /**
+     * Marks the board as written, the changes are tracked from now on
+     */
+    public void markWritten() {
+        changes.markWritten();
+        unwritten = false;
+        changedBlocks.clear();
+        blocksCreated = false;
+        statesMoved = false;
+        cellsMoved = false;
+    }
+
+    protected void incrementCellsUncovered() {
+        cellsUncovered++;
+    }
+
+    protected int getRows() {
+        return rows;
+    }
+
+    protected int getColumns() {
+        return columns;
+    }
+
+    protected int getMines() {
+        return mines;
+    }
+
+    protected long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the percentage of the cells without mine already uncovered
+     * 
+     * @return
+     */
+    public int getProgress() {
+        long totalCellsWithoutMine = (long) rows * columns - mines;
+        return (int) (cellsUncovered * 100 / totalCellsWithoutMine);
+    }
+
     public boolean areAllCellsWithoutMineUncovered() {
-        int totalCellsWithoutMine = rows * columns - mines;
+        long totalCellsWithoutMine = (long) rows * columns - mines;
         return (cellsUncovered == totalCellsWithoutMine);
     }
 
+    /**
+     * Returns the information of the board as the client asks for it: the
+     * cells changed after the version it knows, when those changes are known,
+     * or else the whole board, packed or not. When the client shows a region
+     * only its cells are returned
+     * 
+     * @param view
+     *            null for the whole board's cells
+     * @return
+     */
+    public BoardInfo toBoardInfo(BoardView view) {
+        long[] changed = (view != null && view.since != null ? changes.getChangesSince(view.since, version) : null);
+        if (changed != null) {
+            BoardInfo boardInfo = new BoardInfo();
+            boardInfo.changes = new ArrayList<CellChangeInfo>(changed.length);
+            for (long position : changed) {
+                int row = (int) (position / columns);
+                int column = (int) (position % columns);
+                if (!view.hasViewport() || isInRegion(row, column, view.row, view.column, view.height, view.width)) {
+                    boardInfo.changes.add(new CellChangeInfo(row, column, PackedCell.getInfo(getPackedCell(row, column))));
+                }
+            }
+            return boardInfo;
+        }
+        if (view != null && view.hasViewport()) {
+            return toRegionInfo(view.row, view.column, view.height, view.width, view.packed);
+        }
+        return (view != null && view.packed ? toPackedBoardInfo() : toBoardInfo());
+    }
+
+    /**
+     * Returns the information of a region of the board, read straight from its
+     * cells without building the information of the rest of the board. The
+     * region is clipped at the board's edges
+     * 
+     * @param row
+     *            of the region's first cell
+     * @param column
+     *            of the region's first cell
+     * @param height
+     * @param width
+     * @param packed
+     *            indicator that the cells are packed on 4-bit codes
+     * @return
+     */
+    public BoardInfo toRegionInfo(int row, int column, int height, int width, boolean packed) {
+        validatePosition(row, column);
+        validateRegionSize(height, width);
+        int regionHeight = Math.min(height, rows - row);
+        int regionWidth = Math.min(width, columns - column);
+        BoardInfo boardInfo = new BoardInfo();
+        boardInfo.row = row;
+        boardInfo.column = column;
+        boardInfo.rows = rows;
+        boardInfo.columns = columns;
+        boardInfo.height = regionHeight;
+        boardInfo.width = regionWidth;
+        if (packed) {
+            BoardEncoder encoder = new BoardEncoder((long) regionHeight * regionWidth);
+            for (int cellRow = row; cellRow < row + regionHeight; cellRow++) {
+                for (int cellColumn = column; cellColumn < column + regionWidth; cellColumn++) {
+                    encoder.write(getShownCell(cellRow, cellColumn));
+                }
+            }
+            boardInfo.packed = encoder.toByteArray();
+        } else {
+            // copied now: the view is read after the game is released
+            byte[] regionCells = new byte[regionHeight * regionWidth];
+            for (int cellRow = 0; cellRow < regionHeight; cellRow++) {
+                for (int cellColumn = 0; cellColumn < regionWidth; cellColumn++) {
+                    regionCells[cellRow * regionWidth + cellColumn] = getShownCell(row + cellRow, column + cellColumn);
+                }
+            }
+            boardInfo.cells = new CellsView(regionHeight, regionWidth, (cellRow, cellColumn) -> PackedCell.getInfo(regionCells[cellRow * regionWidth + cellColumn]));
+        }
+        return boardInfo;
+    }
+
+    /**
+     * Returns the packed state of a cell to show it to the player. It is the
+     * cell itself unless the board knows the cell is covered without reading
+     * it (see ChunkedBoard)
+     * 
+     * @param row
+     * @param column
+     * @return
+     */
+    protected byte getShownCell(int row, int column) {
+        return getPackedCell(row, column);
+    }
+
+    private void validateRegionSize(int height, int width) {
+        if (height <= 0 || width <= 0 || (long) height * width > MAX_REGION_POSITIONS) {
+            throw new BoardException("invalid region size: " + height + "x" + width);
+        }
+    }
+
+    private static boolean isInRegion(int row, int column, int regionRow, int regionColumn, int height, int width) {
+        return row >= regionRow && row - regionRow < height && column >= regionColumn && column - regionColumn < width;
+    }
+
+    /**
+     * Returns the information of the board with its cells packed on 4-bit
+     * codes (see BoardEncoder), built straight from the packed cells
+     * 
+     * @return
+     */
+    protected BoardInfo toPackedBoardInfo() {
+        restoreCells();
+        BoardEncoder encoder = new BoardEncoder(cells.length);
+        for (byte cell : cells) {
+            encoder.write(cell);
+        }
+        BoardInfo boardInfo = new BoardInfo();
+        boardInfo.rows = rows;
+        boardInfo.columns = columns;
+        boardInfo.packed = encoder.toByteArray();
+        return boardInfo;
+    }
+
+    /**
+     * Returns the information of the board, whose cells are a view computed
+     * when read: nothing is built per cell and the cells are not copied. The
+     * view takes the mines and counters from the packed cells, which actions
+     * never change, and the status from the blocks of states, which are
+     * copied on their next change instead (see sharedBlocks). So the view is
+     * not changed by the actions applied afterwards and can be written once
+     * the game is released, while taking it only costs a reference per block
+     * 
+     * @return
+     */
     public BoardInfo toBoardInfo() {
+        restoreCells();
         BoardInfo boardInfo = new BoardInfo();
-        boardInfo.cells = cells.stream().map(row -> row.stream().map(cell -> cell.getInfo()).collect(Collectors.toList()))
-                .collect(Collectors.toList());
+        byte[] boardCells = cells;
+        byte[][] blocks = (stateBlocks != null ? stateBlocks.toArray(new byte[stateBlocks.size()][]) : null);
+        if (blocks != null) {
+            sharedBlocks.set(0, blocks.length);
+        }
+        boardInfo.cells = new CellsView(rows, columns, (row, column) -> {
+            int index = row * columns + column;
+            byte[] blockStates = (blocks != null ? blocks[index >>> STATE_BLOCK_SHIFT] : null);
+            int status = (blockStates != null ? CellStates.get(blockStates, index & (STATE_BLOCK_CELLS - 1)) : PackedCell.COVERED);
+            return PackedCell.getInfo((byte) ((boardCells[index] & ~PackedCell.STATUS_MASK) | status));
+        });
         return boardInfo;
     }
 }
@@ -0,0 +1,85 @@
+package com.minesweeper.model;
+
+import java.util.Arrays;
+
+/**
+ *
+ * Writes the cells of a board, row by row, as 4-bit codes (see
+ * PackedCell.getCode), two cells per byte with the first one on the high
+ * nibble. Runs of RUN_THRESHOLD or more covered cells are written as the
+ * RUN code followed by the length of the run, in nibbles of 3 bits (lowest
+ * first) whose high bit tells that another nibble follows. A trailing nibble
+ * to fill the last byte is zero; readers stop once they have all the cells.
+ *
+ */
+final class BoardEncoder {
+
+    static final int RUN = 15;
+    static final int RUN_THRESHOLD = 4;
+
+    private byte[] bytes;
+    private long nibbles;
+    private long coveredRun;
+
+    /**
+     * @param cells
+     *            expected number of cells, to size the buffer
+     */
+    BoardEncoder(long cells) {
+        this.bytes = new byte[(int) Math.min(Math.max(cells / 8, 16), Integer.MAX_VALUE - 8)];
+    }
+
+    void write(byte packedCell) {
+        int code = PackedCell.getCode(packedCell);
+        if (code == PackedCell.COVERED_CODE) {
+            coveredRun++;
+        } else {
+            flushRun();
+            writeNibble(code);
+        }
+    }
+
+    /**
+     * Writes a run of covered cells, e.g. the cells of a tile nobody touched
+     *
+     * @param count
+     */
+    void writeCovered(long count) {
+        coveredRun += count;
+    }
+
+    byte[] toByteArray() {
+        flushRun();
+        return Arrays.copyOf(bytes, (int) ((nibbles + 1) / 2));
+    }
+
+    private void flushRun() {
+        if (coveredRun < RUN_THRESHOLD) {
+            for (long i = 0; i < coveredRun; i++) {
+                writeNibble(PackedCell.COVERED_CODE);
+            }
+        } else {
+            writeNibble(RUN);
+            long length = coveredRun;
+            while (length >= 8) {
+                writeNibble((int) (length & 7) | 8);
+                length >>>= 3;
+            }
+            writeNibble((int) length);
+        }
+        coveredRun = 0;
+    }
+
+    private void writeNibble(int nibble) {
+        int index = (int) (nibbles >>> 1);
+        if (index == bytes.length) {
+            bytes = Arrays.copyOf(bytes, index * 2);
+        }
+        if ((nibbles & 1) == 0) {
+            bytes[index] = (byte) (nibble << 4);
+        } else {
+            bytes[index] |= nibble;
+        }
+        nibbles++;
+    }
+}
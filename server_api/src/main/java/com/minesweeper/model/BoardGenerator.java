@@ -0,0 +1,231 @@
+package com.minesweeper.model;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ *
+ * Generates the cells of a board. The generation is deterministic: the same
+ * dimensions, mines and seed always produce the same mines layout, so a
+ * board can be rebuilt from them instead of being stored.
+ *
+ * The board is split on bands of rows, each band gets its number of mines
+ * and its own random stream (split from the seed's stream in band order), so
+ * bands can be generated in any order. Boards larger than the parallel
+ * threshold generate their bands, and then compute their adjacent mines
+ * counters, on the fork/join common pool; the result is the same as the
+ * serial generation. Counters are computed 64 cells at a time on the mines'
+ * bitboard (see MineBitboard).
+ *
+ */
+public final class BoardGenerator {
+
+    static final int BAND_ROWS = 64;
+
+    static final int NO_SAFE_CELL = -1;
+
+    public static final long DEFAULT_PARALLEL_THRESHOLD = 1 << 20;
+
+    /** generator of the boards not given one, e.g. created outside Spring **/
+    public static final BoardGenerator DEFAULT = new BoardGenerator(DEFAULT_PARALLEL_THRESHOLD);
+
+    /** boards with more positions than this one are generated in parallel **/
+    private final long parallelThreshold;
+
+    public BoardGenerator(long parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Returns the packed cells (see PackedCell) of a board with its mines
+     * placed and the adjacent mines counters computed. All cells are covered
+     *
+     * @param rows
+     * @param columns
+     * @param mines
+     * @param seed
+     * @return
+     */
+    byte[] generate(int rows, int columns, int mines, long seed) {
+        return generate(rows, columns, mines, seed, NO_SAFE_CELL);
+    }
+
+    /**
+     * Returns the packed cells of a board whose mines are placed away from
+     * the given cell and its adjacent cells, or only away from the given cell
+     * when there are not positions enough for the mines otherwise. Boards
+     * larger than the parallel threshold are generated in parallel
+     *
+     * @param rows
+     * @param columns
+     * @param mines
+     * @param seed
+     * @param safeCell
+     *            index of the cell, NO_SAFE_CELL to place mines anywhere
+     * @return
+     */
+    byte[] generate(int rows, int columns, int mines, long seed, int safeCell) {
+        return generate(rows, columns, mines, seed, safeCell, (long) rows * columns > parallelThreshold);
+    }
+
+    static byte[] generate(int rows, int columns, int mines, long seed, boolean parallel) {
+        return generate(rows, columns, mines, seed, NO_SAFE_CELL, parallel);
+    }
+
+    static byte[] generate(int rows, int columns, int mines, long seed, int safeCell, boolean parallel) {
+        byte[] cells = new byte[rows * columns];
+        int[] excluded = getExcluded(rows, columns, mines, safeCell);
+        int bands = (rows + BAND_ROWS - 1) / BAND_ROWS;
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] bandMines = splitMines(rows, columns, mines, bands, excluded, random);
+        SplittableRandom[] bandRandoms = new SplittableRandom[bands];
+        for (int band = 0; band < bands; band++) {
+            bandRandoms[band] = random.split();
+        }
+        MineBitboard bitboard = new MineBitboard(rows, columns);
+        getBands(bands, parallel).forEach(band -> scatterMines(cells, bitboard, columns, getFirstRow(band), getLastRow(band, rows), excluded, bandMines[band], bandRandoms[band]));
+        getBands(bands, parallel).forEach(band -> bitboard.countAdjacentMines(cells, getFirstRow(band), getLastRow(band, rows)));
+        return cells;
+    }
+
+    /**
+     * Returns the positions kept free of mines, in ascending order
+     *
+     * @param rows
+     * @param columns
+     * @param mines
+     * @param safeCell
+     * @return
+     */
+    private static int[] getExcluded(int rows, int columns, int mines, int safeCell) {
+        if (safeCell == NO_SAFE_CELL) {
+            return new int[0];
+        }
+        int[] square = new int[Neighborhood.MAX_ADJACENTS + 1];
+        int count = new Neighborhood(rows, columns).getAdjacents(safeCell, square);
+        square[count++] = safeCell;
+        if (mines > (long) rows * columns - count) {
+            return new int[] { safeCell };
+        }
+        int[] excluded = Arrays.copyOf(square, count);
+        Arrays.sort(excluded);
+        return excluded;
+    }
+
+    /**
+     * Returns the mines of each band: its proportional share of the positions
+     * available, rounded down, plus one more mine for each of the bands drawn
+     * to place the remaining mines among the ones whose share was rounded. A
+     * band never has more mines than positions available
+     *
+     * @param rows
+     * @param columns
+     * @param mines
+     * @param bands
+     * @param excluded
+     * @param random
+     * @return
+     */
+    private static int[] splitMines(int rows, int columns, int mines, int bands, int[] excluded, SplittableRandom random) {
+        long available = (long) rows * columns - excluded.length;
+        int[] bandMines = new int[bands];
+        int[] candidates = new int[bands];
+        int candidateCount = 0;
+        int remaining = mines;
+        for (int band = 0; band < bands; band++) {
+            long bandAvailable = getAvailable(columns, getFirstRow(band), getLastRow(band, rows), excluded);
+            bandMines[band] = (int) (mines * bandAvailable / available);
+            remaining -= bandMines[band];
+            if (bandMines[band] < bandAvailable) {
+                candidates[candidateCount++] = band;
+            }
+        }
+        // Floyd's sampling of the bands that take one more mine
+        boolean[] drawn = new boolean[candidateCount];
+        for (int candidate = candidateCount - remaining; candidate < candidateCount; candidate++) {
+            int drawnCandidate = random.nextInt(candidate + 1);
+            if (drawn[drawnCandidate]) {
+                drawnCandidate = candidate;
+            }
+            drawn[drawnCandidate] = true;
+            bandMines[candidates[drawnCandidate]]++;
+        }
+        return bandMines;
+    }
+
+    private static int getAvailable(int columns, int firstRow, int lastRow, int[] excluded) {
+        int available = (lastRow - firstRow) * columns;
+        for (int index : excluded) {
+            if (index >= firstRow * columns && index < lastRow * columns) {
+                available--;
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Scatters the mines across a band of rows. Positions are sampled with
+     * Floyd's algorithm: each candidate index draws a position among the ones
+     * up to it, taking the candidate itself when the drawn position already
+     * has a mine. That takes exactly one draw per mine whatever the mine
+     * density, using the board itself as the set of chosen positions. Mines
+     * are set on the bitboard too, each band on the words of its own rows.
+     * Positions are drawn among the available ones, skipping the excluded
+     *
+     * @param cells
+     * @param bitboard
+     * @param columns
+     * @param firstRow
+     * @param lastRow
+     *            exclusive
+     * @param excluded
+     * @param mines
+     * @param random
+     */
+    private static void scatterMines(byte[] cells, MineBitboard bitboard, int columns, int firstRow, int lastRow, int[] excluded, int mines,
+            SplittableRandom random) {
+        int first = firstRow * columns;
+        int positions = getAvailable(columns, firstRow, lastRow, excluded);
+        for (int candidate = positions - mines; candidate < positions; candidate++) {
+            int index = getPosition(first, random.nextInt(candidate + 1), excluded);
+            if (PackedCell.hasMine(cells[index])) {
+                index = getPosition(first, candidate, excluded);
+            }
+            cells[index] = PackedCell.addMine(cells[index]);
+            bitboard.addMine(index / columns, index % columns);
+        }
+    }
+
+    /**
+     * Returns the index of the n-th available position of a band
+     *
+     * @param first
+     *            index of the first position of the band
+     * @param n
+     * @param excluded
+     * @return
+     */
+    private static int getPosition(int first, int n, int[] excluded) {
+        int index = first + n;
+        for (int excludedIndex : excluded) {
+            if (excludedIndex >= first && excludedIndex <= index) {
+                index++;
+            }
+        }
+        return index;
+    }
+
+    private static IntStream getBands(int bands, boolean parallel) {
+        IntStream stream = IntStream.range(0, bands);
+        return (parallel ? stream.parallel() : stream);
+    }
+
+    private static int getFirstRow(int band) {
+        return band * BAND_ROWS;
+    }
+
+    private static int getLastRow(int band, int rows) {
+        return Math.min((band + 1) * BAND_ROWS, rows);
+    }
+}
@@ -42,6 +42,26 @@ public class Cell {
         this.status = Status.Covered;
     }
 
+    /**
+     * Creates a cell from its packed representation
+     * 
+     * @param packed
+     */
+    Cell(byte packed) {
+        this.hasMine = PackedCell.hasMine(packed);
+        this.adjacentMinesCounter = PackedCell.getAdjacentMinesCounter(packed);
+        this.status = PackedCell.getStatus(packed);
+    }
+
+    /**
+     * Returns the packed representation of the cell
+     * 
+     * @return
+     */
+    byte pack() {
+        return PackedCell.pack(hasMine, adjacentMinesCounter, status);
+    }
+
     public boolean hasMine() {
         return hasMine;
     }
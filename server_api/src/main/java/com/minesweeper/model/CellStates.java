@@ -0,0 +1,49 @@
+package com.minesweeper.model;
+
+/**
+ *
+ * Compact bitmap with the status of each cell of a board (covered,
+ * uncovered, flagged or question marked) on 2 bits per cell. It is the only
+ * per cell information a board needs to store, the rest is rebuilt from the
+ * board's seed.
+ *
+ */
+final class CellStates {
+
+    private static final int CELLS_PER_BYTE = 4;
+    private static final int BITS_PER_CELL = 2;
+    private static final int STATUS_MASK = 0x03;
+
+    private CellStates() {
+    }
+
+    static byte[] create(int positions) {
+        return new byte[(positions + CELLS_PER_BYTE - 1) / CELLS_PER_BYTE];
+    }
+
+    /**
+     * Returns the status bits of a cell, placed as on a PackedCell
+     * 
+     * @param states
+     * @param index
+     * @return
+     */
+    static int get(byte[] states, int index) {
+        int shift = (index % CELLS_PER_BYTE) * BITS_PER_CELL;
+        return ((states[index / CELLS_PER_BYTE] >> shift) & STATUS_MASK) << PackedCell.STATUS_SHIFT;
+    }
+
+    /**
+     * Stores the status bits of a packed cell
+     * 
+     * @param states
+     * @param index
+     * @param packed
+     */
+    static void set(byte[] states, int index, byte packed) {
+        int shift = (index % CELLS_PER_BYTE) * BITS_PER_CELL;
+        int status = (packed & PackedCell.STATUS_MASK) >> PackedCell.STATUS_SHIFT;
+        int position = index / CELLS_PER_BYTE;
+        states[position] = (byte) ((states[position] & ~(STATUS_MASK << shift)) | (status << shift));
+    }
+}
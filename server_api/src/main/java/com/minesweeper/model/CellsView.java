@@ -0,0 +1,69 @@
+package com.minesweeper.model;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ *
+ * Read-only rows of cells' information codes of a board, computed from the
+ * board's packed cells each time a code is read. A board's information
+ * returns this view instead of building a list of strings per row, so the
+ * response is written straight from the packed cells (see CellsSerializer)
+ * whatever its size, after the game is released.
+ *
+ */
+final class CellsView extends AbstractList<List<String>> implements RandomAccess {
+
+    /**
+     * Source of the code of the cell on a position of the view
+     */
+    interface InfoSource {
+        String getInfo(int row, int column);
+    }
+
+    private final int rows;
+    private final int columns;
+    private final InfoSource source;
+
+    CellsView(int rows, int columns, InfoSource source) {
+        this.rows = rows;
+        this.columns = columns;
+        this.source = source;
+    }
+
+    @Override
+    public List<String> get(int row) {
+        if (row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("row: " + row);
+        }
+        return new Row(row);
+    }
+
+    @Override
+    public int size() {
+        return rows;
+    }
+
+    private final class Row extends AbstractList<String> implements RandomAccess {
+
+        private final int row;
+
+        private Row(int row) {
+            this.row = row;
+        }
+
+        @Override
+        public String get(int column) {
+            if (column < 0 || column >= columns) {
+                throw new IndexOutOfBoundsException("column: " + column);
+            }
+            return source.getInfo(row, column);
+        }
+
+        @Override
+        public int size() {
+            return columns;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.minesweeper.model;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.springframework.data.annotation.AccessType;
+import org.springframework.data.annotation.AccessType.Type;
+import org.springframework.data.annotation.Transient;
+
+/**
+ *
+ * Bounded log of the positions of the cells changed on each version of a
+ * board, so a client on an older version can be sent only the cells changed
+ * since then. When the log is full the oldest versions are dropped, and the
+ * changes of a version that does not fit on the log are not kept at all:
+ * clients on versions older than the first version kept must take the whole
+ * board.
+ *
+ * Changes recorded after the log was last written are appended to the
+ * persisted log (see getAppendedPositions); the whole log is only written
+ * again once older changes are dropped.
+ *
+ */
+class ChangeLog {
+
+    static final int MAX_CHANGES = 4096;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** oldest version the changes since are known **/
+    private long firstVersion;
+
+    /**
+     * position (row * columns + column) and version of each change, oldest
+     * first. The arrays have room for more changes than the ones recorded,
+     * only the recorded ones are persisted (see getPositions)
+     **/
+    @AccessType(Type.PROPERTY)
+    private long[] positions = new long[INITIAL_CAPACITY];
+    @AccessType(Type.PROPERTY)
+    private long[] versions = new long[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * number of changes already written, -1 until the log is changed after
+     * being created or loaded (all of its changes were written then)
+     **/
+    @Transient
+    private int written = -1;
+
+    /** indicator that the log must be written whole since it was last written **/
+    @Transient
+    private boolean rewritten;
+
+    /**
+     * Records the change of a cell on the given version, the version can not
+     * be older than the last one recorded
+     *
+     * @param version
+     * @param position
+     */
+    void add(long version, long position) {
+        track();
+        if (version <= firstVersion) {
+            return;
+        }
+        if (size == MAX_CHANGES) {
+            dropOldest();
+            if (version <= firstVersion) {
+                return;
+            }
+        }
+        if (size == positions.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, size * 2);
+            positions = Arrays.copyOf(positions, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+        }
+        positions[size] = position;
+        versions[size++] = version;
+    }
+
+    /**
+     * Drops the changes recorded so far, clients on versions older than the
+     * given one must take the whole board
+     *
+     * @param version
+     */
+    void clear(long version) {
+        track();
+        rewritten = true;
+        firstVersion = version;
+        size = 0;
+    }
+
+    /**
+     * Returns the positions of the cells changed after the given version, each
+     * one once, or null if the changes since then are not known
+     *
+     * @param since
+     * @param version
+     *            current version of the board
+     * @return
+     */
+    long[] getChangesSince(long since, long version) {
+        if (since < firstVersion || since > version) {
+            return null;
+        }
+        int first = size;
+        while (first > 0 && versions[first - 1] > since) {
+            first--;
+        }
+        Set<Long> changed = new LinkedHashSet<Long>();
+        for (int i = first; i < size; i++) {
+            changed.add(positions[i]);
+        }
+        return changed.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Returns the positions of the changes recorded, the way they are persisted
+     *
+     * @return
+     */
+    public long[] getPositions() {
+        return Arrays.copyOf(positions, size);
+    }
+
+    public void setPositions(long[] positions) {
+        this.positions = positions;
+    }
+
+    /**
+     * Returns the versions of the changes recorded, the way they are persisted
+     *
+     * @return
+     */
+    public long[] getVersions() {
+        return Arrays.copyOf(versions, size);
+    }
+
+    public void setVersions(long[] versions) {
+        this.versions = versions;
+    }
+
+    /**
+     * Returns whether the log must be written whole, instead of appending the
+     * changes recorded since it was last written
+     *
+     * @return
+     */
+    boolean isRewritten() {
+        track();
+        return rewritten;
+    }
+
+    /**
+     * Returns the positions of the changes recorded since the log was last
+     * written
+     *
+     * @return
+     */
+    long[] getAppendedPositions() {
+        track();
+        return Arrays.copyOfRange(positions, written, size);
+    }
+
+    /**
+     * Returns the versions of the changes recorded since the log was last
+     * written
+     *
+     * @return
+     */
+    long[] getAppendedVersions() {
+        track();
+        return Arrays.copyOfRange(versions, written, size);
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    /**
+     * Marks the log as written, the changes are tracked from now on
+     */
+    void markWritten() {
+        written = size;
+        rewritten = false;
+    }
+
+    /**
+     * Starts tracking the changes of a log created or loaded, all of its
+     * changes written. A log written with more entries than recorded ones,
+     * before only those were persisted, must be written whole
+     */
+    private void track() {
+        if (written < 0) {
+            written = size;
+            rewritten = (positions.length != size);
+        }
+    }
+
+    /**
+     * Drops the oldest half of the changes, not splitting the changes of a
+     * version
+     */
+    private void dropOldest() {
+        rewritten = true;
+        int cut = size / 2;
+        while (cut < size && versions[cut] == versions[cut - 1]) {
+            cut++;
+        }
+        firstVersion = versions[cut - 1];
+        System.arraycopy(positions, cut, positions, 0, size - cut);
+        System.arraycopy(versions, cut, versions, 0, size - cut);
+        size -= cut;
+    }
+}
@@ -0,0 +1,565 @@
+package com.minesweeper.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.data.annotation.Transient;
+
+import com.minesweeper.service.BoardInfo;
+
+/**
+ *
+ * Board whose cells only exist once the player gets near them. The board is
+ * split on square tiles whose mines are generated on demand from the board's
+ * seed (see TileMines), so its size is not limited by the memory. Only the
+ * status of the tiles with changes is persisted.
+ *
+ * As on the boards whose mines are placed on the first uncover, the first
+ * cell uncovered is safe: the tiles around it are built again with their
+ * mines moved away from the cell and its adjacent cells.
+ *
+ */
+public class ChunkedBoard extends Board {
+
+    static final int TILE_SIZE = 64;
+    private static final int TILE_POSITIONS = TILE_SIZE * TILE_SIZE;
+
+    /** size of the window of cells returned as board's information **/
+    static final int VIEW_SIZE = 64;
+
+    /**
+     * maximum number of cells uncovered by a single action's cascade, the rest
+     * of the cascade is left pending for the next action
+     **/
+    static final int MAX_CASCADE_CELLS = 1 << 16;
+
+    private static final int CASCADE_INITIAL_CAPACITY = 64;
+
+    private static final long NO_SAFE_POSITION = -1;
+
+    /**
+     * status of the cells (see CellStates) of the tiles having changes, keyed
+     * by tile number. Tiles nobody has touched are not stored
+     **/
+    private Map<String, byte[]> tileStates = new HashMap<String, byte[]>();
+
+    /** position of the last action, the board's information is shown around it **/
+    private int lastRow;
+    private int lastColumn;
+
+    /**
+     * positions (see toPosition) of the cells uncovered by the last cascade
+     * whose adjacent cells are not uncovered yet, as the cascade reached
+     * MAX_CASCADE_CELLS; null when no cascade is pending. The next uncover or
+     * chord resumes it before its own action, so a region is eventually
+     * uncovered whole. Cascades go breadth first, so the cells left pending
+     * are the farthest ones from the cell uncovered, out of its window. The
+     * cells marked by the player meanwhile are left covered when it resumes
+     **/
+    private long[] pendingCascade;
+
+    /**
+     * indicator that the first uncover is still to come and must be safe, and
+     * position (see toPosition) of the cell uncovered then, whose square is
+     * kept free of mines; NO_SAFE_POSITION until then
+     **/
+    private boolean safeFirstUncover;
+    private long safePosition = NO_SAFE_POSITION;
+
+    /** packed cells (see PackedCell) of the tiles already built **/
+    @Transient
+    private Map<Long, byte[]> tiles;
+
+    @Transient
+    private TileMines tileMines;
+
+    /** tiles whose states changed since the board was last written **/
+    @Transient
+    private Set<Long> changedTiles = new HashSet<Long>();
+
+    /** last tile used, cascades mostly stay on the same tile **/
+    @Transient
+    private long cachedTile = -1;
+    @Transient
+    private byte[] cachedCells;
+    @Transient
+    private byte[] cachedStates;
+
+    public ChunkedBoard() {
+    }
+
+    public ChunkedBoard(int rows, int columns, int mines, long seed) {
+        super(rows, columns, mines, seed, false);
+    }
+
+    /**
+     * Creates a chunked board whose first uncovered cell and its adjacent
+     * cells are kept free of mines
+     *
+     * @param rows
+     * @param columns
+     * @param mines
+     * @param seed
+     * @return
+     */
+    static ChunkedBoard createSafe(int rows, int columns, int mines, long seed) {
+        ChunkedBoard board = new ChunkedBoard(rows, columns, mines, seed);
+        board.safeFirstUncover = true;
+        return board;
+    }
+
+    /**
+     * Uncovers a given cell and, if it has not adjacent mines, propagates the
+     * action to its adjacent cells, building the tiles reached by the cascade
+     *
+     * @param row
+     * @param column
+     */
+    @Override
+    protected void doUncover(int row, int column) {
+        if (safeFirstUncover) {
+            keepSafe(row, column);
+        }
+        resumeCascade();
+        setLastPosition(row, column);
+        byte cell = getPackedCell(row, column);
+        if (PackedCell.hasMine(cell)) {
+            recordAllChanged();
+            uncoverBuiltTiles();
+            setFinished(true);
+            pendingCascade = null;
+        } else {
+            if (PackedCell.isCovered(cell)) {
+                uncoverInCascade(row, column);
+            }
+            setFinished(areAllCellsWithoutMineUncovered());
+        }
+        setLastPosition(row, column);
+    }
+
+    /**
+     * Uncovers the covered adjacent cells of a chorded cell which are not
+     * flagged, propagating their cascades on the same queue
+     *
+     * @param row
+     * @param column
+     */
+    @Override
+    protected void doChord(int row, int column) {
+        resumeCascade();
+        setLastPosition(row, column);
+        long[] pending = new long[CASCADE_INITIAL_CAPACITY];
+        int size = 0;
+        for (int adjacentRow = Math.max(row - 1, 0); adjacentRow <= Math.min(row + 1, getRows() - 1); adjacentRow++) {
+            for (int adjacentColumn = Math.max(column - 1, 0); adjacentColumn <= Math.min(column + 1, getColumns() - 1); adjacentColumn++) {
+                byte cell = getPackedCell(adjacentRow, adjacentColumn);
+                if (PackedCell.isCovered(cell) && !PackedCell.isFlagged(cell)) {
+                    if (PackedCell.hasMine(cell)) {
+                        recordAllChanged();
+                        uncoverBuiltTiles();
+                        setFinished(true);
+                        pendingCascade = null;
+                        setLastPosition(row, column);
+                        return;
+                    }
+                    pending[size++] = toPosition(adjacentRow, adjacentColumn);
+                }
+            }
+        }
+        // the starts are uncovered before propagating, keeping the ones to propagate
+        int starts = size;
+        size = 0;
+        for (int i = 0; i < starts; i++) {
+            long position = pending[i];
+            if (uncoverCell((int) (position >>> 32), (int) position)) {
+                pending[size++] = position;
+            }
+        }
+        propagate(pending, size, starts, false);
+        setFinished(areAllCellsWithoutMineUncovered());
+        setLastPosition(row, column);
+    }
+
+    /**
+     * Keeps the square of the first uncovered cell free of mines: the tiles
+     * built so far are dropped, so they are built again with the new layout
+     * and the marks set until then
+     *
+     * @param row
+     * @param column
+     */
+    private void keepSafe(int row, int column) {
+        safeFirstUncover = false;
+        safePosition = toPosition(row, column);
+        tileMines = null;
+        tiles = null;
+        cachedTile = -1;
+        cachedCells = null;
+        cachedStates = null;
+    }
+
+    /**
+     * Uncovers cells in cascade as the Board does, keeping the positions
+     * pending to propagate on an explicit queue (see toPosition)
+     *
+     * @param startRow
+     * @param startColumn
+     */
+    private void uncoverInCascade(int startRow, int startColumn) {
+        long[] pending = new long[CASCADE_INITIAL_CAPACITY];
+        int size = 0;
+        if (uncoverCell(startRow, startColumn)) {
+            pending[size++] = toPosition(startRow, startColumn);
+        }
+        propagate(pending, size, 1, false);
+    }
+
+    /**
+     * Resumes the cascade left pending by the last action, if any, skipping
+     * the cells flagged or question marked since then
+     */
+    private void resumeCascade() {
+        if (pendingCascade != null) {
+            long[] pending = pendingCascade;
+            pendingCascade = null;
+            propagate(pending, pending.length, 0, true);
+        }
+    }
+
+    /**
+     * Propagates the cascades of the positions pending on the queue, oldest
+     * first, until it is empty or the maximum number of cells is uncovered.
+     * The positions still pending then are kept to resume the cascade
+     *
+     * @param pending
+     * @param size
+     *            of the queue
+     * @param uncovered
+     *            number of cells already uncovered by the cascades
+     * @param skipMarked
+     *            whether the covered cells with a mark are left as they are
+     */
+    private void propagate(long[] pending, int size, int uncovered, boolean skipMarked) {
+        int head = 0;
+        while (head < size && uncovered < MAX_CASCADE_CELLS) {
+            long position = pending[head++];
+            int cellRow = (int) (position >>> 32);
+            int cellColumn = (int) position;
+            for (int row = Math.max(cellRow - 1, 0); row <= Math.min(cellRow + 1, getRows() - 1); row++) {
+                for (int column = Math.max(cellColumn - 1, 0); column <= Math.min(cellColumn + 1, getColumns() - 1); column++) {
+                    byte cell = getPackedCell(row, column);
+                    if (PackedCell.isCovered(cell) && !(skipMarked && PackedCell.getStatus(cell) != Cell.Status.Covered)) {
+                        uncovered++;
+                        if (uncoverCell(row, column)) {
+                            if (size == pending.length) {
+                                // the positions already propagated make room first
+                                System.arraycopy(pending, head, pending, 0, size - head);
+                                size -= head;
+                                head = 0;
+                                if (size == pending.length) {
+                                    pending = Arrays.copyOf(pending, size * 2);
+                                }
+                            }
+                            pending[size++] = toPosition(row, column);
+                        }
+                    }
+                }
+            }
+        }
+        if (head < size) {
+            pendingCascade = Arrays.copyOfRange(pending, head, size);
+        }
+    }
+
+    private boolean uncoverCell(int row, int column) {
+        byte cell = PackedCell.uncover(getPackedCell(row, column));
+        setPackedCell(row, column, cell);
+        incrementCellsUncovered();
+        return PackedCell.getAdjacentMinesCounter(cell) == 0;
+    }
+
+    /**
+     * Uncovers all cells of the tiles built or touched, since the whole board
+     * cannot be uncovered when the game is lost. The cells of the other tiles
+     * are shown uncovered as their tiles are built (see getShownCell)
+     */
+    private void uncoverBuiltTiles() {
+        for (String tile : new ArrayList<String>(tileStates.keySet())) {
+            getTile(Long.parseLong(tile));
+        }
+        for (Map.Entry<Long, byte[]> tile : getTiles().entrySet()) {
+            byte[] cells = tile.getValue();
+            byte[] states = getTileStates(tile.getKey());
+            changedTiles.add(tile.getKey());
+            for (int index = 0; index < TILE_POSITIONS; index++) {
+                cells[index] = PackedCell.uncover(cells[index]);
+                CellStates.set(states, index, cells[index]);
+            }
+        }
+    }
+
+    @Override
+    protected byte getPackedCell(int row, int column) {
+        return getTile(getTileNumber(row, column))[getTileIndex(row, column)];
+    }
+
+    @Override
+    protected void setPackedCell(int row, int column, byte cell) {
+        setLastPosition(row, column);
+        long tile = getTileNumber(row, column);
+        int index = getTileIndex(row, column);
+        getTile(tile)[index] = cell;
+        if (cachedStates == null) {
+            cachedStates = getTileStates(tile);
+        }
+        CellStates.set(cachedStates, index, cell);
+        changedTiles.add(tile);
+        recordChange((long) row * getColumns() + column);
+    }
+
+    /**
+     * Returns the persisted fields changed since the board was last written
+     * as the Board does, with the states of the tiles changed instead of the
+     * blocks
+     */
+    @Override
+    public Map<String, Object> getChangedFields() {
+        Map<String, Object> fields = super.getChangedFields();
+        if (fields != null) {
+            fields.put("lastRow", lastRow);
+            fields.put("lastColumn", lastColumn);
+            fields.put("pendingCascade", pendingCascade);
+            fields.put("safeFirstUncover", safeFirstUncover);
+            fields.put("safePosition", safePosition);
+            for (Long tile : changedTiles) {
+                String key = Long.toString(tile);
+                fields.put("tileStates." + key, tileStates.get(key));
+            }
+        }
+        return fields;
+    }
+
+    @Override
+    public void markWritten() {
+        super.markWritten();
+        changedTiles.clear();
+    }
+
+    /**
+     * Returns the information of the cells on a window of the board around
+     * the position of the last action
+     */
+    @Override
+    public BoardInfo toBoardInfo() {
+        return toWindowInfo(false);
+    }
+
+    /**
+     * Returns the information of the cells on the window around the last
+     * action packed on 4-bit codes
+     */
+    @Override
+    protected BoardInfo toPackedBoardInfo() {
+        return toWindowInfo(true);
+    }
+
+    /**
+     * Returns the information of the window around the last action, with its
+     * position and the board's dimensions, flagged as a window
+     * 
+     * @param packed
+     * @return
+     */
+    private BoardInfo toWindowInfo(boolean packed) {
+        int row = Math.max(0, Math.min(lastRow - VIEW_SIZE / 2, getRows() - VIEW_SIZE));
+        int column = Math.max(0, Math.min(lastColumn - VIEW_SIZE / 2, getColumns() - VIEW_SIZE));
+        BoardInfo boardInfo = toRegionInfo(row, column, VIEW_SIZE, VIEW_SIZE, packed);
+        boardInfo.window = true;
+        return boardInfo;
+    }
+
+    /**
+     * Returns the packed state of a cell without building its tile if nobody
+     * has touched it (it is covered). Once the game is lost the cells of those
+     * tiles are shown uncovered, building their tiles, so their mines are
+     * shown as on the rest of the board
+     */
+    @Override
+    protected byte getShownCell(int row, int column) {
+        if (isTouched(row, column)) {
+            return getPackedCell(row, column);
+        }
+        if (isFinished() && !areAllCellsWithoutMineUncovered()) {
+            return PackedCell.uncover(getPackedCell(row, column));
+        }
+        return PackedCell.COVERED;
+    }
+
+    /**
+     * Indicates whether the tile of a cell has changes, the cells of other
+     * tiles are covered
+     *
+     * @param row
+     * @param column
+     * @return
+     */
+    private boolean isTouched(int row, int column) {
+        return tileStates.containsKey(Long.toString(getTileNumber(row, column)));
+    }
+
+    /**
+     * Returns the packed cells of a tile, building it if necessary
+     *
+     * @param tile
+     * @return
+     */
+    private byte[] getTile(long tile) {
+        if (tile != cachedTile) {
+            byte[] cells = getTiles().get(tile);
+            if (cells == null) {
+                cells = buildTile(tile);
+                tiles.put(tile, cells);
+            }
+            cachedTile = tile;
+            cachedCells = cells;
+            cachedStates = tileStates.get(Long.toString(tile));
+        }
+        return cachedCells;
+    }
+
+    /**
+     * Builds the packed cells of a tile: its mines, the adjacent mines
+     * counters (computed a row at a time on the tiles' masks, using the masks
+     * of the surrounding tiles for the cells on the tile's border) and the
+     * persisted status of each cell, if any
+     *
+     * @param tile
+     * @return
+     */
+    private byte[] buildTile(long tile) {
+        int tileColumns = getTileColumns();
+        int tileRow = (int) (tile / tileColumns);
+        int tileColumn = (int) (tile % tileColumns);
+        int tileRows = (getRows() + TILE_SIZE - 1) / TILE_SIZE;
+        // mines of the tile and its surrounding ones, null outside the board
+        long[][] mines = new long[9][];
+        for (int i = -1; i <= 1; i++) {
+            for (int j = -1; j <= 1; j++) {
+                int row = tileRow + i;
+                int column = tileColumn + j;
+                if (row >= 0 && row < tileRows && column >= 0 && column < tileColumns) {
+                    mines[(i + 1) * 3 + (j + 1)] = getTileMines().getMines(row, column);
+                }
+            }
+        }
+        byte[] cells = new byte[TILE_POSITIONS];
+        int height = getTileMines().getTileHeight(tileRow);
+        int width = getTileMines().getTileWidth(tileColumn);
+        long[] planes = new long[MineBitboard.PLANES];
+        for (int row = 0; row < height; row++) {
+            long word = getMask(mines, 4, row);
+            // tiles are as wide as a bitboard word
+            MineBitboard.countAdjacentMines(getMask(mines, 3, row - 1), getMask(mines, 4, row - 1), getMask(mines, 5, row - 1),
+                    getMask(mines, 3, row), word, getMask(mines, 5, row),
+                    getMask(mines, 3, row + 1), getMask(mines, 4, row + 1), getMask(mines, 5, row + 1), planes);
+            MineBitboard.writeCounters(cells, row * TILE_SIZE, width, word, planes);
+            for (long bits = word; bits != 0; bits &= bits - 1) {
+                int index = row * TILE_SIZE + Long.numberOfTrailingZeros(bits);
+                cells[index] = PackedCell.addMine(cells[index]);
+            }
+        }
+        byte[] states = tileStates.get(Long.toString(tile));
+        if (states != null) {
+            for (int index = 0; index < TILE_POSITIONS; index++) {
+                cells[index] |= CellStates.get(states, index);
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Returns the mines mask of a row relative to the center tile, taking it
+     * from the tile above or below when the row is outside the center tile.
+     * The mask is zero outside the board
+     *
+     * @param mines
+     * @param tile
+     *            position on the 3x3 block of tiles of the center row (3, 4
+     *            or 5)
+     * @param row
+     * @return
+     */
+    private long getMask(long[][] mines, int tile, int row) {
+        if (row < 0) {
+            tile -= 3;
+            row += TILE_SIZE;
+        } else if (row >= TILE_SIZE) {
+            tile += 3;
+            row -= TILE_SIZE;
+        }
+        long[] masks = mines[tile];
+        return (masks != null && row < masks.length ? masks[row] : 0);
+    }
+
+    private byte[] getTileStates(long tile) {
+        return tileStates.computeIfAbsent(Long.toString(tile), key -> CellStates.create(TILE_POSITIONS));
+    }
+
+    private Map<Long, byte[]> getTiles() {
+        if (tiles == null) {
+            tiles = new HashMap<Long, byte[]>();
+        }
+        return tiles;
+    }
+
+    private TileMines getTileMines() {
+        if (tileMines == null) {
+            int safeRow = (int) (safePosition >> 32);
+            int safeColumn = (safePosition == NO_SAFE_POSITION ? -1 : (int) safePosition);
+            tileMines = new TileMines(getRows(), getColumns(), getMines(), getSeed(), TILE_SIZE, safeRow, safeColumn);
+        }
+        return tileMines;
+    }
+
+    private int getTileColumns() {
+        return (getColumns() + TILE_SIZE - 1) / TILE_SIZE;
+    }
+
+    private long getTileNumber(int row, int column) {
+        return (long) (row / TILE_SIZE) * getTileColumns() + column / TILE_SIZE;
+    }
+
+    private int getTileIndex(int row, int column) {
+        return (row % TILE_SIZE) * TILE_SIZE + column % TILE_SIZE;
+    }
+
+    private void setLastPosition(int row, int column) {
+        this.lastRow = row;
+        this.lastColumn = column;
+    }
+
+    /**
+     * Returns a position as a long, row on the high 32 bits and column on the
+     * low ones
+     *
+     * @param row
+     * @param column
+     * @return
+     */
+    private static long toPosition(int row, int column) {
+        return ((long) row << 32) | column;
+    }
+
+    /**
+     * Returns the number of tiles having persisted changes
+     *
+     * @return
+     */
+    int countStoredTiles() {
+        return tileStates.size();
+    }
+}
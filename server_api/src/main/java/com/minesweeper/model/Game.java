@@ -3,18 +3,31 @@ package com.minesweeper.model;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.function.Consumer;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
 
+import com.minesweeper.service.BoardView;
 import com.minesweeper.service.GameInfo;
+import com.minesweeper.service.GameSummaryInfo;
 
 /**
  * 
- * This class represents a Minesweeper Game
+ * This class represents a Minesweeper Game. The games of a user are listed by
+ * status, the most recently started first, through the compound index
  *
  */
+@Document(collection = "game")
+@CompoundIndex(name = "username_status_startTime", def = "{ 'username': 1, 'status': 1, 'startTime': -1 }")
 public class Game {
 
     public enum Status {
@@ -39,12 +52,34 @@ public class Game {
     /** the user who creates the game **/
     private String username;
 
+    /**
+     * revision of the game's document, increased by every write. A write
+     * fails if the document was written by someone else since the game was
+     * read (see GameRepositoryCustom)
+     **/
+    @Version
+    private Long revision;
+
+    /**
+     * moves applied since the game was last written, not persisted: they are
+     * appended to the game's move log (see EventSourcedGameRepository)
+     **/
+    @Transient
+    private List<GameMove> moves = new ArrayList<GameMove>();
+
+    /**
+     * indicator that the moves logged are due for a snapshot not written yet,
+     * so it is written by the next save even if no move is applied meanwhile
+     **/
+    @Transient
+    private boolean snapshotPending;
+
     public Game() {
     }
 
     public Game(int rows, int columns, int mines, String username) {
         this.id = UUID.randomUUID();
-        this.board = new Board(rows, columns, mines);
+        this.board = Board.create(rows, columns, mines);
         this.status = Status.Started;
         this.startTime = LocalDateTime.now(getClock());
         this.username = username;
@@ -60,7 +95,24 @@ public class Game {
      * @return
      */
     public Game uncoverCell(int row, int column) {
-        validateAndExecute(row, column, board -> board.uncover(row, column));
+        validateAndExecute(row, column, GameMove.UNCOVER, board -> board.uncover(row, column));
+        if (getBoard().isFinished()) {
+            finishGame();
+        }
+        return this;
+    }
+
+    /**
+     * Chords an uncovered cell given its position: when its adjacent flags
+     * match its adjacent mines, the rest of its covered adjacent cells are
+     * uncovered at once. If one of them contains a mine, then the game is over
+     * 
+     * @param row
+     * @param column
+     * @return
+     */
+    public Game chordCell(int row, int column) {
+        validateAndExecute(row, column, GameMove.CHORD, board -> board.chord(row, column));
         if (getBoard().isFinished()) {
             finishGame();
         }
@@ -78,7 +130,7 @@ public class Game {
      * @return
      */
     public Game setRedFlag(int row, int column) {
-        validateAndExecute(row, column, board -> board.setRedFlag(row, column));
+        validateAndExecute(row, column, GameMove.FLAG, board -> board.setRedFlag(row, column));
         return this;
     }
 
@@ -90,7 +142,7 @@ public class Game {
      * @return
      */
     public Game removeRedFlag(int row, int column) {
-        validateAndExecute(row, column, board -> board.removeRedFlag(row, column));
+        validateAndExecute(row, column, GameMove.UNFLAG, board -> board.removeRedFlag(row, column));
         return this;
     }
 
@@ -102,7 +154,7 @@ public class Game {
      * @return
      */
     public Game setQuestionMark(int row, int column) {
-        validateAndExecute(row, column, board -> board.setQuestionMark(row, column));
+        validateAndExecute(row, column, GameMove.QUESTION, board -> board.setQuestionMark(row, column));
         return this;
     }
 
@@ -114,7 +166,7 @@ public class Game {
      * @return
      */
     public Game removeQuestionMark(int row, int column) {
-        validateAndExecute(row, column, board -> board.removeQuestionMark(row, column));
+        validateAndExecute(row, column, GameMove.UNQUESTION, board -> board.removeQuestionMark(row, column));
         return this;
     }
 
@@ -134,21 +186,151 @@ public class Game {
         return endTime;
     }
 
+    public long getVersion() {
+        return board.getVersion();
+    }
+
     public long getDuration() {
         LocalDateTime end = (endTime != null ? endTime : LocalDateTime.now());
         return Duration.between(startTime, end).getSeconds();
     }
 
     public GameInfo toGameInfo() {
+        return toGameInfo(null);
+    }
+
+    /**
+     * Returns the information of the game with its board as the client asks
+     * for it (see Board.toBoardInfo)
+     * 
+     * @param view
+     * @return
+     */
+    public GameInfo toGameInfo(BoardView view) {
+        GameInfo gameInfo = toStateInfo();
+        gameInfo.board = this.board.toBoardInfo(view);
+        return gameInfo;
+    }
+
+    /**
+     * Returns the information of the game without its board, enough to tell
+     * whether the game changed (see the board's version). Only the board's
+     * version is read, so the game can be loaded without the rest of its board
+     * 
+     * @return
+     */
+    public GameInfo toStateInfo() {
         GameInfo gameInfo = new GameInfo();
         gameInfo.id = this.getId();
         gameInfo.status = this.getStatus().name();
         gameInfo.duration = this.getDuration();
-        gameInfo.board = this.board.toBoardInfo();
+        gameInfo.version = this.getVersion();
         gameInfo.username = this.getUsername();
         return gameInfo;
     }
 
+    /**
+     * Returns the summary of the game: its dimensions and progress besides
+     * its state. Only the board's counters are read, so the game can be loaded
+     * without the board's cells (see GameRepository.SUMMARY_FIELDS)
+     * 
+     * @return
+     */
+    public GameSummaryInfo toSummaryInfo() {
+        GameSummaryInfo summaryInfo = new GameSummaryInfo();
+        summaryInfo.id = this.getId();
+        summaryInfo.status = this.getStatus().name();
+        summaryInfo.duration = this.getDuration();
+        summaryInfo.rows = this.board.getRows();
+        summaryInfo.columns = this.board.getColumns();
+        summaryInfo.mines = this.board.getMines();
+        summaryInfo.progress = this.board.getProgress();
+        return summaryInfo;
+    }
+
+    /**
+     * Returns the persisted fields changed since the game was last written,
+     * keyed by their path on the game's document, or null if the whole game
+     * must be written (see Board.getChangedFields)
+     * 
+     * @return
+     */
+    public Map<String, Object> getChangedFields() {
+        Map<String, Object> boardFields = this.board.getChangedFields();
+        if (boardFields == null) {
+            return null;
+        }
+        Map<String, Object> fields = new LinkedHashMap<String, Object>();
+        fields.put("status", this.status);
+        fields.put("endTime", this.endTime);
+        boardFields.forEach((path, value) -> fields.put("board." + path, value));
+        return fields;
+    }
+
+    /**
+     * Returns the entries appended to the persisted arrays of the game since
+     * it was last written, keyed by the path of their array (see
+     * Board.getAppendedFields)
+     * 
+     * @return
+     */
+    public Map<String, List<Long>> getAppendedFields() {
+        Map<String, List<Long>> fields = new LinkedHashMap<String, List<Long>>();
+        this.board.getAppendedFields().forEach((path, values) -> fields.put("board." + path, values));
+        return fields;
+    }
+
+    /**
+     * Marks the game as written, its changes are tracked from now on
+     */
+    public void markWritten() {
+        this.board.markWritten();
+        this.moves.clear();
+        this.snapshotPending = false;
+    }
+
+    /**
+     * Applies again a move of the game's log, finishing the game at the time
+     * the move was applied
+     * 
+     * @param move
+     */
+    public void replay(GameMove move) {
+        move.applyTo(this);
+        if (isFinished()) {
+            endTime = move.getTime();
+        }
+    }
+
+    /**
+     * Returns the moves applied since the game was last written or its moves
+     * were logged, in order
+     * 
+     * @return
+     */
+    public List<GameMove> getMoves() {
+        return moves;
+    }
+
+    /**
+     * Marks the moves as logged, the changes of the board are still tracked
+     * until the game is written
+     */
+    public void clearMoves() {
+        this.moves.clear();
+    }
+
+    public boolean isSnapshotPending() {
+        return snapshotPending;
+    }
+
+    /**
+     * Marks the game as due for a snapshot, until it is written
+     */
+    public void setSnapshotPending() {
+        this.snapshotPending = true;
+    }
+
     protected Clock getClock() {
         return Clock.systemDefaultZone();
     }
@@ -173,15 +355,18 @@ public class Game {
     }
 
     /**
-     * Validates the action and executes it
+     * Validates the action and executes it, recording the move
      * 
      * @param row
      * @param column
+     * @param move
+     *            name of the action (see GameMove)
      * @param action
      */
-    private void validateAndExecute(int row, int column, Consumer<Board> action) {
+    private void validateAndExecute(int row, int column, String move, Consumer<Board> action) {
         validateCanDoAction();
         action.accept(getBoard());
+        moves.add(new GameMove(id, getVersion(), move, row, column, LocalDateTime.now(getClock())));
     }
 
     public void setId(UUID id) {
@@ -192,6 +377,19 @@ public class Game {
         this.board = board;
     }
 
+    /**
+     * Sets the generator the mines layout of the game's board is generated
+     * with, when it is first needed. Games loaded without their board are
+     * left as they are
+     * 
+     * @param generator
+     */
+    public void setBoardGenerator(BoardGenerator generator) {
+        if (this.board != null) {
+            this.board.setGenerator(generator);
+        }
+    }
+
     public void setStatus(Status status) {
         this.status = status;
     }
@@ -204,6 +402,14 @@ public class Game {
         this.endTime = endTime;
     }
 
+    public Long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(Long revision) {
+        this.revision = revision;
+    }
+
     public String getUsername() {
         return username;
     }
@@ -0,0 +1,120 @@
+package com.minesweeper.model;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ *
+ * This class represents an action applied on a game, as kept on the game's
+ * move log (see EventSourcedGameRepository). Each action increases the
+ * board's version by one, so the version identifies the move within its game
+ * and the moves after a snapshot of the game rebuild it when they are applied
+ * again in order, read through the compound index
+ *
+ */
+@Document(collection = "game_move")
+@CompoundIndex(name = "gameId_version", def = "{ 'gameId': 1, 'version': 1 }")
+public class GameMove {
+
+    public static final String UNCOVER = "uncover";
+    public static final String CHORD = "chord";
+    public static final String FLAG = "flag";
+    public static final String UNFLAG = "unflag";
+    public static final String QUESTION = "question";
+    public static final String UNQUESTION = "unquestion";
+
+    /** game's id and version, so a move is logged once **/
+    @Id
+    private String id;
+
+    /** game the move was applied on **/
+    private UUID gameId;
+
+    /** board's version right after the move **/
+    private long version;
+
+    /** one of the actions above **/
+    private String action;
+
+    /** position of the cell **/
+    private int row;
+    private int column;
+
+    /** time the move was applied **/
+    private LocalDateTime time;
+
+    public GameMove() {
+    }
+
+    public GameMove(UUID gameId, long version, String action, int row, int column, LocalDateTime time) {
+        this.id = gameId + ":" + version;
+        this.gameId = gameId;
+        this.version = version;
+        this.action = action;
+        this.row = row;
+        this.column = column;
+        this.time = time;
+    }
+
+    /**
+     * Applies the move again on a game
+     *
+     * @param game
+     */
+    public void applyTo(Game game) {
+        switch (action) {
+        case UNCOVER:
+            game.uncoverCell(row, column);
+            break;
+        case CHORD:
+            game.chordCell(row, column);
+            break;
+        case FLAG:
+            game.setRedFlag(row, column);
+            break;
+        case UNFLAG:
+            game.removeRedFlag(row, column);
+            break;
+        case QUESTION:
+            game.setQuestionMark(row, column);
+            break;
+        case UNQUESTION:
+            game.removeQuestionMark(row, column);
+            break;
+        default:
+            throw new IllegalStateException("invalid action logged: " + action);
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public UUID getGameId() {
+        return gameId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public LocalDateTime getTime() {
+        return time;
+    }
+}
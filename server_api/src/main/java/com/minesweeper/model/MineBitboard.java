@@ -0,0 +1,156 @@
+package com.minesweeper.model;
+
+/**
+ *
+ * Mines layout of a board kept as bitboards: each row is a run of long words
+ * where bit c of word w is set when the cell on column w * 64 + c has a mine.
+ *
+ * The adjacent mines counters are computed 64 cells at a time: the eight
+ * neighbour masks of a word are the words of the rows above, on and below
+ * shifted one column to each side, and they are added with a bit-sliced
+ * adder into four bit planes (bit c of plane p is bit p of the counter of
+ * cell c).
+ *
+ */
+final class MineBitboard {
+
+    static final int WORD_SIZE = Long.SIZE;
+
+    /** number of bit planes of a counter (up to 8 adjacent mines) **/
+    static final int PLANES = 4;
+
+    private final int rows;
+    private final int columns;
+    private final int wordsPerRow;
+    private final long[] words;
+
+    MineBitboard(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+        this.wordsPerRow = (columns + WORD_SIZE - 1) / WORD_SIZE;
+        this.words = new long[rows * wordsPerRow];
+    }
+
+    void addMine(int row, int column) {
+        words[row * wordsPerRow + column / WORD_SIZE] |= 1L << column;
+    }
+
+    boolean hasMine(int row, int column) {
+        return (words[row * wordsPerRow + column / WORD_SIZE] & (1L << column)) != 0;
+    }
+
+    /**
+     * Returns the number of mines, a popcount of the words
+     *
+     * @return
+     */
+    long countMines() {
+        long count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Writes the adjacent mines counters of the cells without mine of a band
+     * of rows on the given packed cells, whose counters must be zero
+     *
+     * @param cells
+     * @param firstRow
+     * @param lastRow
+     *            exclusive
+     */
+    void countAdjacentMines(byte[] cells, int firstRow, int lastRow) {
+        long[] planes = new long[PLANES];
+        for (int row = firstRow; row < lastRow; row++) {
+            for (int word = 0; word < wordsPerRow; word++) {
+                countAdjacentMines(getWord(row - 1, word - 1), getWord(row - 1, word), getWord(row - 1, word + 1),
+                        getWord(row, word - 1), getWord(row, word), getWord(row, word + 1),
+                        getWord(row + 1, word - 1), getWord(row + 1, word), getWord(row + 1, word + 1), planes);
+                int first = word * WORD_SIZE;
+                writeCounters(cells, row * columns + first, Math.min(WORD_SIZE, columns - first), getWord(row, word), planes);
+            }
+        }
+    }
+
+    private long getWord(int row, int word) {
+        if (row < 0 || row >= rows || word < 0 || word >= wordsPerRow) {
+            return 0;
+        }
+        return words[row * wordsPerRow + word];
+    }
+
+    /**
+     * Computes the adjacent mines counters of the 64 cells of a word given the
+     * words around it (zero outside the board). Bits of the word beyond the
+     * board's last column must be zero
+     *
+     * @param upperLeft
+     * @param upper
+     * @param upperRight
+     * @param left
+     * @param word
+     * @param right
+     * @param lowerLeft
+     * @param lower
+     * @param lowerRight
+     * @param planes
+     *            receives the four bit planes of the counters
+     */
+    static void countAdjacentMines(long upperLeft, long upper, long upperRight, long left, long word, long right, long lowerLeft,
+            long lower, long lowerRight, long[] planes) {
+        planes[0] = 0;
+        planes[1] = 0;
+        planes[2] = 0;
+        planes[3] = 0;
+        add(planes, (upper << 1) | (upperLeft >>> 63));
+        add(planes, upper);
+        add(planes, (upper >>> 1) | (upperRight << 63));
+        add(planes, (word << 1) | (left >>> 63));
+        add(planes, (word >>> 1) | (right << 63));
+        add(planes, (lower << 1) | (lowerLeft >>> 63));
+        add(planes, lower);
+        add(planes, (lower >>> 1) | (lowerRight << 63));
+    }
+
+    /**
+     * Adds one bit to each of the 64 counters held by the planes
+     *
+     * @param planes
+     * @param bits
+     */
+    private static void add(long[] planes, long bits) {
+        long carry = planes[0] & bits;
+        planes[0] ^= bits;
+        long next = planes[1] & carry;
+        planes[1] ^= carry;
+        carry = planes[2] & next;
+        planes[2] ^= next;
+        planes[3] ^= carry;
+    }
+
+    /**
+     * Writes the counters held by the planes on the cells without mine of a
+     * word, visiting only the cells whose counter is not zero. The cells of
+     * the word start on the given index and are consecutive
+     *
+     * @param cells
+     * @param first
+     * @param width
+     *            number of cells of the word on the board
+     * @param mines
+     * @param planes
+     */
+    static void writeCounters(byte[] cells, int first, int width, long mines, long[] planes) {
+        long board = (width == WORD_SIZE ? -1L : (1L << width) - 1);
+        long pending = (planes[0] | planes[1] | planes[2] | planes[3]) & ~mines & board;
+        while (pending != 0) {
+            int bit = Long.numberOfTrailingZeros(pending);
+            pending &= pending - 1;
+            int counter = (int) ((planes[0] >>> bit) & 1) | (int) ((planes[1] >>> bit) & 1) << 1
+                    | (int) ((planes[2] >>> bit) & 1) << 2 | (int) ((planes[3] >>> bit) & 1) << 3;
+            cells[first + bit] |= counter;
+        }
+    }
+}
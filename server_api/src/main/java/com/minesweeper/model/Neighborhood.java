@@ -0,0 +1,55 @@
+package com.minesweeper.model;
+
+/**
+ *
+ * Visits the adjacent cells (the square) of a cell on a board stored row by
+ * row, using the flat index offsets of the eight adjacent positions computed
+ * once per board. Cells away from the board's border take all the offsets
+ * without any check, only border cells check each adjacent position.
+ *
+ */
+final class Neighborhood {
+
+    static final int MAX_ADJACENTS = 8;
+
+    private static final int[] ROW_DELTAS = { -1, -1, -1, 0, 0, 1, 1, 1 };
+    private static final int[] COLUMN_DELTAS = { -1, 0, 1, -1, 1, -1, 0, 1 };
+
+    private final int rows;
+    private final int columns;
+    private final int[] offsets = new int[MAX_ADJACENTS];
+
+    Neighborhood(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+        for (int i = 0; i < MAX_ADJACENTS; i++) {
+            offsets[i] = ROW_DELTAS[i] * columns + COLUMN_DELTAS[i];
+        }
+    }
+
+    /**
+     * Fills the given array with the indexes of the adjacent cells of a cell,
+     * the array must have room for MAX_ADJACENTS indexes
+     *
+     * @param index
+     * @param adjacents
+     * @return the number of adjacent cells
+     */
+    int getAdjacents(int index, int[] adjacents) {
+        int row = index / columns;
+        int column = index - row * columns;
+        if (row > 0 && row < rows - 1 && column > 0 && column < columns - 1) {
+            for (int i = 0; i < MAX_ADJACENTS; i++) {
+                adjacents[i] = index + offsets[i];
+            }
+            return MAX_ADJACENTS;
+        }
+        int count = 0;
+        for (int i = 0; i < MAX_ADJACENTS; i++) {
+            if (CellPosition.isInRange(rows, row + ROW_DELTAS[i]) && CellPosition.isInRange(columns, column + COLUMN_DELTAS[i])) {
+                adjacents[count++] = index + offsets[i];
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,123 @@
+package com.minesweeper.model;
+
+import com.minesweeper.model.Cell.Code;
+import com.minesweeper.model.Cell.Status;
+
+/**
+ *
+ * Encodes the whole state of a {@link Cell} on a single byte, so a Board can
+ * keep its cells on a flat byte array.
+ *
+ * Layout: bits 0-3 adjacent mines counter, bit 4 mine, bits 5-6 status.
+ *
+ */
+final class PackedCell {
+
+    static final int COUNTER_MASK = 0x0F;
+    static final int MINE = 0x10;
+    static final int STATUS_SHIFT = 5;
+    static final int STATUS_MASK = 0x03 << STATUS_SHIFT;
+
+    /** status bits, a zeroed byte is a covered cell without mine **/
+    static final int COVERED = 0;
+    static final int UNCOVERED = 1 << STATUS_SHIFT;
+    static final int FLAGGED = 2 << STATUS_SHIFT;
+    static final int QUESTION_MARKED = 3 << STATUS_SHIFT;
+
+    private static final Status[] STATUSES = { Status.Covered, Status.Uncovered, Status.Flagged, Status.QuestionMarked };
+
+    /** info code of every possible packed value, so no string is built per cell **/
+    private static final String[] INFO = new String[128];
+
+    /**
+     * 4-bit code of every possible packed value (see BoardEncoder): 0-8
+     * uncovered cell without mine, 9 covered, 10 red flag, 11 question mark,
+     * 12 uncovered mine
+     **/
+    private static final byte[] CODES = new byte[128];
+
+    static final int COVERED_CODE = 9;
+
+    static {
+        for (int packed = 0; packed < INFO.length; packed++) {
+            INFO[packed] = computeInfo((byte) packed);
+            CODES[packed] = computeCode((byte) packed);
+        }
+    }
+
+    private PackedCell() {
+    }
+
+    static boolean hasMine(byte packed) {
+        return (packed & MINE) != 0;
+    }
+
+    static int getAdjacentMinesCounter(byte packed) {
+        return packed & COUNTER_MASK;
+    }
+
+    static boolean isCovered(byte packed) {
+        return (packed & STATUS_MASK) != UNCOVERED;
+    }
+
+    static boolean isFlagged(byte packed) {
+        return (packed & STATUS_MASK) == FLAGGED;
+    }
+
+    static byte addMine(byte packed) {
+        return (byte) ((packed & ~COUNTER_MASK) | MINE);
+    }
+
+    static byte incrementAdjacentMinesCounter(byte packed) {
+        return (byte) (packed + 1);
+    }
+
+    static byte uncover(byte packed) {
+        return (byte) ((packed & ~STATUS_MASK) | UNCOVERED);
+    }
+
+    static Status getStatus(byte packed) {
+        return STATUSES[(packed & STATUS_MASK) >> STATUS_SHIFT];
+    }
+
+    static byte pack(boolean hasMine, int adjacentMinesCounter, Status status) {
+        int packed = (hasMine ? MINE : 0) | (adjacentMinesCounter & COUNTER_MASK);
+        for (int bits = 0; bits < STATUSES.length; bits++) {
+            if (STATUSES[bits] == status) {
+                packed |= bits << STATUS_SHIFT;
+            }
+        }
+        return (byte) packed;
+    }
+
+    static String getInfo(byte packed) {
+        return INFO[packed & 0x7F];
+    }
+
+    static int getCode(byte packed) {
+        return CODES[packed & 0x7F];
+    }
+
+    private static byte computeCode(byte packed) {
+        switch (packed & STATUS_MASK) {
+        case COVERED:
+            return COVERED_CODE;
+        case FLAGGED:
+            return COVERED_CODE + 1;
+        case QUESTION_MARKED:
+            return COVERED_CODE + 2;
+        default:
+            return (byte) (hasMine(packed) ? COVERED_CODE + 3 : getAdjacentMinesCounter(packed));
+        }
+    }
+
+    private static String computeInfo(byte packed) {
+        if (isCovered(packed)) {
+            return getStatus(packed).getCode();
+        }
+        if (hasMine(packed)) {
+            return Code.M.name();
+        }
+        return String.valueOf(getAdjacentMinesCounter(packed));
+    }
+}
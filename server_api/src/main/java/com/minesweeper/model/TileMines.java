@@ -0,0 +1,202 @@
+package com.minesweeper.model;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ *
+ * Deterministic mines layout of a board split on square tiles, where the
+ * mines of any tile can be generated without generating the rest of the
+ * board.
+ *
+ * Each tile takes its proportional share of the mines (rounded down) and the
+ * mines left are given, one each, to the tiles picked by an affine
+ * permutation of the tile numbers. Mines are then placed inside the tile with
+ * Floyd's algorithm, using a seed derived from the board's seed and the tile
+ * number.
+ *
+ * A layout may keep a safe cell: the tiles around it place their mines away
+ * from the cell and its adjacent cells, or only away from the cell when the
+ * tile has not positions enough for its mines otherwise. Tiles keep their
+ * number of mines, so the mines are only moved inside the tiles.
+ *
+ */
+final class TileMines {
+
+    private final int rows;
+    private final int columns;
+    private final int mines;
+    private final long seed;
+    private final int tileSize;
+    private final int tileColumns;
+    private final long positions;
+
+    /** position of the cell whose square is kept free of mines, -1 if none **/
+    private final int safeRow;
+    private final int safeColumn;
+
+    /** number of tiles and mines left after every tile takes its share **/
+    private final BigInteger tiles;
+    private final long remainder;
+
+    /** affine permutation (multiplier * tile + offset) mod tiles **/
+    private final BigInteger multiplier;
+    private final BigInteger offset;
+
+    TileMines(int rows, int columns, int mines, long seed, int tileSize) {
+        this(rows, columns, mines, seed, tileSize, -1, -1);
+    }
+
+    TileMines(int rows, int columns, int mines, long seed, int tileSize, int safeRow, int safeColumn) {
+        this.rows = rows;
+        this.columns = columns;
+        this.mines = mines;
+        this.seed = seed;
+        this.tileSize = tileSize;
+        this.safeRow = safeRow;
+        this.safeColumn = safeColumn;
+        this.positions = (long) rows * columns;
+        int tileRows = (rows + tileSize - 1) / tileSize;
+        this.tileColumns = (columns + tileSize - 1) / tileSize;
+        long tileCount = (long) tileRows * tileColumns;
+        this.tiles = BigInteger.valueOf(tileCount);
+        this.remainder = mines - countProportionalMines();
+        Random random = new Random(seed);
+        long candidate = 1 + Math.floorMod(random.nextLong(), tileCount);
+        while (BigInteger.valueOf(candidate).gcd(tiles).longValue() != 1) {
+            candidate = candidate % tileCount + 1;
+        }
+        this.multiplier = BigInteger.valueOf(candidate);
+        this.offset = BigInteger.valueOf(Math.floorMod(random.nextLong(), tileCount));
+    }
+
+    /**
+     * Returns the mines of a tile, one mask per tile row where bit c is set
+     * when the cell on column c of the tile has a mine
+     *
+     * @param tileRow
+     * @param tileColumn
+     * @return
+     */
+    long[] getMines(int tileRow, int tileColumn) {
+        int height = getTileHeight(tileRow);
+        int width = getTileWidth(tileColumn);
+        long tile = (long) tileRow * tileColumns + tileColumn;
+        long[] masks = new long[height];
+        int area = height * width;
+        int tileMines = countMines(tile, area);
+        int[] excluded = getExcluded(tileRow, tileColumn, height, width, tileMines);
+        int available = area - excluded.length;
+        Random random = new Random(mix(seed + tile * 0x9E3779B97F4A7C15L));
+        for (int candidate = available - tileMines; candidate < available; candidate++) {
+            int index = skipExcluded(random.nextInt(candidate + 1), excluded);
+            if ((masks[index / width] & (1L << (index % width))) != 0) {
+                index = skipExcluded(candidate, excluded);
+            }
+            masks[index / width] |= 1L << (index % width);
+        }
+        return masks;
+    }
+
+    /**
+     * Returns the indexes of a tile (row * width + column) kept free of mines,
+     * in ascending order
+     *
+     * @param tileRow
+     * @param tileColumn
+     * @param height
+     * @param width
+     * @param tileMines
+     * @return
+     */
+    private int[] getExcluded(int tileRow, int tileColumn, int height, int width, int tileMines) {
+        if (safeRow < 0) {
+            return new int[0];
+        }
+        int firstRow = tileRow * tileSize;
+        int firstColumn = tileColumn * tileSize;
+        int[] square = new int[9];
+        int count = 0;
+        for (int row = Math.max(safeRow - 1, firstRow); row <= Math.min(safeRow + 1, firstRow + height - 1); row++) {
+            for (int column = Math.max(safeColumn - 1, firstColumn); column <= Math.min(safeColumn + 1, firstColumn + width - 1); column++) {
+                square[count++] = (row - firstRow) * width + (column - firstColumn);
+            }
+        }
+        if (tileMines <= height * width - count) {
+            return Arrays.copyOf(square, count);
+        }
+        boolean safeInTile = (safeRow >= firstRow && safeRow < firstRow + height && safeColumn >= firstColumn && safeColumn < firstColumn + width);
+        if (safeInTile && tileMines < height * width) {
+            return new int[] { (safeRow - firstRow) * width + (safeColumn - firstColumn) };
+        }
+        return new int[0];
+    }
+
+    /**
+     * Returns the index of the tile at the given position of the indexes not
+     * excluded
+     *
+     * @param index
+     * @param excluded
+     *            in ascending order
+     * @return
+     */
+    private static int skipExcluded(int index, int[] excluded) {
+        for (int position : excluded) {
+            if (position <= index) {
+                index++;
+            }
+        }
+        return index;
+    }
+
+    int getTileHeight(int tileRow) {
+        return Math.min(tileSize, rows - tileRow * tileSize);
+    }
+
+    int getTileWidth(int tileColumn) {
+        return Math.min(tileSize, columns - tileColumn * tileSize);
+    }
+
+    private int countMines(long tile, int area) {
+        long permuted = multiplier.multiply(BigInteger.valueOf(tile)).add(offset).mod(tiles).longValue();
+        return getShare(area) + (permuted < remainder ? 1 : 0);
+    }
+
+    /**
+     * Returns the proportional share of the mines of a tile with the given
+     * area, it is always lower than the area given that there are less mines
+     * than positions
+     *
+     * @param area
+     * @return
+     */
+    private int getShare(long area) {
+        return (int) (mines * area / positions);
+    }
+
+    private long countProportionalMines() {
+        long fullRows = rows / tileSize;
+        long fullColumns = columns / tileSize;
+        int lastHeight = rows % tileSize;
+        int lastWidth = columns % tileSize;
+        long count = fullRows * fullColumns * getShare((long) tileSize * tileSize);
+        if (lastWidth > 0) {
+            count += fullRows * getShare((long) tileSize * lastWidth);
+        }
+        if (lastHeight > 0) {
+            count += fullColumns * getShare((long) lastHeight * tileSize);
+        }
+        if (lastHeight > 0 && lastWidth > 0) {
+            count += getShare((long) lastHeight * lastWidth);
+        }
+        return count;
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return value ^ (value >>> 33);
+    }
+}
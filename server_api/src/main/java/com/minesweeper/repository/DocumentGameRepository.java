@@ -0,0 +1,45 @@
+package com.minesweeper.repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import com.minesweeper.model.Game;
+import com.minesweeper.model.GameMove;
+
+/**
+ * Repository that keeps each game as a whole document, written with the
+ * fields changed since it was last written (see GameRepositoryCustom). It
+ * does not log the moves
+ */
+public class DocumentGameRepository implements IGameRepository {
+
+    private final GameRepository repository;
+
+    public DocumentGameRepository(GameRepository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public void save(Game game) {
+        repository.saveChanges(game);
+    }
+
+    @Override
+    public Optional<Game> get(UUID id) {
+        return repository.findById(id);
+    }
+
+    @Override
+    public Optional<List<GameMove>> getMoves(UUID id, long since) {
+        return Optional.empty();
+    }
+
+    /**
+     * The document is the whole game, written with every change
+     */
+    @Override
+    public boolean hasChangesAfter(UUID id, long version) {
+        return false;
+    }
+}
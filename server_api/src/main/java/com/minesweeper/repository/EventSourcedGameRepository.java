@@ -0,0 +1,193 @@
+package com.minesweeper.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.minesweeper.model.Game;
+import com.minesweeper.model.Game.Status;
+import com.minesweeper.model.GameMove;
+import com.mongodb.MongoBulkWriteException;
+
+/**
+ * Event-sourced repository: the moves of a game are appended to its move log
+ * (see GameMove) and the game's document is only a snapshot of it (the seed
+ * and the compact states of its board), written when the game is created,
+ * every snapshot interval of moves and when it is finished. A game is rebuilt
+ * from its snapshot applying again the moves logged after it, and the moves a
+ * snapshot covers are removed from the log.
+ *
+ * A move is logged once per game and version: a move logged by someone else
+ * meanwhile (another server) fails as a conflict, as a snapshot written by
+ * someone else does. The moves of a save are logged all or none, and a
+ * snapshot due stays pending on the game until it is written. Since the
+ * snapshots are written every few moves, the summaries of the games in play
+ * read from them may be behind by as many moves: the moves logged after a
+ * snapshot tell it (see hasChangesAfter)
+ */
+public class EventSourcedGameRepository implements IGameRepository {
+
+    private final GameRepository repository;
+    private final MongoOperations operations;
+    private final int snapshotInterval;
+
+    /**
+     * @param repository
+     *            of the snapshots
+     * @param operations
+     *            on the move log
+     * @param snapshotInterval
+     *            moves between snapshots
+     */
+    public EventSourcedGameRepository(GameRepository repository, MongoOperations operations, int snapshotInterval) {
+        if (snapshotInterval <= 0) {
+            throw new IllegalArgumentException("invalid snapshot interval: " + snapshotInterval);
+        }
+        this.repository = repository;
+        this.operations = operations;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    /**
+     * Appends the moves of a game not logged yet, and writes its snapshot if
+     * it is new or finished, or the moves reached the snapshot interval. A
+     * snapshot that failed after its moves were logged is written by the next
+     * save of the game
+     * 
+     * @param game
+     */
+    @Override
+    public void save(Game game) {
+        if (game.getChangedFields() == null) {
+            snapshot(game);
+            return;
+        }
+        List<GameMove> moves = game.getMoves();
+        if (!moves.isEmpty()) {
+            append(game, moves);
+            boolean due = (game.getStatus() != Status.Started);
+            for (GameMove move : moves) {
+                due |= (move.getVersion() % snapshotInterval == 0);
+            }
+            game.clearMoves();
+            if (due) {
+                game.setSnapshotPending();
+            }
+        }
+        if (game.isSnapshotPending()) {
+            snapshot(game);
+        }
+    }
+
+    /**
+     * Logs the moves of a game, all of them or none: when one of them was
+     * logged by someone else the ones logged before it are removed, so the
+     * game can be rebuilt and its moves applied again
+     * 
+     * @param game
+     * @param moves
+     */
+    private void append(Game game, List<GameMove> moves) {
+        try {
+            operations.insert(new ArrayList<GameMove>(moves), GameMove.class);
+        } catch (DuplicateKeyException e) {
+            int logged = getLogged(e);
+            if (logged > 0) {
+                long first = moves.get(0).getVersion();
+                long conflicting = moves.get(logged).getVersion();
+                operations.remove(Query.query(Criteria.where("gameId").is(game.getId()).and("version").gte(first).lt(conflicting)), GameMove.class);
+            }
+            throw new OptimisticLockingFailureException("Game changed by another writer: " + game.getId(), e);
+        }
+    }
+
+    /**
+     * Returns the number of moves logged by an ordered insert before the one
+     * that failed, which is the first one unless the insert was a bulk write
+     * 
+     * @param e
+     * @return
+     */
+    private static int getLogged(DuplicateKeyException e) {
+        if (e.getCause() instanceof MongoBulkWriteException) {
+            MongoBulkWriteException cause = (MongoBulkWriteException) e.getCause();
+            if (!cause.getWriteErrors().isEmpty()) {
+                return cause.getWriteErrors().get(0).getIndex();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Rebuilds a game from its snapshot and the moves logged after it. A game
+     * finished by those moves is written, so its status is
+     * 
+     * @param id
+     * @return
+     */
+    @Override
+    public Optional<Game> get(UUID id) {
+        Optional<Game> snapshot = repository.findById(id);
+        snapshot.ifPresent(game -> {
+            List<GameMove> moves = findMoves(id, game.getVersion());
+            for (GameMove move : moves) {
+                game.replay(move);
+            }
+            game.clearMoves();
+            if (!moves.isEmpty() && game.getStatus() != Status.Started) {
+                snapshot(game);
+            }
+        });
+        return snapshot;
+    }
+
+    /**
+     * Returns the moves of a game logged after a version, the ones covered by
+     * its last snapshot are no longer logged
+     * 
+     * @param id
+     * @param since
+     * @return
+     */
+    @Override
+    public Optional<List<GameMove>> getMoves(UUID id, long since) {
+        return Optional.of(findMoves(id, since));
+    }
+
+    /**
+     * Tells whether moves of a game were logged after a version of its
+     * snapshot
+     * 
+     * @param id
+     * @param version
+     * @return
+     */
+    @Override
+    public boolean hasChangesAfter(UUID id, long version) {
+        return operations.exists(Query.query(Criteria.where("gameId").is(id).and("version").gt(version)), GameMove.class);
+    }
+
+    /**
+     * Writes the snapshot of a game, the changes of its board since the last
+     * one, and removes the moves it covers from the log
+     * 
+     * @param game
+     */
+    private void snapshot(Game game) {
+        repository.saveChanges(game);
+        operations.remove(Query.query(Criteria.where("gameId").is(game.getId()).and("version").lte(game.getVersion())), GameMove.class);
+    }
+
+    private List<GameMove> findMoves(UUID id, long since) {
+        Query query = Query.query(Criteria.where("gameId").is(id).and("version").gt(since)).with(Sort.by("version"));
+        return operations.find(query, GameMove.class);
+    }
+}
@@ -1,14 +1,60 @@
 package com.minesweeper.repository;
 
+import java.util.Optional;
 import java.util.UUID;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
 import com.minesweeper.model.Game;
+import com.minesweeper.model.Game.Status;
 
 /**
- * Repository to handle persistence of games
+ * Repository to handle persistence of games. The games in play are written
+ * through saveChanges (see GameRepositoryCustom), which only sets the fields
+ * changed
  */
-public interface GameRepository extends MongoRepository<Game, UUID> {
+public interface GameRepository extends MongoRepository<Game, UUID>, GameRepositoryCustom {
 
+    /**
+     * fields of a game read without its cells: enough to tell whether it
+     * changed (see Game.toStateInfo), whom it belongs to and to summarize it
+     * (see Game.toSummaryInfo)
+     **/
+    String SUMMARY_FIELDS = "{ 'status': 1, 'startTime': 1, 'endTime': 1, 'username': 1, 'board.rows': 1, 'board.columns': 1, "
+            + "'board.mines': 1, 'board.cellsUncovered': 1, 'board.version': 1 }";
+
+    /**
+     * Returns a game given its id with only its summary fields, its board
+     * states and changes are not read
+     * 
+     * @param id
+     * @return
+     */
+    @Query(value = "{ '_id': ?0 }", fields = SUMMARY_FIELDS)
+    Optional<Game> findSummaryById(UUID id);
+
+    /**
+     * Returns a page of the games of a user with only their summary fields
+     * 
+     * @param username
+     * @param pageable
+     * @return
+     */
+    @Query(value = "{ 'username': ?0 }", fields = SUMMARY_FIELDS)
+    Page<Game> findSummariesByUsername(String username, Pageable pageable);
+
+    /**
+     * Returns a page of the games of a user with a given status with only
+     * their summary fields
+     * 
+     * @param username
+     * @param status
+     * @param pageable
+     * @return
+     */
+    @Query(value = "{ 'username': ?0, 'status': ?1 }", fields = SUMMARY_FIELDS)
+    Page<Game> findSummariesByUsernameAndStatus(String username, Status status, Pageable pageable);
 }
@@ -0,0 +1,23 @@
+package com.minesweeper.repository;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import com.minesweeper.model.Game;
+
+/**
+ * Writes of games beyond the ones of the Mongo repository
+ */
+public interface GameRepositoryCustom {
+
+    /**
+     * Writes the changes of a game since it was last written: only the fields
+     * changed are set on its document, instead of replacing the whole
+     * document with its board. A game never written is written whole. The
+     * write is conditioned on the game's revision
+     * 
+     * @param game
+     * @throws OptimisticLockingFailureException
+     *             if the game was written by someone else since it was read
+     */
+    void saveChanges(Game game);
+}
@@ -0,0 +1,49 @@
+package com.minesweeper.repository;
+
+import java.util.Map;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.minesweeper.model.Game;
+import com.mongodb.client.result.UpdateResult;
+
+/**
+ * Implementation of the custom writes of games, picked up by the Mongo
+ * repository as a fragment of GameRepository
+ */
+public class GameRepositoryCustomImpl implements GameRepositoryCustom {
+
+    private final MongoOperations operations;
+
+    public GameRepositoryCustomImpl(MongoOperations operations) {
+        this.operations = operations;
+    }
+
+    @Override
+    public void saveChanges(Game game) {
+        Map<String, Object> fields = game.getChangedFields();
+        if (fields == null) {
+            // versioned save: inserted if new, else replaced if not written meanwhile
+            operations.save(game);
+        } else {
+            Long revision = game.getRevision();
+            long next = (revision != null ? revision + 1 : 0);
+            Update update = new Update();
+            fields.forEach(update::set);
+            game.getAppendedFields().forEach((path, values) -> update.push(path).each(values.toArray()));
+            update.set("revision", next);
+            // documents written before the revision was kept do not have it, null matches them
+            Query query = Query.query(Criteria.where("_id").is(game.getId()).and("revision").is(revision));
+            UpdateResult result = operations.updateFirst(query, update, Game.class);
+            if (result.getMatchedCount() == 0) {
+                throw new OptimisticLockingFailureException("Game changed by another writer: " + game.getId());
+            }
+            game.setRevision(next);
+        }
+        game.markWritten();
+    }
+}
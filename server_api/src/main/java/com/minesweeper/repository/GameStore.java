@@ -0,0 +1,455 @@
+package com.minesweeper.repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import com.minesweeper.model.Game;
+import com.minesweeper.model.Game.Status;
+import com.minesweeper.model.GameMove;
+
+/**
+ * Write-behind store of the games in front of the repository. The games in
+ * play are kept on a bounded map and read from memory, and the changed
+ * (dirty) ones are written to the repository by a background flush every
+ * flush interval, when they are evicted and when the store is closed. So an
+ * action only waits for the repository when it creates or finishes a game,
+ * those are written before returning. The least recently used games are
+ * evicted once the store holds more games than allowed.
+ *
+ * The games are shared by the requests: whoever reads or changes a game must
+ * hold its monitor (see GameService), which the store also holds to write it.
+ * A game written by someone else meanwhile (another server) fails to be
+ * written and is dropped, so it is read again: the request writing it
+ * retries, but the changes of a background write are lost, so servers sharing
+ * the games must write through.
+ *
+ * The games are loaded from and written to the games repository, which keeps
+ * them as documents or as move logs with snapshots (see IGameRepository), and
+ * their summaries are read from the repository of documents
+ */
+public class GameStore {
+
+    private final GameRepository repository;
+    private final IGameRepository games;
+    private final int maxGames;
+    private final boolean writeThrough;
+    private final ScheduledExecutorService flusher;
+
+    /** games in access order, the eldest is the least recently used **/
+    private final LinkedHashMap<UUID, Entry> entries = new LinkedHashMap<UUID, Entry>(16, 0.75f, true);
+
+    /** dirty games evicted but not written yet, still read from memory **/
+    private final Map<UUID, Entry> evicted = new HashMap<UUID, Entry>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong dirtyEvictions = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong writeErrors = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+
+    /**
+     * Creates a store that writes every change before returning
+     *
+     * @param repository
+     * @param maxGames
+     *            kept on memory
+     */
+    public GameStore(GameRepository repository, int maxGames) {
+        this.repository = repository;
+        this.games = new DocumentGameRepository(repository);
+        this.maxGames = maxGames;
+        this.writeThrough = true;
+        this.flusher = null;
+    }
+
+    /**
+     * Creates a store that writes the changes of the games within the given
+     * interval (or before returning if it is 0)
+     *
+     * @param repository
+     * @param maxGames
+     *            kept on memory
+     * @param flushInterval
+     *            maximum time in milliseconds a change waits to be written
+     * @param flusher
+     *            runs the scheduled flushes and the writes of evicted games
+     */
+    public GameStore(GameRepository repository, int maxGames, long flushInterval, ScheduledExecutorService flusher) {
+        this(repository, new DocumentGameRepository(repository), maxGames, flushInterval, flusher);
+    }
+
+    /**
+     * Creates a store that loads and writes the games on the given games
+     * repository, within the given interval (or before returning if it is 0)
+     *
+     * @param repository
+     *            of the summaries
+     * @param games
+     *            repository loading and writing the games
+     * @param maxGames
+     *            kept on memory
+     * @param flushInterval
+     *            maximum time in milliseconds a change waits to be written
+     * @param flusher
+     *            runs the scheduled flushes and the writes of evicted games
+     */
+    public GameStore(GameRepository repository, IGameRepository games, int maxGames, long flushInterval, ScheduledExecutorService flusher) {
+        this.repository = repository;
+        this.games = games;
+        this.maxGames = maxGames;
+        this.writeThrough = (flushInterval <= 0);
+        this.flusher = flusher;
+        if (!writeThrough) {
+            flusher.scheduleWithFixedDelay(this::flushQuietly, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Returns a game given its id, from memory if it is there or else loaded
+     * from the repository and kept
+     *
+     * @param id
+     * @return
+     */
+    public Optional<Game> findById(UUID id) {
+        Entry entry = getEntry(id);
+        if (entry != null) {
+            hits.incrementAndGet();
+            return Optional.of(entry.game);
+        }
+        misses.incrementAndGet();
+        return games.get(id).map(game -> keep(game));
+    }
+
+    /**
+     * Returns the moves of a game written to its move log after a version,
+     * the ones not written yet are still on the game (see Game.getMoves)
+     *
+     * @param id
+     * @param since
+     *            version of the game
+     * @return the moves, or empty if the games repository does not log them
+     */
+    public Optional<List<GameMove>> getMoves(UUID id, long since) {
+        return games.getMoves(id, since);
+    }
+
+    /**
+     * Returns a game given its id with at least its summary fields (see
+     * GameRepository.SUMMARY_FIELDS): the whole game if it is on memory,
+     * since its summary may not be written yet, or if it was written after
+     * its summary (the moves logged after its snapshot), loaded and kept
+     *
+     * @param id
+     * @return
+     */
+    public Optional<Game> findSummaryById(UUID id) {
+        Entry entry = getEntry(id);
+        if (entry != null) {
+            return Optional.of(entry.game);
+        }
+        Optional<Game> summary = repository.findSummaryById(id);
+        if (summary.isPresent() && games.hasChangesAfter(id, summary.get().getVersion())) {
+            return findById(id);
+        }
+        return summary;
+    }
+
+    /**
+     * Returns a page of the summaries of the games of a user, taking the games
+     * on memory instead of the ones read. The status of a game is always
+     * written (finished games are written before returning), so the games
+     * matching are the same
+     *
+     * @param username
+     * @param status
+     *            of the games (null for all of them)
+     * @param pageable
+     * @return
+     */
+    public Page<Game> findSummaries(String username, Status status, Pageable pageable) {
+        Page<Game> summaries = (status != null ? repository.findSummariesByUsernameAndStatus(username, status, pageable)
+                : repository.findSummariesByUsername(username, pageable));
+        return summaries.map(game -> {
+            Entry entry = getEntry(game.getId());
+            return (entry != null ? entry.game : game);
+        });
+    }
+
+    /**
+     * Keeps the changes of a game, written now if the game is new or finished
+     * (or the store writes through) or else by the next flush. The caller
+     * must hold the game's monitor
+     *
+     * @param game
+     */
+    public void save(Game game) {
+        Entry entry;
+        Entry evictedEntry;
+        synchronized (this) {
+            entry = entries.get(game.getId());
+            if (entry == null) {
+                entry = evicted.remove(game.getId());
+            }
+            if (entry == null || entry.game != game) {
+                entry = new Entry(game, entry != null && entry.persisted);
+            }
+            evictedEntry = put(entry);
+        }
+        entry.dirty = true;
+        writeEvicted(evictedEntry);
+        if (writeThrough || !entry.persisted || game.getStatus() != Status.Started) {
+            write(entry);
+        }
+    }
+
+    /**
+     * Writes all the dirty games
+     */
+    public void flush() {
+        List<Entry> dirty = new ArrayList<Entry>();
+        synchronized (this) {
+            for (Entry entry : entries.values()) {
+                if (entry.dirty) {
+                    dirty.add(entry);
+                }
+            }
+            dirty.addAll(evicted.values());
+        }
+        RuntimeException error = null;
+        for (Entry entry : dirty) {
+            try {
+                write(entry);
+            } catch (RuntimeException e) {
+                error = e;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Writes all the dirty games, it is called when the application stops
+     */
+    public void close() {
+        flush();
+    }
+
+    /**
+     * Scheduled flush: a game whose write fails stays dirty and is retried by
+     * the next one
+     */
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // counted as write error
+        }
+    }
+
+    /**
+     * Returns the entry of a game on memory, taking it back if it was evicted
+     * but not written yet. The game it evicts is written after releasing the
+     * store's monitor, since the write takes the game's monitor
+     *
+     * @param id
+     * @return the entry, or null if the game is not on memory
+     */
+    private Entry getEntry(UUID id) {
+        Entry entry;
+        Entry evictedEntry = null;
+        synchronized (this) {
+            entry = entries.get(id);
+            if (entry == null) {
+                entry = evicted.remove(id);
+                if (entry != null) {
+                    evictedEntry = put(entry);
+                }
+            }
+        }
+        writeEvicted(evictedEntry);
+        return entry;
+    }
+
+    /**
+     * Keeps a game just loaded, unless another request kept it meanwhile
+     *
+     * @param game
+     * @return the game kept
+     */
+    private Game keep(Game game) {
+        Entry entry;
+        Entry evictedEntry = null;
+        synchronized (this) {
+            entry = entries.get(game.getId());
+            if (entry == null) {
+                entry = new Entry(game, true);
+                evictedEntry = put(entry);
+            }
+        }
+        writeEvicted(evictedEntry);
+        return entry.game;
+    }
+
+    /**
+     * Puts an entry evicting the least recently used one if the store is
+     * full. A dirty game evicted is kept apart until it is written
+     *
+     * @param entry
+     * @return the dirty entry evicted, if any
+     */
+    private Entry put(Entry entry) {
+        entries.put(entry.game.getId(), entry);
+        if (entries.size() <= maxGames) {
+            return null;
+        }
+        Iterator<Entry> eldest = entries.values().iterator();
+        Entry removed = eldest.next();
+        eldest.remove();
+        evictions.incrementAndGet();
+        if (!removed.dirty) {
+            return null;
+        }
+        dirtyEvictions.incrementAndGet();
+        evicted.put(removed.game.getId(), removed);
+        return removed;
+    }
+
+    private void writeEvicted(Entry entry) {
+        if (entry != null) {
+            scheduleWrite(entry);
+        }
+    }
+
+    private void scheduleWrite(Entry entry) {
+        if (flusher != null) {
+            flusher.execute(() -> {
+                try {
+                    write(entry);
+                } catch (RuntimeException e) {
+                    // retried by the next flush
+                }
+            });
+        } else {
+            write(entry);
+        }
+    }
+
+    /**
+     * Writes a game if it is dirty, holding its monitor so it does not change
+     * meanwhile. Once written an evicted game is read from the repository
+     * again
+     *
+     * @param entry
+     */
+    private void write(Entry entry) {
+        synchronized (entry.game) {
+            if (entry.dirty) {
+                try {
+                    games.save(entry.game);
+                } catch (OptimisticLockingFailureException e) {
+                    conflicts.incrementAndGet();
+                    drop(entry);
+                    throw e;
+                } catch (RuntimeException e) {
+                    writeErrors.incrementAndGet();
+                    throw e;
+                }
+                entry.dirty = false;
+                entry.persisted = true;
+                writes.incrementAndGet();
+            }
+        }
+        synchronized (this) {
+            evicted.remove(entry.game.getId(), entry);
+        }
+    }
+
+    /**
+     * Drops a game whose document was written by someone else, it is read
+     * again when it is needed
+     * 
+     * @param entry
+     */
+    private synchronized void drop(Entry entry) {
+        entry.dirty = false;
+        entries.remove(entry.game.getId(), entry);
+        evicted.remove(entry.game.getId(), entry);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized int countDirty() {
+        int dirty = evicted.size();
+        for (Entry entry : entries.values()) {
+            dirty += (entry.dirty ? 1 : 0);
+        }
+        return dirty;
+    }
+
+    /** reads served from memory and from the repository **/
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /** games evicted, and how many of them had to be written **/
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getDirtyEvictions() {
+        return dirtyEvictions.get();
+    }
+
+    /** games written to the repository, and writes failed **/
+    public long getWrites() {
+        return writes.get();
+    }
+
+    public long getWriteErrors() {
+        return writeErrors.get();
+    }
+
+    /** writes failed because someone else wrote the game meanwhile **/
+    public long getConflicts() {
+        return conflicts.get();
+    }
+
+    /**
+     * Game on memory, whether it has changes not written yet and whether it
+     * was ever written
+     */
+    private static class Entry {
+
+        private final Game game;
+        private volatile boolean dirty;
+        private volatile boolean persisted;
+
+        private Entry(Game game, boolean persisted) {
+            this.game = game;
+            this.persisted = persisted;
+        }
+    }
+}
@@ -1,16 +1,48 @@
 package com.minesweeper.repository;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import com.minesweeper.model.Game;
+import com.minesweeper.model.GameMove;
 
 /**
- * Interface for the repository of games
+ * Interface for the repository of games, where the store loads the games
+ * and writes their changes (see GameStore)
  */
 public interface IGameRepository {
 
+    /**
+     * Writes the changes of a game since it was last written, and marks them
+     * as written
+     * 
+     * @param game
+     */
     public void save(Game game);
 
     public Optional<Game> get(UUID id);
+
+    /**
+     * Returns the moves of a game logged after a version, in order
+     * 
+     * @param id
+     *            of the game
+     * @param since
+     *            version of the game
+     * @return the moves, or empty if the repository does not log them
+     */
+    public Optional<List<GameMove>> getMoves(UUID id, long since);
+
+    /**
+     * Tells whether a game was written after a version of its document, so
+     * the summary read from the document is behind the game
+     * 
+     * @param id
+     *            of the game
+     * @param version
+     *            of the game's document
+     * @return
+     */
+    public boolean hasChangesAfter(UUID id, long version);
 }
@@ -1,6 +1,7 @@
 package com.minesweeper.repository;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -8,6 +9,7 @@ import java.util.UUID;
 import org.springframework.stereotype.Repository;
 
 import com.minesweeper.model.Game;
+import com.minesweeper.model.GameMove;
 
 @Repository
 public class MemoryRepository implements IGameRepository {
@@ -17,6 +19,7 @@ public class MemoryRepository implements IGameRepository {
     @Override
     public void save(Game game) {
         games.put(game.getId(), game);
+        game.markWritten();
     }
 
     @Override
@@ -24,4 +27,14 @@ public class MemoryRepository implements IGameRepository {
         return Optional.ofNullable(games.get(id));
     }
 
+    @Override
+    public Optional<List<GameMove>> getMoves(UUID id, long since) {
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean hasChangesAfter(UUID id, long version) {
+        return false;
+    }
+
 }
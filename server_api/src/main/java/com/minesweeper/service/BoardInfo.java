@@ -2,8 +2,47 @@ package com.minesweeper.service;
 
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+@JsonInclude(Include.NON_NULL)
 public class BoardInfo {
 
+    /** rows of cells' codes, usually a view computed from the board **/
+    @JsonSerialize(using = CellsSerializer.class)
     public List<List<String>> cells;
 
+    /**
+     * position of the first cell and board's dimensions, only set when the
+     * cells are a window of a larger board or are packed
+     **/
+    public Integer row;
+    public Integer column;
+    public Integer rows;
+    public Integer columns;
+
+    /** size of the window, only set with its position **/
+    public Integer height;
+    public Integer width;
+
+    /**
+     * indicator that the cells are a window around the last action because
+     * the board is too large to be returned whole, only set then: a region
+     * asked through a viewport is not flagged
+     **/
+    public Boolean window;
+
+    /**
+     * cells changed since the version asked by the client, set instead of the
+     * cells when those changes are known
+     **/
+    public List<CellChangeInfo> changes;
+
+    /**
+     * cells on 4-bit codes, set instead of the cells when the client asks for
+     * them packed (written as base64 on json)
+     **/
+    public byte[] packed;
+
 }
@@ -0,0 +1,52 @@
+package com.minesweeper.service;
+
+/**
+ * Indicates how the client wants the board of a game: its cells, only the
+ * cells changed since a version it knows, or packed on 4-bit codes; either of
+ * the whole board or only of the region it shows (viewport)
+ */
+public class BoardView {
+
+    /** media type of the game information with the board packed (base64) **/
+    public static final String PACKED_JSON_VALUE = "application/vnd.minesweeper.packed+json";
+
+    /** board's version known by the client, if any **/
+    public Long since;
+
+    /** indicator that the cells are returned packed on 4-bit codes **/
+    public boolean packed;
+
+    /**
+     * region of the board shown by the client, if any: position of its first
+     * cell and its size (clipped at the board's edges)
+     **/
+    public Integer row;
+    public Integer column;
+    public Integer height;
+    public Integer width;
+
+    public BoardView() {
+    }
+
+    public BoardView(Long since, boolean packed) {
+        this.since = since;
+        this.packed = packed;
+    }
+
+    public BoardView(Long since, boolean packed, int row, int column, int height, int width) {
+        this(since, packed);
+        this.row = row;
+        this.column = column;
+        this.height = height;
+        this.width = width;
+    }
+
+    /**
+     * Indicates whether the client only shows a region of the board
+     * 
+     * @return
+     */
+    public boolean hasViewport() {
+        return height != null;
+    }
+}
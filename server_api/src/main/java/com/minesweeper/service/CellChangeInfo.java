@@ -0,0 +1,26 @@
+package com.minesweeper.service;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Current information of a changed cell, written as a [row, column, code]
+ * triple
+ */
+@JsonFormat(shape = JsonFormat.Shape.ARRAY)
+@JsonPropertyOrder({ "row", "column", "code" })
+public class CellChangeInfo {
+
+    public int row;
+    public int column;
+    public String code;
+
+    public CellChangeInfo() {
+    }
+
+    public CellChangeInfo(int row, int column, String code) {
+        this.row = row;
+        this.column = column;
+        this.code = code;
+    }
+}
@@ -0,0 +1,59 @@
+package com.minesweeper.service;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Writes the board's cells as nested arrays of codes going through the rows
+ * by index, so views computed from the board (see Board.toBoardInfo) are
+ * streamed to the response without being built. The codes are written from
+ * pre-encoded tokens
+ */
+public class CellsSerializer extends StdSerializer<List<List<String>>> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String[] CODES = { "0", "1", "2", "3", "4", "5", "6", "7", "8", "C", "F", "Q", "M" };
+
+    private static final Map<String, SerializedString> TOKENS = new HashMap<String, SerializedString>();
+
+    static {
+        for (String code : CODES) {
+            TOKENS.put(code, new SerializedString(code));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public CellsSerializer() {
+        super((Class<List<List<String>>>) (Class<?>) List.class);
+    }
+
+    @Override
+    public void serialize(List<List<String>> cells, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        int rows = cells.size();
+        generator.writeStartArray(rows);
+        for (int row = 0; row < rows; row++) {
+            List<String> rowCells = cells.get(row);
+            int columns = rowCells.size();
+            generator.writeStartArray(columns);
+            for (int column = 0; column < columns; column++) {
+                String code = rowCells.get(column);
+                SerializedString token = TOKENS.get(code);
+                if (token != null) {
+                    generator.writeString(token);
+                } else {
+                    generator.writeString(code);
+                }
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndArray();
+    }
+}
@@ -0,0 +1,13 @@
+package com.minesweeper.service;
+
+public class GameBusyException extends RuntimeException {
+
+    /**
+     * 
+     */
+    private static final long serialVersionUID = 1L;
+
+    public GameBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,18 @@
+package com.minesweeper.service;
+
+/**
+ * Event published once an action is applied on a game, carrying the game's
+ * information with only the cells changed by the action (see BoardView.since)
+ */
+public class GameChangedEvent {
+
+    private final GameInfo change;
+
+    public GameChangedEvent(GameInfo change) {
+        this.change = change;
+    }
+
+    public GameInfo getChange() {
+        return change;
+    }
+}
@@ -0,0 +1,13 @@
+package com.minesweeper.service;
+
+public class GameConflictException extends RuntimeException {
+
+    /**
+     * 
+     */
+    private static final long serialVersionUID = 1L;
+
+    public GameConflictException(String message) {
+        super(message);
+    }
+}
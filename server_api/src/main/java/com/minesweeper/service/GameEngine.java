@@ -0,0 +1,174 @@
+package com.minesweeper.service;
+
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Engine that applies the actions on the games: the games are split on shards
+ * by their id, and each shard applies the actions on its games one at a time
+ * on its own thread, in the order they were submitted. So the actions on a
+ * game never wait for each other on a lock, and the actions on different
+ * games run in parallel on as many shards as there are.
+ *
+ * Each shard has a bounded queue of actions: an action submitted to a full
+ * shard is rejected (GameBusyException) instead of piling up requests
+ */
+public class GameEngine {
+
+    private final Shard[] shards;
+
+    /**
+     * @param shards
+     *            number of shards, threads applying actions
+     * @param queueCapacity
+     *            maximum number of actions waiting on each shard
+     */
+    public GameEngine(int shards, int queueCapacity) {
+        if (shards <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("invalid engine: " + shards + " shards of " + queueCapacity + " actions");
+        }
+        this.shards = new Shard[shards];
+        for (int shard = 0; shard < shards; shard++) {
+            this.shards[shard] = new Shard(shard, queueCapacity);
+        }
+    }
+
+    /**
+     * Submits an action on a game to the game's shard
+     *
+     * @param id
+     *            of the game
+     * @param action
+     *            run on the shard's thread
+     * @return the action's result, completed with GameBusyException if the
+     *         shard is full
+     */
+    public <T> CompletableFuture<T> submit(UUID id, Supplier<T> action) {
+        Shard shard = shards[getShard(id)];
+        CompletableFuture<T> result = new CompletableFuture<T>();
+        long submitted = System.nanoTime();
+        try {
+            shard.executor.execute(() -> {
+                T value = null;
+                Throwable failure = null;
+                try {
+                    value = action.get();
+                } catch (Throwable e) {
+                    failure = e;
+                }
+                // recorded before completing, so the metrics count the actions waited for
+                shard.record(System.nanoTime() - submitted);
+                if (failure == null) {
+                    result.complete(value);
+                } else {
+                    result.completeExceptionally(failure);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            shard.rejected.incrementAndGet();
+            result.completeExceptionally(new GameBusyException("Too many actions on the game's shard, try again: " + id));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the shard of a game, spreading the ids evenly
+     *
+     * @param id
+     * @return
+     */
+    public int getShard(UUID id) {
+        long bits = id.getMostSignificantBits() ^ id.getLeastSignificantBits();
+        bits ^= (bits >>> 33);
+        bits *= 0xff51afd7ed558ccdL;
+        bits ^= (bits >>> 33);
+        return (int) ((bits & Long.MAX_VALUE) % shards.length);
+    }
+
+    public int getShards() {
+        return shards.length;
+    }
+
+    /**
+     * Returns the number of actions waiting on a shard
+     *
+     * @param shard
+     * @return
+     */
+    public int getQueueDepth(int shard) {
+        return shards[shard].executor.getQueue().size();
+    }
+
+    /** actions applied and rejected by a shard **/
+    public long getCompleted(int shard) {
+        return shards[shard].completed.get();
+    }
+
+    public long getRejected(int shard) {
+        return shards[shard].rejected.get();
+    }
+
+    /**
+     * Returns the average time in microseconds since the actions applied by
+     * a shard were submitted until they were done, waiting included
+     *
+     * @param shard
+     * @return
+     */
+    public long getAverageLatency(int shard) {
+        long completed = shards[shard].completed.get();
+        return (completed > 0 ? shards[shard].latency.get() / completed / 1000 : 0);
+    }
+
+    /** maximum time in microseconds an action of a shard took **/
+    public long getMaxLatency(int shard) {
+        return shards[shard].maxLatency.get() / 1000;
+    }
+
+    /**
+     * Stops the shards once the actions submitted are done, it is called when
+     * the application stops
+     *
+     * @throws InterruptedException
+     */
+    public void close() throws InterruptedException {
+        for (Shard shard : shards) {
+            shard.executor.shutdown();
+        }
+        for (Shard shard : shards) {
+            shard.executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Thread applying the actions of a shard and its metrics
+     */
+    private static class Shard {
+
+        private final ThreadPoolExecutor executor;
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong latency = new AtomicLong();
+        private final AtomicLong maxLatency = new AtomicLong();
+
+        private Shard(int number, int queueCapacity) {
+            this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "game-shard-" + number);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        private void record(long nanos) {
+            completed.incrementAndGet();
+            latency.addAndGet(nanos);
+            maxLatency.accumulateAndGet(nanos, Math::max);
+        }
+    }
+}
@@ -7,6 +7,7 @@ public class GameInfo {
     public UUID id;
     public String status;
     public long duration;
+    public long version;
     public BoardInfo board;
     public String username;
 }
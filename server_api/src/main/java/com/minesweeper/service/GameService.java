@@ -1,18 +1,44 @@
 package com.minesweeper.service;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import com.minesweeper.model.BoardException;
+import com.minesweeper.model.BoardGenerator;
+import com.minesweeper.model.CellException;
+import com.minesweeper.model.CellPositionException;
 import com.minesweeper.model.Game;
-import com.minesweeper.repository.GameRepository;
+import com.minesweeper.model.Game.Status;
+import com.minesweeper.model.GameException;
+import com.minesweeper.model.GameMove;
+import com.minesweeper.service.MoveResultInfo.Result;
+import com.minesweeper.repository.GameStore;
 import com.minesweeper.security.SecurityContext;
 import com.minesweeper.security.UnauthorizedException;
 
 /**
- * Implementation of the Game Service
+ * Implementation of the Game Service. The actions are applied by the engine,
+ * on the thread of the game's shard (see GameEngine), and the requests wait
+ * for them. The games come from the store, which shares them between
+ * requests and writes them in the background, so a game is read and changed
+ * holding its monitor: only the reads and the store's writes compete with
+ * the shard for it. An action whose game was written by someone else
+ * meanwhile (see GameRepositoryCustom) is applied again on the game read
+ * again, up to MAX_ATTEMPTS times
  */
 @Service
 public class GameService implements IGameService {
@@ -20,49 +46,226 @@ public class GameService implements IGameService {
     public static int DEFAULT_ROWS = 10;
     public static int DEFAULT_COLUMNS = 10;
     public static int DEFAULT_MINES = 10;
+    public static int DEFAULT_REGION_SIZE = 64;
+    public static int MAX_MOVES = 256;
+    public static int DEFAULT_PAGE_SIZE = 20;
+    public static int MAX_PAGE_SIZE = 100;
+    public static int MAX_ATTEMPTS = 5;
 
-    private GameRepository repository;
+    private GameStore store;
+    private GameEngine engine;
+    private ApplicationEventPublisher publisher;
 
-    public GameService(GameRepository repository) {
-        this.repository = repository;
+    /** generator of the mines layout of the new games **/
+    private BoardGenerator generator;
+
+    /** actions failed because their game was written meanwhile, retried and given up **/
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public GameService(GameStore store, GameEngine engine, ApplicationEventPublisher publisher) {
+        this(store, engine, publisher, BoardGenerator.DEFAULT);
+    }
+
+    @Autowired
+    public GameService(GameStore store, GameEngine engine, ApplicationEventPublisher publisher, BoardGenerator generator) {
+        this.store = store;
+        this.engine = engine;
+        this.publisher = publisher;
+        this.generator = generator;
     }
 
     @Override
-    public GameInfo createGame(Integer rows, Integer columns, Integer mines) {
+    public GameInfo createGame(Integer rows, Integer columns, Integer mines, BoardView view) {
         String username = SecurityContext.getPrincipal();
         Game game = new Game(getParameter(rows, DEFAULT_ROWS), getParameter(columns, DEFAULT_COLUMNS), getParameter(mines, DEFAULT_MINES), username);
-        save(game);
-        return game.toGameInfo();
+        game.setBoardGenerator(generator);
+        synchronized (game) {
+            save(game);
+            return game.toGameInfo(view);
+        }
+    }
+
+    @Override
+    public GameInfo getGame(UUID id, BoardView view) {
+        Game game = get(id);
+        synchronized (game) {
+            return game.toGameInfo(view);
+        }
+    }
+
+    @Override
+    public GameInfo getGameState(UUID id) {
+        Game game = get(id, store.findSummaryById(id), SecurityContext.getPrincipal());
+        synchronized (game) {
+            return game.toStateInfo();
+        }
+    }
+
+    @Override
+    public GamesInfo getGames(String status, Integer page, Integer size) {
+        int pageNumber = getParameter(page, 0);
+        int pageSize = getParameter(size, DEFAULT_PAGE_SIZE);
+        if (pageNumber < 0 || pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("invalid page: " + pageNumber + " of size " + pageSize);
+        }
+        String username = SecurityContext.getPrincipal();
+        PageRequest request = PageRequest.of(pageNumber, pageSize, Sort.by(Sort.Direction.DESC, "startTime"));
+        Page<Game> games = store.findSummaries(username, (status != null ? getStatus(status) : null), request);
+        GamesInfo gamesInfo = new GamesInfo();
+        gamesInfo.games = new ArrayList<GameSummaryInfo>(games.getNumberOfElements());
+        games.forEach(game -> {
+            synchronized (game) {
+                gamesInfo.games.add(game.toSummaryInfo());
+            }
+        });
+        gamesInfo.page = pageNumber;
+        gamesInfo.size = pageSize;
+        gamesInfo.total = games.getTotalElements();
+        return gamesInfo;
+    }
+
+    @Override
+    public GameInfo getCells(UUID id, Integer row, Integer column, Integer height, Integer width, BoardView view) {
+        BoardView region = new BoardView(view != null ? view.since : null, view != null && view.packed, getParameter(row, 0),
+                getParameter(column, 0), getParameter(height, DEFAULT_REGION_SIZE), getParameter(width, DEFAULT_REGION_SIZE));
+        Game game = get(id);
+        synchronized (game) {
+            return game.toGameInfo(region);
+        }
     }
 
     @Override
-    public GameInfo getGame(UUID id) {
-        return get(id).toGameInfo();
+    public GameInfo uncoverCell(UUID id, Integer row, Integer column, BoardView view) {
+        return executeAndSave(id, row, column, view, game -> game.uncoverCell(row, column));
     }
 
     @Override
-    public GameInfo uncoverCell(UUID id, Integer row, Integer column) {
-        return executeAndSave(id, row, column, game -> game.uncoverCell(row, column));
+    public GameInfo chordCell(UUID id, Integer row, Integer column, BoardView view) {
+        return executeAndSave(id, row, column, view, game -> game.chordCell(row, column));
     }
 
     @Override
-    public GameInfo setRedFlag(UUID id, Integer row, Integer column) {
-        return executeAndSave(id, row, column, game -> game.setRedFlag(row, column));
+    public GameInfo setRedFlag(UUID id, Integer row, Integer column, BoardView view) {
+        return executeAndSave(id, row, column, view, game -> game.setRedFlag(row, column));
     }
 
     @Override
-    public GameInfo removeRedFlag(UUID id, Integer row, Integer column) {
-        return executeAndSave(id, row, column, game -> game.removeRedFlag(row, column));
+    public GameInfo removeRedFlag(UUID id, Integer row, Integer column, BoardView view) {
+        return executeAndSave(id, row, column, view, game -> game.removeRedFlag(row, column));
     }
 
     @Override
-    public GameInfo setQuestionMark(UUID id, Integer row, Integer column) {
-        return executeAndSave(id, row, column, game -> game.setQuestionMark(row, column));
+    public GameInfo setQuestionMark(UUID id, Integer row, Integer column, BoardView view) {
+        return executeAndSave(id, row, column, view, game -> game.setQuestionMark(row, column));
     }
 
     @Override
-    public GameInfo removeQuestionMark(UUID id, Integer row, Integer column) {
-        return executeAndSave(id, row, column, game -> game.removeQuestionMark(row, column));
+    public GameInfo removeQuestionMark(UUID id, Integer row, Integer column, BoardView view) {
+        return executeAndSave(id, row, column, view, game -> game.removeQuestionMark(row, column));
+    }
+
+    @Override
+    public MovesInfo applyMoves(UUID id, List<MoveInfo> moves, BoardView view) {
+        if (moves == null || moves.isEmpty() || moves.size() > MAX_MOVES) {
+            throw new IllegalArgumentException("invalid number of moves: " + (moves != null ? moves.size() : 0));
+        }
+        return execute(id, game -> {
+            long version = game.getVersion();
+            MovesInfo movesInfo = new MovesInfo();
+            movesInfo.moves = new ArrayList<MoveResultInfo>(moves.size());
+            for (MoveInfo move : moves) {
+                movesInfo.moves.add(applyMove(game, move));
+            }
+            if (game.getVersion() != version) {
+                save(game);
+                publisher.publishEvent(new GameChangedEvent(game.toGameInfo(new BoardView(version, false))));
+            }
+            movesInfo.game = game.toGameInfo(view);
+            return movesInfo;
+        });
+    }
+
+    @Override
+    public List<MoveInfo> getMoves(UUID id, Long since) {
+        long from = (since != null ? since : 0);
+        Game game = get(id);
+        synchronized (game) {
+            if (from < 0 || from > game.getVersion()) {
+                throw new IllegalArgumentException("invalid version: " + from);
+            }
+            Optional<List<GameMove>> logged = store.getMoves(id, from);
+            if (!logged.isPresent()) {
+                throw new IllegalArgumentException("the moves of the games are not logged");
+            }
+            // the moves not written yet are still on the game
+            List<GameMove> moves = new ArrayList<GameMove>(logged.get());
+            long last = (moves.isEmpty() ? from : moves.get(moves.size() - 1).getVersion());
+            for (GameMove move : game.getMoves()) {
+                if (move.getVersion() > last) {
+                    moves.add(move);
+                }
+            }
+            if (moves.size() != game.getVersion() - from) {
+                throw new IllegalArgumentException("the moves up to version " + (game.getVersion() - moves.size()) + " are no longer logged");
+            }
+            List<MoveInfo> movesInfo = new ArrayList<MoveInfo>(moves.size());
+            for (GameMove move : moves) {
+                movesInfo.add(new MoveInfo(move.getAction(), move.getRow(), move.getColumn()));
+            }
+            return movesInfo;
+        }
+    }
+
+    private MoveResultInfo applyMove(Game game, MoveInfo move) {
+        if (game.getStatus() != Status.Started) {
+            return new MoveResultInfo(Result.Skipped, null);
+        }
+        if (move == null || move.row == null || move.column == null) {
+            return new MoveResultInfo(Result.Rejected, "missing position");
+        }
+        Consumer<Game> action = getAction(move.action, move.row, move.column);
+        if (action == null) {
+            return new MoveResultInfo(Result.Rejected, "invalid action: " + move.action);
+        }
+        try {
+            action.accept(game);
+            return new MoveResultInfo(Result.Applied, null);
+        } catch (GameException | BoardException | CellException | CellPositionException e) {
+            return new MoveResultInfo(Result.Rejected, e.getMessage());
+        }
+    }
+
+    private Consumer<Game> getAction(String action, int row, int column) {
+        if (action == null) {
+            return null;
+        }
+        switch (action) {
+        case MoveInfo.UNCOVER:
+            return game -> game.uncoverCell(row, column);
+        case MoveInfo.CHORD:
+            return game -> game.chordCell(row, column);
+        case MoveInfo.FLAG:
+            return game -> game.setRedFlag(row, column);
+        case MoveInfo.UNFLAG:
+            return game -> game.removeRedFlag(row, column);
+        case MoveInfo.QUESTION:
+            return game -> game.setQuestionMark(row, column);
+        case MoveInfo.UNQUESTION:
+            return game -> game.removeQuestionMark(row, column);
+        default:
+            return null;
+        }
+    }
+
+    private Status getStatus(String status) {
+        for (Status value : Status.values()) {
+            if (value.name().equals(status)) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("invalid status: " + status);
     }
 
     private Integer getParameter(Integer value, int defaultValue) {
@@ -70,26 +273,100 @@ public class GameService implements IGameService {
     }
 
     private void save(Game game) {
-        repository.save(game);
+        store.save(game);
     }
 
     private Game get(UUID id) {
-        Optional<Game> game = repository.findById(id);
+        return get(id, SecurityContext.getPrincipal());
+    }
+
+    private Game get(UUID id, String principal) {
+        return get(id, store.findById(id), principal);
+    }
+
+    private Game get(UUID id, Optional<Game> game, String principal) {
         if (game.isPresent()) {
-            return getGameIfBelongsToPrincipal(game.get());
+            return getGameIfBelongsTo(game.get(), principal);
         }
         throw new GameNotFoundException("Game not found: " + id);
     }
 
-    private GameInfo executeAndSave(UUID id, Integer row, Integer column, Consumer<Game> action) {
-        Game game = get(id);
-        action.accept(game);
-        save(game);
-        return game.toGameInfo();
+    private GameInfo executeAndSave(UUID id, Integer row, Integer column, BoardView view, Consumer<Game> action) {
+        return execute(id, game -> {
+            long version = game.getVersion();
+            action.accept(game);
+            save(game);
+            publisher.publishEvent(new GameChangedEvent(game.toGameInfo(new BoardView(version, false))));
+            return game.toGameInfo(view);
+        });
+    }
+
+    /**
+     * Executes an operation that changes and saves a game on the game's shard,
+     * waiting for it. The principal is taken here, since it belongs to the
+     * request's thread, and the game is loaded here too: the shard then finds
+     * it on the store instead of waiting for the database, which would hold
+     * the actions of every other game of the shard
+     * 
+     * @param id
+     * @param operation
+     * @return the result of the operation
+     */
+    private <T> T execute(UUID id, Function<Game, T> operation) {
+        String principal = SecurityContext.getPrincipal();
+        get(id, principal);
+        try {
+            return engine.submit(id, () -> executeOnShard(id, principal, operation)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Executes an operation holding the game's monitor. If the game was
+     * written by someone else meanwhile, the store drops it and the operation
+     * is executed again on the game read again
+     * 
+     * @param id
+     * @param principal
+     * @param operation
+     * @return the result of the operation
+     */
+    private <T> T executeOnShard(UUID id, String principal, Function<Game, T> operation) {
+        for (int attempt = 1;; attempt++) {
+            Game game = get(id, principal);
+            try {
+                synchronized (game) {
+                    return operation.apply(game);
+                }
+            } catch (OptimisticLockingFailureException e) {
+                conflicts.incrementAndGet();
+                if (attempt >= MAX_ATTEMPTS) {
+                    failures.incrementAndGet();
+                    throw new GameConflictException("Game changed concurrently, try again: " + id);
+                }
+                retries.incrementAndGet();
+            }
+        }
+    }
+
+    public long getConflicts() {
+        return conflicts.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
     }
 
-    private Game getGameIfBelongsToPrincipal(Game game) {
-        if (game.belongsTo(SecurityContext.getPrincipal())) {
+    private Game getGameIfBelongsTo(Game game, String principal) {
+        if (game.belongsTo(principal)) {
             return game;
         }
         throw new UnauthorizedException("Game does not belong to user");
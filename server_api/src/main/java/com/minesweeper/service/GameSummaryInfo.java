@@ -0,0 +1,19 @@
+package com.minesweeper.service;
+
+import java.util.UUID;
+
+/**
+ * Summary of a game on the list of games of a user, built without its cells
+ */
+public class GameSummaryInfo {
+
+    public UUID id;
+    public String status;
+    public int rows;
+    public int columns;
+    public int mines;
+    public long duration;
+
+    /** percentage of the cells without mine already uncovered **/
+    public int progress;
+}
@@ -0,0 +1,18 @@
+package com.minesweeper.service;
+
+import java.util.List;
+
+/**
+ * A page of the games of a user, the most recently started first
+ */
+public class GamesInfo {
+
+    public List<GameSummaryInfo> games;
+
+    /** number of the page, starting at 0, and maximum number of games on it **/
+    public int page;
+    public int size;
+
+    /** number of games of the user (with the status asked for, if any) **/
+    public long total;
+}
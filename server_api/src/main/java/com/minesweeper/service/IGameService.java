@@ -1,5 +1,6 @@
 package com.minesweeper.service;
 
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -17,18 +18,68 @@ public interface IGameService {
      *            of the game's board
      * @param mines
      *            hidden on the game's board
+     * @param view
+     *            how the client wants the board (null for its cells)
      * @return the game information
      */
-    public GameInfo createGame(Integer rows, Integer columns, Integer mines);
+    public GameInfo createGame(Integer rows, Integer columns, Integer mines, BoardView view);
 
     /**
      * Returns the information of a game given its id
      * 
      * @param id
      *            of the game
+     * @param view
+     *            how the client wants the board: only the cells changed since
+     *            a version it knows, packed or not (null for the whole board)
      * @return the game information
      */
-    public GameInfo getGame(UUID id);
+    public GameInfo getGame(UUID id, BoardView view);
+
+    /**
+     * Returns the information of a game without its board, which is not
+     * loaded: enough to tell whether the game changed through its version
+     * 
+     * @param id
+     *            of the game
+     * @return the game information without board
+     */
+    public GameInfo getGameState(UUID id);
+
+    /**
+     * Returns a page of the games of the principal, the most recently started
+     * first. Only their summaries are loaded, never their boards' cells
+     * 
+     * @param status
+     *            of the games (null for all of them)
+     * @param page
+     *            number, starting at 0 (0 if not provided)
+     * @param size
+     *            of the page (a default size if not provided)
+     * @return the summaries of the games
+     */
+    public GamesInfo getGames(String status, Integer page, Integer size);
+
+    /**
+     * Returns the information of a game with only a region of its board, if
+     * its position or size are not provided default values are used
+     * 
+     * @param id
+     *            of the game
+     * @param row
+     *            of the region's first cell
+     * @param column
+     *            of the region's first cell
+     * @param height
+     *            of the region
+     * @param width
+     *            of the region
+     * @param view
+     *            how the client wants the region: only the cells changed
+     *            since a version it knows, packed or not (null for its cells)
+     * @return the game information
+     */
+    public GameInfo getCells(UUID id, Integer row, Integer column, Integer height, Integer width, BoardView view);
 
     /**
      * Uncovers/reveals a given cell
@@ -39,9 +90,30 @@ public interface IGameService {
      *            of the cell
      * @param column
      *            of the cell
+     * @param view
+     *            how the client wants the board: only the cells changed since
+     *            a version it knows, packed or not (null for the whole board)
+     * @return the game information
+     */
+    public GameInfo uncoverCell(UUID id, Integer row, Integer column, BoardView view);
+
+    /**
+     * Chords a given uncovered cell: if its adjacent flags match its adjacent
+     * mines, all its other covered adjacent cells are uncovered in cascade as
+     * a single action, saved once
+     * 
+     * @param id
+     *            of the game where the cell belongs to
+     * @param row
+     *            of the cell
+     * @param column
+     *            of the cell
+     * @param view
+     *            how the client wants the board: only the cells changed since
+     *            a version it knows, packed or not (null for the whole board)
      * @return the game information
      */
-    public GameInfo uncoverCell(UUID id, Integer row, Integer column);
+    public GameInfo chordCell(UUID id, Integer row, Integer column, BoardView view);
 
     /**
      * Sets a red flag on a given cell
@@ -52,9 +124,12 @@ public interface IGameService {
      *            of the cell
      * @param column
      *            of the cell
+     * @param view
+     *            how the client wants the board: only the cells changed since
+     *            a version it knows, packed or not (null for the whole board)
      * @return the game information
      */
-    public GameInfo setRedFlag(UUID id, Integer row, Integer column);
+    public GameInfo setRedFlag(UUID id, Integer row, Integer column, BoardView view);
 
     /**
      * Removes a red flag on a given cell
@@ -65,9 +140,12 @@ public interface IGameService {
      *            of the cell
      * @param column
      *            of the cell
+     * @param view
+     *            how the client wants the board: only the cells changed since
+     *            a version it knows, packed or not (null for the whole board)
      * @return the game information
      */
-    public GameInfo removeRedFlag(UUID id, Integer row, Integer column);
+    public GameInfo removeRedFlag(UUID id, Integer row, Integer column, BoardView view);
 
     /**
      * Sets a question mark on a given cell
@@ -78,9 +156,12 @@ public interface IGameService {
      *            of the cell
      * @param column
      *            of the cell
+     * @param view
+     *            how the client wants the board: only the cells changed since
+     *            a version it knows, packed or not (null for the whole board)
      * @return the game information
      */
-    public GameInfo setQuestionMark(UUID id, Integer row, Integer column);
+    public GameInfo setQuestionMark(UUID id, Integer row, Integer column, BoardView view);
 
     /**
      * Removes a question mark on a given cell
@@ -91,7 +172,39 @@ public interface IGameService {
      *            of the cell
      * @param column
      *            of the cell
+     * @param view
+     *            how the client wants the board: only the cells changed since
+     *            a version it knows, packed or not (null for the whole board)
      * @return the game information
      */
-    public GameInfo removeQuestionMark(UUID id, Integer row, Integer column);
+    public GameInfo removeQuestionMark(UUID id, Integer row, Integer column, BoardView view);
+
+    /**
+     * Applies a batch of moves in order on a game, which is loaded and saved
+     * once. A move that can not be applied is rejected without changing the
+     * game and the moves after the end of the game are skipped
+     * 
+     * @param id
+     *            of the game
+     * @param moves
+     *            actions on cells (see MoveInfo)
+     * @param view
+     *            how the client wants the board: only the cells changed since
+     *            a version it knows, packed or not (null for the whole board)
+     * @return the result of each move and the game information
+     */
+    public MovesInfo applyMoves(UUID id, List<MoveInfo> moves, BoardView view);
+
+    /**
+     * Returns the moves applied on a game after a version, in order, to replay
+     * them. The moves are only logged when the games are persisted as events,
+     * and only the ones after the game's last snapshot are kept
+     * 
+     * @param id
+     *            of the game
+     * @param since
+     *            version of the game (0 if not provided)
+     * @return the moves
+     */
+    public List<MoveInfo> getMoves(UUID id, Long since);
 }
@@ -0,0 +1,32 @@
+package com.minesweeper.service;
+
+import com.minesweeper.model.GameMove;
+
+/**
+ * Action on a cell of a batch of moves
+ */
+public class MoveInfo {
+
+    public static final String UNCOVER = GameMove.UNCOVER;
+    public static final String CHORD = GameMove.CHORD;
+    public static final String FLAG = GameMove.FLAG;
+    public static final String UNFLAG = GameMove.UNFLAG;
+    public static final String QUESTION = GameMove.QUESTION;
+    public static final String UNQUESTION = GameMove.UNQUESTION;
+
+    /** one of the actions above **/
+    public String action;
+
+    /** position of the cell **/
+    public Integer row;
+    public Integer column;
+
+    public MoveInfo() {
+    }
+
+    public MoveInfo(String action, int row, int column) {
+        this.action = action;
+        this.row = row;
+        this.column = column;
+    }
+}
@@ -0,0 +1,27 @@
+package com.minesweeper.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+/**
+ * Result of a move of a batch: applied, rejected (with the error, the move did
+ * not change the game) or skipped because the game was already over
+ */
+@JsonInclude(Include.NON_NULL)
+public class MoveResultInfo {
+
+    public enum Result {
+        Applied, Rejected, Skipped
+    }
+
+    public String result;
+    public String error;
+
+    public MoveResultInfo() {
+    }
+
+    public MoveResultInfo(Result result, String error) {
+        this.result = result.name();
+        this.error = error;
+    }
+}
@@ -0,0 +1,13 @@
+package com.minesweeper.service;
+
+import java.util.List;
+
+/**
+ * Results of a batch of moves, in the order of the moves, and the game once
+ * they were applied
+ */
+public class MovesInfo {
+
+    public List<MoveResultInfo> moves;
+    public GameInfo game;
+}
@@ -0,0 +1,54 @@
+package com.minesweeper.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import com.minesweeper.model.Game;
+import com.minesweeper.model.GameMove;
+
+public class IndexCreatorTest {
+
+    @Test
+    public void testIndexesAreCreatedEvenIfTheOnesOfAnotherDocumentFail() {
+        MongoOperations operations = mock(MongoOperations.class);
+        when(operations.getConverter()).thenReturn(getConverter());
+        IndexOperations gameIndexes = mock(IndexOperations.class);
+        IndexOperations moveIndexes = mock(IndexOperations.class);
+        when(operations.indexOps(Game.class)).thenReturn(gameIndexes);
+        when(operations.indexOps(GameMove.class)).thenReturn(moveIndexes);
+        when(gameIndexes.ensureIndex(any())).thenThrow(new DataAccessResourceFailureException("not reachable"));
+        new IndexCreator(operations, Game.class, GameMove.class).createIndexes();
+        ArgumentCaptor<IndexDefinition> game = ArgumentCaptor.forClass(IndexDefinition.class);
+        verify(gameIndexes).ensureIndex(game.capture());
+        assertEquals("username_status_startTime", game.getValue().getIndexOptions().get("name"));
+        ArgumentCaptor<IndexDefinition> move = ArgumentCaptor.forClass(IndexDefinition.class);
+        verify(moveIndexes).ensureIndex(move.capture());
+        assertEquals("gameId_version", move.getValue().getIndexOptions().get("name"));
+    }
+
+    private MappingMongoConverter getConverter() {
+        MongoCustomConversions conversions = new MongoCustomConversions(Collections.emptyList());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+}
@@ -0,0 +1,49 @@
+package com.minesweeper.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import com.minesweeper.repository.GameStore;
+import com.minesweeper.service.GameEngine;
+import com.minesweeper.service.GameService;
+
+public class MetricsReporterTest {
+
+    @Test
+    public void testReportHasTheCountersOfTheStoreTheServiceAndEachShard() {
+        GameStore store = mock(GameStore.class);
+        when(store.size()).thenReturn(10);
+        when(store.countDirty()).thenReturn(2);
+        when(store.getHits()).thenReturn(30L);
+        when(store.getMisses()).thenReturn(4L);
+        when(store.getEvictions()).thenReturn(5L);
+        when(store.getDirtyEvictions()).thenReturn(1L);
+        when(store.getWrites()).thenReturn(20L);
+        when(store.getWriteErrors()).thenReturn(3L);
+        when(store.getConflicts()).thenReturn(6L);
+        GameService service = mock(GameService.class);
+        when(service.getConflicts()).thenReturn(7L);
+        when(service.getRetries()).thenReturn(6L);
+        when(service.getFailures()).thenReturn(1L);
+        GameEngine engine = mock(GameEngine.class);
+        when(engine.getShards()).thenReturn(2);
+        when(engine.getQueueDepth(1)).thenReturn(3);
+        when(engine.getCompleted(0)).thenReturn(40L);
+        when(engine.getCompleted(1)).thenReturn(50L);
+        when(engine.getRejected(1)).thenReturn(2L);
+        when(engine.getAverageLatency(0)).thenReturn(120L);
+        when(engine.getMaxLatency(0)).thenReturn(900L);
+        MetricsReporter reporter = new MetricsReporter(store, service, engine, 0);
+        assertEquals(Arrays.asList(
+                "store: 10 games, 2 dirty, 30 hits, 4 misses, 5 evictions (1 dirty), 20 writes, 3 write errors, 6 conflicts",
+                "service: 7 conflicts, 6 retries, 1 failures",
+                "shard 0: 0 queued, 40 completed, 0 rejected, 120 us average latency, 900 us max latency",
+                "shard 1: 3 queued, 50 completed, 2 rejected, 0 us average latency, 0 us max latency"), reporter.getReport());
+        reporter.close();
+    }
+}
@@ -0,0 +1,124 @@
+package com.minesweeper.controller;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.minesweeper.service.BoardInfo;
+import com.minesweeper.service.BoardView;
+import com.minesweeper.service.GameInfo;
+import com.minesweeper.service.GameService;
+
+public class BoardViewResolverTest {
+
+    private final GameService service = mock(GameService.class);
+    private final UUID id = UUID.randomUUID();
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setUp() {
+        GameInfo gameInfo = new GameInfo();
+        gameInfo.id = id;
+        gameInfo.status = "Started";
+        gameInfo.version = 3;
+        gameInfo.board = new BoardInfo();
+        gameInfo.board.rows = 2;
+        gameInfo.board.columns = 2;
+        gameInfo.board.packed = new byte[] { (byte) 0x9A, 0x12 };
+        when(service.getGame(eq(id), any(BoardView.class))).thenReturn(gameInfo);
+        when(service.getGameState(id)).thenReturn(gameInfo);
+        GameResponseCache responses = new GameResponseCache(
+                Arrays.asList(new MappingJackson2HttpMessageConverter(), new GameInfoOctetStreamConverter()), 16, 1 << 20);
+        mockMvc = MockMvcBuilders.standaloneSetup(new GameController(service, responses, mock(GameEventStreams.class)))
+                .setCustomArgumentResolvers(new BoardViewResolver())
+                .setMessageConverters(new ByteArrayHttpMessageConverter(), new MappingJackson2HttpMessageConverter(), new GameInfoOctetStreamConverter())
+                .build();
+    }
+
+    @Test
+    public void testSinceParameterIsPassedToTheService() throws Exception {
+        mockMvc.perform(get("/minesweeper/" + id).param("since", "5")).andExpect(status().isOk());
+        BoardView view = getView();
+        assertEquals(5L, view.since.longValue());
+        assertFalse(view.packed);
+    }
+
+    @Test
+    public void testPackedJsonReturnsTheCellsAsBase64() throws Exception {
+        MvcResult result = mockMvc.perform(get("/minesweeper/" + id).param("since", "5").header(HttpHeaders.ACCEPT, BoardView.PACKED_JSON_VALUE))
+                .andExpect(status().isOk()).andReturn();
+        BoardView view = getView();
+        assertTrue(view.packed);
+        assertEquals(5L, view.since.longValue());
+        assertTrue(result.getResponse().getContentAsString().contains("\"packed\":\"mhI=\""));
+    }
+
+    @Test
+    public void testOctetStreamReturnsTheCellsAsBody() throws Exception {
+        MvcResult result = mockMvc.perform(get("/minesweeper/" + id).param("since", "5").header(HttpHeaders.ACCEPT, MediaType.APPLICATION_OCTET_STREAM_VALUE))
+                .andExpect(status().isOk()).andReturn();
+        BoardView view = getView();
+        assertTrue(view.packed);
+        assertNull(view.since);
+        assertArrayEquals(new byte[] { (byte) 0x9A, 0x12 }, result.getResponse().getContentAsByteArray());
+        assertEquals("Started", result.getResponse().getHeader("X-Game-Status"));
+        assertEquals("2", result.getResponse().getHeader("X-Board-Columns"));
+    }
+
+    @Test
+    public void testInvalidSinceReturns400() throws Exception {
+        mockMvc.perform(get("/minesweeper/" + id).param("since", "x")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testViewportParameterIsPassedToTheService() throws Exception {
+        mockMvc.perform(get("/minesweeper/" + id).param("viewport", "10,20,30,40")).andExpect(status().isOk());
+        BoardView view = getView();
+        assertTrue(view.hasViewport());
+        assertEquals(10, view.row.intValue());
+        assertEquals(20, view.column.intValue());
+        assertEquals(30, view.height.intValue());
+        assertEquals(40, view.width.intValue());
+    }
+
+    @Test
+    public void testInvalidViewportReturns400() throws Exception {
+        mockMvc.perform(get("/minesweeper/" + id).param("viewport", "10,20,30")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testCellsEndpointPassesTheRegionToTheService() throws Exception {
+        mockMvc.perform(get("/minesweeper/" + id + "/cells").param("row", "1").param("column", "2").param("height", "3").param("width", "4"))
+                .andExpect(status().isOk());
+        verify(service).getCells(eq(id), eq(1), eq(2), eq(3), eq(4), any(BoardView.class));
+    }
+
+    private BoardView getView() {
+        ArgumentCaptor<BoardView> view = ArgumentCaptor.forClass(BoardView.class);
+        verify(service).getGame(eq(id), view.capture());
+        return view.getValue();
+    }
+}
@@ -31,6 +31,7 @@ import com.minesweeper.model.User;
 import com.minesweeper.repository.UserRepository;
 import com.minesweeper.security.PasswordAuthenticator;
 import com.minesweeper.service.GameInfo;
+import com.minesweeper.service.MovesInfo;
 
 @SpringBootTest(properties = "spring.data.mongodb.database=test")
 @AutoConfigureMockMvc
@@ -180,6 +181,19 @@ public class GameControllerTest {
         verifyError(result, HttpStatus.BAD_REQUEST, "cannot remove question mark");
     }
 
+    @Test
+    public void testApplyMovesReturnsTheResultsAndTheGameInfo() throws Exception {
+        UUID gameId = createNewGame().id;
+        String moves = "[{\"action\": \"flag\", \"row\": 1, \"column\": 1}, {\"action\": \"jump\", \"row\": 1, \"column\": 1}]";
+        MvcResult result = mockMvc.perform(post("/minesweeper/" + gameId + "/moves").header("Authorization", TOKEN)
+                .contentType(MediaType.APPLICATION_JSON).content(moves)).andExpect(status().isOk()).andReturn();
+        MovesInfo movesInfo = fromJson(result, MovesInfo.class);
+        assertEquals("Applied", movesInfo.moves.get(0).result);
+        assertEquals("Rejected", movesInfo.moves.get(1).result);
+        assertEquals(gameId, movesInfo.game.id);
+        assertEquals("F", movesInfo.game.board.cells.get(1).get(1));
+    }
+
     private GameInfo createNewGame() throws Exception {
         MvcResult result = mockMvc.perform(
                 post("/minesweeper/").header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_FORM_URLENCODED_VALUE).header("Authorization", TOKEN))
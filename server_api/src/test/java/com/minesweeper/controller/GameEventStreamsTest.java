@@ -0,0 +1,117 @@
+package com.minesweeper.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.minesweeper.service.BoardInfo;
+import com.minesweeper.service.BoardView;
+import com.minesweeper.service.CellChangeInfo;
+import com.minesweeper.service.GameChangedEvent;
+import com.minesweeper.service.GameInfo;
+import com.minesweeper.service.GameService;
+
+public class GameEventStreamsTest {
+
+    private final UUID id = UUID.randomUUID();
+    private final GameService service = mock(GameService.class);
+    private final List<Runnable> pending = new ArrayList<Runnable>();
+    private GameEventStreams events;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setUp() {
+        // senders run only when the test says so
+        events = new GameEventStreams(new ObjectMapper(), pending::add, 2, 60000);
+        GameInfo game = createChange(3);
+        game.board.changes = null;
+        game.board.cells = Collections.singletonList(Collections.singletonList("C"));
+        when(service.getGameState(id)).thenReturn(game);
+        when(service.getGame(eq(id), any(BoardView.class))).thenReturn(game);
+        mockMvc = MockMvcBuilders.standaloneSetup(new GameController(service, mock(GameResponseCache.class), events))
+                .setCustomArgumentResolvers(new BoardViewResolver()).build();
+    }
+
+    @Test
+    public void testSubscriberGetsTheGameAndThenTheChanges() throws Exception {
+        MvcResult result = mockMvc.perform(get("/minesweeper/" + id + "/events")).andExpect(request().asyncStarted()).andReturn();
+        events.onGameChanged(new GameChangedEvent(createChange(4)));
+        runSenders();
+        String content = result.getResponse().getContentAsString();
+        assertTrue(content.startsWith("id:3\nevent:game\ndata:{"));
+        assertTrue(content.contains("\"cells\":[[\"C\"]]"));
+        assertTrue(content.endsWith("id:4\nevent:change\ndata:" + new ObjectMapper().writeValueAsString(createChange(4)) + "\n\n"));
+    }
+
+    @Test
+    public void testChangesNotNewerThanTheGameAreSkipped() throws Exception {
+        MvcResult result = mockMvc.perform(get("/minesweeper/" + id + "/events")).andReturn();
+        events.onGameChanged(new GameChangedEvent(createChange(3)));
+        events.onGameChanged(new GameChangedEvent(createChange(5)));
+        runSenders();
+        String content = result.getResponse().getContentAsString();
+        assertFalse(content.contains("id:3\nevent:change"));
+        assertTrue(content.contains("id:5\nevent:change"));
+    }
+
+    @Test
+    public void testEveryChangeIsSentToEverySubscriber() throws Exception {
+        MvcResult first = mockMvc.perform(get("/minesweeper/" + id + "/events")).andReturn();
+        MvcResult second = mockMvc.perform(get("/minesweeper/" + id + "/events")).andReturn();
+        assertEquals(2, events.countSubscribers(id));
+        events.onGameChanged(new GameChangedEvent(createChange(4)));
+        runSenders();
+        assertTrue(first.getResponse().getContentAsString().contains("id:4\nevent:change"));
+        assertTrue(second.getResponse().getContentAsString().contains("id:4\nevent:change"));
+    }
+
+    @Test
+    public void testSlowSubscriberIsClosedWithoutBlockingTheChanges() throws Exception {
+        mockMvc.perform(get("/minesweeper/" + id + "/events")).andReturn();
+        // nothing is sent, so the queue of 2 events overflows on the third
+        for (long version = 4; version < 7; version++) {
+            events.onGameChanged(new GameChangedEvent(createChange(version)));
+        }
+        assertEquals(0, events.countSubscribers(id));
+    }
+
+    @Test
+    public void testChangesOfGamesWithoutSubscribersAreNotQueued() {
+        events.onGameChanged(new GameChangedEvent(createChange(4)));
+        assertTrue(pending.isEmpty());
+    }
+
+    private void runSenders() {
+        while (!pending.isEmpty()) {
+            pending.remove(0).run();
+        }
+    }
+
+    private GameInfo createChange(long version) {
+        GameInfo change = new GameInfo();
+        change.id = id;
+        change.status = "Started";
+        change.version = version;
+        change.board = new BoardInfo();
+        change.board.changes = Collections.singletonList(new CellChangeInfo(0, 0, "F"));
+        return change;
+    }
+}
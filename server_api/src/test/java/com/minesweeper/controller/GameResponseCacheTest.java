@@ -0,0 +1,171 @@
+package com.minesweeper.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.minesweeper.model.GameMove;
+import com.minesweeper.repository.EventSourcedGameRepository;
+import com.minesweeper.repository.FakeGameRepository;
+import com.minesweeper.repository.FakeMoveLog;
+import com.minesweeper.repository.GameStore;
+import com.minesweeper.repository.IGameRepository;
+import com.minesweeper.security.SecurityContext;
+import com.minesweeper.service.BoardInfo;
+import com.minesweeper.service.BoardView;
+import com.minesweeper.service.GameEngine;
+import com.minesweeper.service.GameInfo;
+import com.minesweeper.service.GameService;
+
+public class GameResponseCacheTest {
+
+    private final List<HttpMessageConverter<?>> converters = Arrays.asList(new MappingJackson2HttpMessageConverter(),
+            new GameInfoOctetStreamConverter());
+    private final GameService service = mock(GameService.class);
+    private final UUID id = UUID.randomUUID();
+    private GameInfo gameInfo;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setUp() {
+        gameInfo = createGameInfo(id, 7, "Started");
+        when(service.getGameState(id)).thenReturn(gameInfo);
+        when(service.getGame(eq(id), any(BoardView.class))).thenReturn(gameInfo);
+        GameResponseCache responses = new GameResponseCache(converters, 16, 1 << 20);
+        mockMvc = MockMvcBuilders.standaloneSetup(new GameController(service, responses, mock(GameEventStreams.class)))
+                .setCustomArgumentResolvers(new BoardViewResolver()).build();
+    }
+
+    @Test
+    public void testGetGameReturnsTheVersionAsETag() throws Exception {
+        mockMvc.perform(get("/minesweeper/" + id)).andExpect(status().isOk()).andExpect(header().string(HttpHeaders.ETAG, "\"7\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"));
+    }
+
+    @Test
+    public void testGetGameWithTheCurrentETagReturns304WithoutLoadingTheGame() throws Exception {
+        mockMvc.perform(get("/minesweeper/" + id).header(HttpHeaders.IF_NONE_MATCH, "\"7\"")).andExpect(status().isNotModified());
+        verify(service, never()).getGame(eq(id), any(BoardView.class));
+    }
+
+    @Test
+    public void testGetGameWithAnOldETagReturnsTheGame() throws Exception {
+        mockMvc.perform(get("/minesweeper/" + id).header(HttpHeaders.IF_NONE_MATCH, "\"6\"")).andExpect(status().isOk());
+        verify(service, times(1)).getGame(eq(id), any(BoardView.class));
+    }
+
+    @Test
+    public void testGetGameEvictedWithMovesAfterItsSnapshotReturnsTheVersionOfTheLastMove() throws Exception {
+        FakeGameRepository snapshots = new FakeGameRepository();
+        IGameRepository games = new EventSourcedGameRepository(snapshots, FakeMoveLog.operations(new ArrayList<GameMove>()), 64);
+        GameEngine engine = new GameEngine(1, 16);
+        GameService events = new GameService(new GameStore(snapshots, games, 1, 0, null), engine, mock(ApplicationEventPublisher.class));
+        SecurityContext.setPrincipal("user");
+        UUID gameId = events.createGame(10, 10, 8, null).id;
+        events.setRedFlag(gameId, 0, 0, new BoardView());
+        events.setRedFlag(gameId, 0, 1, new BoardView());
+        // evicts the game, whose snapshot is still the one of version 0
+        events.createGame(10, 10, 8, null);
+        GameResponseCache responses = new GameResponseCache(converters, 16, 1 << 20);
+        MockMvc eventsMvc = MockMvcBuilders.standaloneSetup(new GameController(events, responses, mock(GameEventStreams.class)))
+                .setCustomArgumentResolvers(new BoardViewResolver()).build();
+        eventsMvc.perform(get("/minesweeper/" + gameId).header(HttpHeaders.IF_NONE_MATCH, "\"0\"")).andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""));
+        eventsMvc.perform(get("/minesweeper/" + gameId).header(HttpHeaders.IF_NONE_MATCH, "\"2\"")).andExpect(status().isNotModified());
+        engine.close();
+    }
+
+    @Test
+    public void testGetGameWithoutChangesIsServedFromTheCache() throws Exception {
+        String first = mockMvc.perform(get("/minesweeper/" + id)).andReturn().getResponse().getContentAsString();
+        String second = mockMvc.perform(get("/minesweeper/" + id)).andReturn().getResponse().getContentAsString();
+        assertEquals(first, second);
+        assertTrue(second.contains("\"version\":7"));
+        verify(service, times(1)).getGame(eq(id), any(BoardView.class));
+        // each representation has its own entry
+        mockMvc.perform(get("/minesweeper/" + id).header(HttpHeaders.ACCEPT, MediaType.APPLICATION_OCTET_STREAM_VALUE))
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_OCTET_STREAM_VALUE))
+                .andExpect(header().string("X-Board-Version", "7"));
+        verify(service, times(2)).getGame(eq(id), any(BoardView.class));
+    }
+
+    @Test
+    public void testFinishedGamesAreCachedForLong() throws Exception {
+        gameInfo.status = "Won";
+        mockMvc.perform(get("/minesweeper/" + id)).andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, private"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() throws Exception {
+        GameResponseCache cache = new GameResponseCache(converters, 2, 1 << 20);
+        GameInfo first = createGameInfo(UUID.randomUUID(), 1, "Started");
+        GameInfo second = createGameInfo(UUID.randomUUID(), 1, "Started");
+        GameInfo third = createGameInfo(UUID.randomUUID(), 1, "Started");
+        cache.getResponse(first, null, MediaType.APPLICATION_JSON, () -> first);
+        cache.getResponse(second, null, MediaType.APPLICATION_JSON, () -> second);
+        cache.getResponse(first, null, MediaType.APPLICATION_JSON, () -> first);
+        cache.getResponse(third, null, MediaType.APPLICATION_JSON, () -> third);
+        assertEquals(2, cache.size());
+        // first was used after second, so second was evicted
+        cache.getResponse(first, null, MediaType.APPLICATION_JSON, () -> {
+            throw new AssertionError("first should be cached");
+        });
+    }
+
+    @Test
+    public void testEntriesAreBoundedByBytes() throws Exception {
+        GameResponseCache cache = new GameResponseCache(converters, 16, 200);
+        for (int i = 0; i < 4; i++) {
+            GameInfo game = createGameInfo(UUID.randomUUID(), 1, "Started");
+            cache.getResponse(game, null, MediaType.APPLICATION_JSON, () -> game);
+        }
+        // each response takes around 100 bytes
+        assertTrue(cache.size() < 4);
+    }
+
+    @Test
+    public void testMediaTypeIsTheMostPreferredWritable() throws Exception {
+        GameResponseCache cache = new GameResponseCache(converters, 16, 1 << 20);
+        assertEquals(MediaType.APPLICATION_JSON, cache.getMediaType(null));
+        assertEquals(MediaType.APPLICATION_JSON, cache.getMediaType("*/*"));
+        assertEquals(MediaType.APPLICATION_OCTET_STREAM, cache.getMediaType("application/octet-stream, application/json;q=0.5"));
+        assertEquals(MediaType.valueOf(BoardView.PACKED_JSON_VALUE), cache.getMediaType(BoardView.PACKED_JSON_VALUE));
+    }
+
+    private GameInfo createGameInfo(UUID id, long version, String status) {
+        GameInfo gameInfo = new GameInfo();
+        gameInfo.id = id;
+        gameInfo.status = status;
+        gameInfo.version = version;
+        gameInfo.board = new BoardInfo();
+        gameInfo.board.rows = 2;
+        gameInfo.board.columns = 2;
+        gameInfo.board.packed = new byte[] { (byte) 0x9A, 0x12 };
+        return gameInfo;
+    }
+}
@@ -0,0 +1,94 @@
+package com.minesweeper.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import com.minesweeper.service.BoardInfo;
+import com.minesweeper.service.BoardView;
+
+public class BoardEncoderTest {
+
+    @Test
+    public void testCellsArePackedTwoPerByte() {
+        BoardEncoder encoder = new BoardEncoder(3);
+        encoder.write(PackedCell.uncover(PackedCell.incrementAdjacentMinesCounter((byte) 0)));
+        encoder.write((byte) PackedCell.FLAGGED);
+        encoder.write(PackedCell.uncover(PackedCell.addMine((byte) 0)));
+        assertArrayEquals(new byte[] { 0x1A, (byte) 0xC0 }, encoder.toByteArray());
+    }
+
+    @Test
+    public void testShortCoveredRunsAreNotEncodedAsRuns() {
+        BoardEncoder encoder = new BoardEncoder(3);
+        encoder.writeCovered(3);
+        assertArrayEquals(new byte[] { (byte) 0x99, (byte) 0x90 }, encoder.toByteArray());
+    }
+
+    @Test
+    public void testLongCoveredRunsAreEncodedAsRuns() {
+        BoardEncoder encoder = new BoardEncoder(100);
+        // 100 = 0b1_100_100: nibbles 1100, 1100, 0001
+        encoder.writeCovered(100);
+        encoder.write(PackedCell.uncover((byte) 0));
+        assertArrayEquals(new byte[] { (byte) 0xFC, (byte) 0xC1, 0x00 }, encoder.toByteArray());
+    }
+
+    @Test
+    public void testPackedBoardDecodesToItsCells() {
+        Board board = new Board(30, 40, 100, 7);
+        board.uncover(15, 20);
+        board.setRedFlag(0, 0);
+        BoardInfo boardInfo = board.toBoardInfo(new BoardView(null, true));
+        assertEquals(30, boardInfo.rows.intValue());
+        assertEquals(40, boardInfo.columns.intValue());
+        String[] codes = decode(boardInfo.packed, 30 * 40);
+        String[] expected = board.toBoardInfo().cells.stream().flatMap(row -> row.stream()).toArray(String[]::new);
+        assertArrayEquals(expected, codes);
+    }
+
+    @Test
+    public void testPackedChunkedBoardDecodesToItsWindow() {
+        ChunkedBoard board = new ChunkedBoard(1000000, 1000000, 1000, 19);
+        board.setRedFlag(1000, 2000);
+        BoardInfo boardInfo = board.toBoardInfo(new BoardView(null, true));
+        String[] codes = decode(boardInfo.packed, ChunkedBoard.VIEW_SIZE * ChunkedBoard.VIEW_SIZE);
+        String[] expected = board.toBoardInfo().cells.stream().flatMap(row -> row.stream()).toArray(String[]::new);
+        assertArrayEquals(expected, codes);
+        assertEquals(1, Arrays.stream(codes).filter(code -> "F".equals(code)).count());
+    }
+
+    private String[] decode(byte[] packed, int cells) {
+        String[] names = { "0", "1", "2", "3", "4", "5", "6", "7", "8", "C", "F", "Q", "M" };
+        String[] codes = new String[cells];
+        int count = 0;
+        int nibble = 0;
+        while (count < cells) {
+            int code = getNibble(packed, nibble++);
+            if (code == BoardEncoder.RUN) {
+                long length = 0;
+                int shift = 0;
+                int part;
+                do {
+                    part = getNibble(packed, nibble++);
+                    length |= (long) (part & 7) << shift;
+                    shift += 3;
+                } while ((part & 8) != 0);
+                for (long i = 0; i < length; i++) {
+                    codes[count++] = "C";
+                }
+            } else {
+                codes[count++] = names[code];
+            }
+        }
+        return codes;
+    }
+
+    private int getNibble(byte[] packed, int nibble) {
+        int value = packed[nibble / 2] & 0xFF;
+        return ((nibble & 1) == 0 ? value >>> 4 : value & 0x0F);
+    }
+}
@@ -0,0 +1,58 @@
+package com.minesweeper.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class BoardGeneratorTest {
+
+    @Test
+    public void testParallelGenerationProducesTheSameBoardAsSerialGeneration() {
+        byte[] serial = BoardGenerator.generate(1000, 517, 80000, 42, false);
+        byte[] parallel = BoardGenerator.generate(1000, 517, 80000, 42, true);
+        assertArrayEquals(serial, parallel);
+    }
+
+    @Test
+    public void testGenerationPlacesAllMines() {
+        int mines = 12345;
+        byte[] cells = BoardGenerator.generate(333, 100, mines, 7, true);
+        int count = 0;
+        for (byte cell : cells) {
+            count += (PackedCell.hasMine(cell) ? 1 : 0);
+        }
+        assertEquals(mines, count);
+    }
+
+    @Test
+    public void testGenerationCalculatesMinesAdjacencyAcrossBands() {
+        int rows = 200;
+        int columns = 90;
+        byte[] cells = BoardGenerator.generate(rows, columns, 3000, 9, true);
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                byte cell = cells[row * columns + column];
+                if (!PackedCell.hasMine(cell)) {
+                    int adjacentMines = 0;
+                    for (int i = Math.max(row - 1, 0); i <= Math.min(row + 1, rows - 1); i++) {
+                        for (int j = Math.max(column - 1, 0); j <= Math.min(column + 1, columns - 1); j++) {
+                            adjacentMines += (PackedCell.hasMine(cells[i * columns + j]) ? 1 : 0);
+                        }
+                    }
+                    assertEquals(adjacentMines, PackedCell.getAdjacentMinesCounter(cell));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGenerationWithAllPositionsButOneMined() {
+        byte[] cells = BoardGenerator.generate(300, 300, 300 * 300 - 1, 3, true);
+        int count = 0;
+        for (byte cell : cells) {
+            count += (PackedCell.hasMine(cell) ? 0 : 1);
+        }
+        assertEquals(1, count);
+    }
+}
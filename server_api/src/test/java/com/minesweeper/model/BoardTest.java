@@ -1,16 +1,26 @@
 package com.minesweeper.model;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
 import java.util.stream.Stream;
 
+import org.bson.Document;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import com.minesweeper.service.BoardInfo;
+import com.minesweeper.service.BoardView;
 
 public class BoardTest {
 
@@ -87,6 +97,31 @@ public class BoardTest {
         assertEquals(21, cells.stream().filter(cell -> !cell.hasMine()).count());
     }
 
+    @Test
+    public void testBoardCreationWithSameSeedPlacesSameMines() {
+        Board board = new Board(8, 8, 20, 7);
+        Board another = new Board(8, 8, 20, 7);
+        for (int i = 0; i < 8; i++) {
+            for (int j = 0; j < 8; j++) {
+                assertEquals(board.getCell(i, j).hasMine(), another.getCell(i, j).hasMine());
+            }
+        }
+    }
+
+    @Test
+    public void testBoardCreationWithAllPositionsButOneMined() {
+        int rows = 300;
+        int columns = 300;
+        Board board = new Board(rows, columns, rows * columns - 1);
+        long cellsWithoutMine = 0;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                cellsWithoutMine += (board.getCell(i, j).hasMine() ? 0 : 1);
+            }
+        }
+        assertEquals(1, cellsWithoutMine);
+    }
+
     @Test
     public void testBoardCreationCalculatesMinesAdjacency() {
         int rows = 4;
@@ -100,7 +135,7 @@ public class BoardTest {
                 if (cell.hasMine()) {
                     assertEquals(0, cell.getAdjacentMinesCounter());
                 } else {
-                    assertEquals(countCellsWithMine(board.getAdjacents(position).stream().map(adjacent -> board.getCell(adjacent))),
+                    assertEquals(countCellsWithMine(getAdjacents(board, i, j).stream().map(adjacent -> board.getCell(adjacent))),
                             cell.getAdjacentMinesCounter());
                 }
             }
@@ -168,6 +203,117 @@ public class BoardTest {
         assertFalse(board.areAllCellsWithoutMineUncovered());
     }
 
+    @Test
+    public void testUncoverCellWithoutAdjacentMinesUncoversItsAdjacentsInCascade() {
+        Board board = getBoardWithFixedMines();
+        board.uncover(3, 3);
+        assertEquals("0", board.getCell(3, 3).getInfo());
+        assertEquals("0", board.getCell(0, 3).getInfo());
+        assertEquals("1", board.getCell(3, 1).getInfo());
+        assertEquals("C", board.getCell(3, 0).getInfo());
+        assertFalse(board.isFinished());
+    }
+
+    @Test
+    public void testUncoverCascadeOnLargeBoardDoesNotOverflowTheStack() {
+        int rows = 3000;
+        int columns = 3000;
+        Board board = new Board(rows, columns, 1);
+        int row = (board.getCell(0, 0).hasMine() ? rows - 1 : 0);
+        board.uncover(row, 0);
+        assertFalse(board.getCell(rows / 2, columns / 2).isCovered());
+        assertTrue(board.isFinished());
+        assertTrue(board.areAllCellsWithoutMineUncovered());
+    }
+
+    @Test
+    public void testChordUncoversTheAdjacentCellsWithoutFlagAndTheirCascades() {
+        Board board = getBoardWithFixedMines();
+        board.uncover(1, 2);
+        board.setRedFlag(1, 1);
+        long version = board.getVersion();
+        board.chord(1, 2);
+        assertEquals(version + 1, board.getVersion());
+        assertEquals("F", board.getCell(1, 1).getInfo());
+        assertEquals("2", board.getCell(0, 1).getInfo());
+        assertEquals("2", board.getCell(2, 1).getInfo());
+        assertEquals("0", board.getCell(3, 3).getInfo());
+        assertEquals("1", board.getCell(3, 1).getInfo());
+        assertEquals("C", board.getCell(3, 0).getInfo());
+        assertFalse(board.isFinished());
+    }
+
+    @Test
+    public void testChordUncoversTheSameCellsAsUncoveringEachAdjacentCell() {
+        Board chorded = new Board(60, 80, 300, 31);
+        Board uncovered = new Board(60, 80, 300, 31);
+        int row = 30;
+        int column = 0;
+        while (chorded.getCell(row, column).hasMine() || chorded.getCell(row, column).getAdjacentMinesCounter() == 0) {
+            column++;
+        }
+        chorded.uncover(row, column);
+        uncovered.uncover(row, column);
+        for (CellPosition adjacent : getAdjacents(chorded, row, column)) {
+            if (chorded.getCell(adjacent).hasMine()) {
+                chorded.setRedFlag(adjacent.x, adjacent.y);
+                uncovered.setRedFlag(adjacent.x, adjacent.y);
+            }
+        }
+        chorded.chord(row, column);
+        for (CellPosition adjacent : getAdjacents(uncovered, row, column)) {
+            if (uncovered.getCell(adjacent).isCovered() && !uncovered.getCell(adjacent).hasMine()) {
+                uncovered.uncover(adjacent.x, adjacent.y);
+            }
+        }
+        assertEquals(uncovered.toBoardInfo().cells, chorded.toBoardInfo().cells);
+        assertEquals(uncovered.areAllCellsWithoutMineUncovered(), chorded.areAllCellsWithoutMineUncovered());
+    }
+
+    @Test
+    public void testChordWithAMisplacedFlagUncoversTheMineAndFinishesTheBoard() {
+        Board board = getBoardWithFixedMines();
+        board.uncover(2, 1);
+        board.setRedFlag(1, 1);
+        board.setRedFlag(1, 0);
+        board.chord(2, 1);
+        assertTrue(board.isFinished());
+        assertEquals("M", board.getCell(2, 0).getInfo());
+    }
+
+    @Test
+    public void testChordWithoutEnoughFlagsThrowsException() {
+        Board board = getBoardWithFixedMines();
+        board.uncover(2, 1);
+        board.setRedFlag(1, 1);
+        long version = board.getVersion();
+        Exception exception = assertThrows(CellException.class, () -> {
+            board.chord(2, 1);
+        });
+        assertTrue(exception.getMessage().contains("1 adjacent flags for 2 adjacent mines"));
+        assertEquals(version, board.getVersion());
+        assertEquals("C", board.getCell(3, 0).getInfo());
+    }
+
+    @Test
+    public void testRejectedMarksDoNotChangeTheVersion() {
+        Board board = getBoardWithFixedMines();
+        board.uncover(0, 2);
+        long version = board.getVersion();
+        assertThrows(CellException.class, () -> board.setRedFlag(0, 2));
+        assertThrows(CellException.class, () -> board.removeQuestionMark(3, 3));
+        assertEquals(version, board.getVersion());
+    }
+
+    @Test
+    public void testChordOnCoveredCellThrowsException() {
+        Board board = getBoardWithFixedMines();
+        Exception exception = assertThrows(CellException.class, () -> {
+            board.chord(3, 3);
+        });
+        assertTrue(exception.getMessage().contains("the cell is covered"));
+    }
+
     @Test
     public void testSetRedFlagOnFinishedBoardThrowsException() {
         Board board = new Board(4, 4, 3) {
@@ -260,22 +406,326 @@ public class BoardTest {
         assertTrue(exception.getMessage().contains("action not allowed, the board is finished"));
     }
 
+    @Test
+    public void testPersistedBoardDoesNotStoreTheCells() {
+        Board board = getBoardWithFixedMines();
+        Document document = new Document();
+        getConverter().write(board, document);
+        assertFalse(document.containsKey("cells"));
+        assertEquals(277L, document.get("seed"));
+    }
+
+    @Test
+    public void testPersistedBoardIsRebuiltFromItsSeedAndStates() {
+        Board board = getBoardWithFixedMines();
+        board.uncover(3, 3);
+        board.setRedFlag(0, 0);
+        board.setQuestionMark(1, 0);
+        MappingMongoConverter converter = getConverter();
+        Document document = new Document();
+        converter.write(board, document);
+        Board loaded = converter.read(Board.class, document);
+        assertEquals(board.toBoardInfo().cells, loaded.toBoardInfo().cells);
+        assertTrue(loaded.getCell(2, 0).hasMine());
+        loaded.uncover(0, 1);
+        loaded.uncover(0, 2);
+        loaded.uncover(1, 3);
+        loaded.uncover(3, 0);
+        loaded.removeQuestionMark(1, 0);
+        loaded.uncover(1, 0);
+        assertTrue(loaded.isFinished());
+        assertTrue(loaded.areAllCellsWithoutMineUncovered());
+    }
+
+    @Test
+    public void testDeferredBoardIsPersistedWithoutStates() {
+        Board board = Board.createDeferred(1000, 1000, 100000, 5);
+        board.toBoardInfo();
+        Document document = new Document();
+        getConverter().write(board, document);
+        assertFalse(document.containsKey("stateBlocks"));
+        assertFalse(document.containsKey("states"));
+        assertEquals(true, document.get("deferred"));
+    }
+
+    @Test
+    public void testPersistedChangesOnlyHaveTheChangesRecorded() {
+        Board board = getBoardWithFixedMines();
+        board.setRedFlag(0, 0);
+        board.setQuestionMark(1, 0);
+        MappingMongoConverter converter = getConverter();
+        Document document = new Document();
+        converter.write(board, document);
+        Document changes = (Document) document.get("changes");
+        assertEquals(2, ((List<?>) changes.get("positions")).size());
+        assertEquals(2, ((List<?>) changes.get("versions")).size());
+        Board loaded = converter.read(Board.class, document);
+        loaded.setRedFlag(3, 3);
+        BoardInfo boardInfo = loaded.toBoardInfo(new BoardView(0L, false));
+        assertEquals(3, boardInfo.changes.size());
+    }
+
+    @Test
+    public void testChangedFieldsOnlyHaveTheBlocksOfStatesChanged() {
+        Board board = new Board(200, 200, 10, 5);
+        assertNull(board.getChangedFields());
+        board.markWritten();
+        board.setRedFlag(199, 199);
+        Map<String, Object> fields = board.getChangedFields();
+        assertEquals(1L, fields.get("version"));
+        assertEquals(1, fields.keySet().stream().filter(field -> field.startsWith("stateBlocks")).count());
+        // the last block has 40000 - 9 * 4096 cells
+        assertEquals(784, ((byte[]) fields.get("stateBlocks.9")).length);
+        board.markWritten();
+        assertFalse(board.getChangedFields().keySet().stream().anyMatch(field -> field.startsWith("stateBlocks")));
+    }
+
+    @Test
+    public void testStatesOfABoardWrittenBeforeTheBlocksAreMovedToThem() {
+        Board board = getBoardWithFixedMines();
+        board.setRedFlag(0, 0);
+        board.setQuestionMark(1, 0);
+        MappingMongoConverter converter = getConverter();
+        Document document = new Document();
+        converter.write(board, document);
+        document.put("states", ((List<?>) document.remove("stateBlocks")).get(0));
+        Board loaded = converter.read(Board.class, document);
+        loaded.setRedFlag(3, 3);
+        assertEquals("F", loaded.getCell(0, 0).getInfo());
+        assertEquals("Q", loaded.getCell(1, 0).getInfo());
+        Map<String, Object> fields = loaded.getChangedFields();
+        assertTrue(fields.containsKey("states"));
+        assertNull(fields.get("states"));
+        assertEquals(1, ((List<?>) fields.get("stateBlocks")).size());
+        Document written = new Document();
+        converter.write(loaded, written);
+        assertFalse(written.containsKey("states"));
+        assertEquals(board.toBoardInfo().cells.get(0), converter.read(Board.class, written).toBoardInfo().cells.get(0));
+    }
+
+    @Test
+    public void testCellsOfABoardWrittenBeforeTheSeedAreMovedToTheMinesLayout() {
+        // a board as written before boards were generated from a seed: a mine
+        // on (0, 0) flagged and (1, 1) uncovered
+        List<List<Document>> legacyCells = new ArrayList<List<Document>>();
+        for (int row = 0; row < 3; row++) {
+            List<Document> legacyRow = new ArrayList<Document>();
+            for (int column = 0; column < 3; column++) {
+                boolean mine = (row == 0 && column == 0);
+                String status = (mine ? "Flagged" : (row == 1 && column == 1 ? "Uncovered" : "Covered"));
+                int counter = (!mine && row <= 1 && column <= 1 ? 1 : 0);
+                legacyRow.add(new Document("hasMine", mine).append("adjacentMinesCounter", counter).append("status", status));
+            }
+            legacyCells.add(legacyRow);
+        }
+        Document document = new Document("rows", 3).append("columns", 3).append("mines", 1).append("cells", legacyCells)
+                .append("cellsUncovered", 1).append("finished", false);
+        MappingMongoConverter converter = getConverter();
+        Board loaded = converter.read(Board.class, document);
+        loaded.markWritten();
+        assertEquals("F", loaded.getCell(0, 0).getInfo());
+        assertTrue(loaded.getCell(0, 0).hasMine());
+        assertEquals("1", loaded.getCell(1, 1).getInfo());
+        loaded.uncover(2, 2);
+        assertTrue(loaded.isFinished());
+        assertTrue(loaded.areAllCellsWithoutMineUncovered());
+        Map<String, Object> fields = loaded.getChangedFields();
+        assertTrue(fields.containsKey("cells"));
+        assertNull(fields.get("cells"));
+        assertTrue(fields.containsKey("mineLayout"));
+        Document written = new Document();
+        converter.write(loaded, written);
+        assertFalse(written.containsKey("cells"));
+        assertEquals(loaded.toBoardInfo().cells, converter.read(Board.class, written).toBoardInfo().cells);
+    }
+
+    @Test
+    public void testDeferredBoardPlacesMinesAwayFromTheFirstUncoveredSquare() {
+        for (long seed = 0; seed < 20; seed++) {
+            Board board = Board.createDeferred(8, 8, 50, seed);
+            board.uncover(3, 4);
+            assertFalse(board.isFinished());
+            assertEquals("0", board.getCell(3, 4).getInfo());
+            for (CellPosition adjacent : getAdjacents(board, 3, 4)) {
+                assertFalse(board.getCell(adjacent).hasMine());
+            }
+            assertEquals(50, countCellsWithMine(getCells(board, 8, 8)));
+        }
+    }
+
+    @Test
+    public void testDeferredBoardWithoutRoomForTheSquareOnlyKeepsTheUncoveredCellFree() {
+        Board board = Board.createDeferred(3, 3, 7, 9);
+        board.uncover(1, 1);
+        assertFalse(board.isFinished());
+        assertEquals("7", board.getCell(1, 1).getInfo());
+    }
+
+    @Test
+    public void testDeferredBoardIsRebuiltWithTheSameMinesAfterFirstUncover() {
+        Board board = Board.createDeferred(20, 30, 100, 21);
+        board.setRedFlag(0, 0);
+        board.uncover(10, 15);
+        MappingMongoConverter converter = getConverter();
+        Document document = new Document();
+        converter.write(board, document);
+        Board loaded = converter.read(Board.class, document);
+        assertEquals(board.toBoardInfo().cells, loaded.toBoardInfo().cells);
+        for (int row = 0; row < 20; row++) {
+            for (int column = 0; column < 30; column++) {
+                assertEquals(board.getCell(row, column).hasMine(), loaded.getCell(row, column).hasMine());
+            }
+        }
+    }
+
+    @Test
+    public void testBoardInfoSinceAVersionHasOnlyTheCellsChangedAfterIt() {
+        Board board = getBoardWithFixedMines();
+        board.setRedFlag(0, 0);
+        long version = board.getVersion();
+        board.setQuestionMark(1, 0);
+        board.uncover(0, 2);
+        board.removeQuestionMark(1, 0);
+        BoardInfo boardInfo = board.toBoardInfo(new BoardView(version, false));
+        assertNull(boardInfo.cells);
+        assertEquals(2, boardInfo.changes.size());
+        assertEquals(1, boardInfo.changes.get(0).row);
+        assertEquals("C", boardInfo.changes.get(0).code);
+        assertEquals(2, boardInfo.changes.get(1).column);
+        assertEquals("1", boardInfo.changes.get(1).code);
+        assertTrue(board.toBoardInfo(new BoardView(board.getVersion(), false)).changes.isEmpty());
+    }
+
+    @Test
+    public void testBoardInfoSinceAVersionTooOldHasTheWholeBoard() {
+        Board board = new Board(100, 100, 1, 3);
+        int row = (board.getCell(0, 0).hasMine() ? 99 : 0);
+        board.uncover(row, 0);
+        BoardInfo boardInfo = board.toBoardInfo(new BoardView(0L, false));
+        assertNull(boardInfo.changes);
+        assertEquals(100, boardInfo.cells.size());
+    }
+
+    @Test
+    public void testRegionInfoHasTheRegionCellsClippedAtTheBoardEdges() {
+        Board board = getBoardWithFixedMines();
+        board.uncover(0, 2);
+        board.setRedFlag(3, 3);
+        BoardInfo boardInfo = board.toRegionInfo(2, 1, 5, 2, false);
+        assertEquals(2, boardInfo.row);
+        assertEquals(1, boardInfo.column);
+        assertEquals(4, boardInfo.rows);
+        assertEquals(2, boardInfo.cells.size());
+        List<List<String>> cells = board.toBoardInfo().cells;
+        for (int row = 0; row < 2; row++) {
+            assertEquals(cells.get(row + 2).subList(1, 3), boardInfo.cells.get(row));
+        }
+    }
+
+    @Test
+    public void testPackedRegionInfoHasTheRegionCodes() {
+        Board board = getBoardWithFixedMines();
+        board.uncover(0, 2);
+        BoardInfo boardInfo = board.toBoardInfo(new BoardView(null, true, 0, 1, 1, 3));
+        // C 1 C
+        assertArrayEquals(new byte[] { (byte) 0x91, (byte) 0x90 }, boardInfo.packed);
+    }
+
+    @Test
+    public void testRegionInfoWithInvalidSizeThrowsException() {
+        Board board = getBoardWithFixedMines();
+        assertThrows(BoardException.class, () -> board.toRegionInfo(0, 0, 0, 2, false));
+        assertThrows(BoardException.class, () -> board.toRegionInfo(0, 0, 2048, 2048, false));
+        assertThrows(CellPositionException.class, () -> board.toRegionInfo(4, 0, 1, 1, false));
+    }
+
+    @Test
+    public void testBoardInfoIsNotChangedByLaterActions() {
+        Board board = getBoardWithFixedMines();
+        BoardInfo boardInfo = board.toBoardInfo();
+        BoardInfo regionInfo = board.toRegionInfo(0, 0, 2, 2, false);
+        board.setRedFlag(0, 0);
+        assertEquals("C", boardInfo.cells.get(0).get(0));
+        assertEquals("C", regionInfo.cells.get(0).get(0));
+    }
+
+    @Test
+    public void testBoardInfoDoesNotCopyTheCells() {
+        Board board = new Board(2000, 2000, 1000, 41);
+        board.setRedFlag(0, 0);
+        board.toBoardInfo();
+        long allocated = getAllocatedBytes();
+        BoardInfo boardInfo = board.toBoardInfo();
+        allocated = getAllocatedBytes() - allocated;
+        // a copy of the cells takes 4000000 bytes, the blocks' references ~4000
+        assertTrue(allocated < 64 * 1024, "allocated " + allocated);
+        board.removeRedFlag(0, 0);
+        board.setQuestionMark(1999, 1999);
+        assertEquals("F", boardInfo.cells.get(0).get(0));
+        assertEquals("C", boardInfo.cells.get(1999).get(1999));
+        assertEquals("Q", board.toBoardInfo().cells.get(1999).get(1999));
+    }
+
+    @Test
+    public void testBoardInfoSinceAVersionOnAViewportHasOnlyTheChangesInside() {
+        Board board = getBoardWithFixedMines();
+        long version = board.getVersion();
+        board.setRedFlag(3, 3);
+        board.setRedFlag(0, 3);
+        BoardInfo boardInfo = board.toBoardInfo(new BoardView(version, false, 0, 2, 2, 2));
+        assertEquals(1, boardInfo.changes.size());
+        assertEquals(0, boardInfo.changes.get(0).row);
+        assertEquals(3, boardInfo.changes.get(0).column);
+    }
+
+    private Stream<Cell> getCells(Board board, int rows, int columns) {
+        List<Cell> cells = new ArrayList<Cell>();
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                cells.add(board.getCell(row, column));
+            }
+        }
+        return cells.stream();
+    }
+
+    private MappingMongoConverter getConverter() {
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+        converter.afterPropertiesSet();
+        return converter;
+    }
+
     private Board getBoardWithFixedMines() {
         // The mines will be placed in fixed positions in order to make tests
-        // deterministic. With the seed used on the random generator the fixed
-        // positions
-        // will be: {(2,0), (1,1), (0,0)}
-        Random random = new Random(1);
-        Board board = new Board(4, 4, 3) {
-            @Override
-            protected int getRandom(int value) {
-                return random.nextInt(value);
-            }
-        };
-        return board;
+        // deterministic. With this seed the generator places them on
+        // {(2,0), (1,1), (0,0)}
+        return new Board(4, 4, 3, 277);
+    }
+
+    private long getAllocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
     }
 
     private long countCellsWithMine(Stream<Cell> cells) {
         return cells.filter(cell -> cell.hasMine()).count();
     }
+
+    /**
+     * Returns the positions of the adjacent cells (the square) of a given cell
+     * 
+     * @param board
+     * @param cellRow
+     * @param cellColumn
+     * @return
+     */
+    static List<CellPosition> getAdjacents(Board board, int cellRow, int cellColumn) {
+        List<CellPosition> adjacents = new ArrayList<CellPosition>();
+        for (int row = Math.max(cellRow - 1, 0); row <= Math.min(cellRow + 1, board.getRows() - 1); row++) {
+            for (int column = Math.max(cellColumn - 1, 0); column <= Math.min(cellColumn + 1, board.getColumns() - 1); column++) {
+                if (row != cellRow || column != cellColumn) {
+                    adjacents.add(new CellPosition(row, column));
+                }
+            }
+        }
+        return adjacents;
+    }
 }
@@ -0,0 +1,71 @@
+package com.minesweeper.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class ChangeLogTest {
+
+    @Test
+    public void testChangesSinceAVersionAreReturnedOnce() {
+        ChangeLog changes = new ChangeLog();
+        changes.add(1, 10);
+        changes.add(2, 20);
+        changes.add(3, 10);
+        changes.add(3, 30);
+        assertArrayEquals(new long[] { 20, 10, 30 }, changes.getChangesSince(1, 3));
+        assertArrayEquals(new long[0], changes.getChangesSince(3, 3));
+    }
+
+    @Test
+    public void testFullLogDropsTheOldestVersions() {
+        ChangeLog changes = new ChangeLog();
+        for (int i = 0; i < ChangeLog.MAX_CHANGES; i++) {
+            changes.add(i + 1, i);
+        }
+        changes.add(ChangeLog.MAX_CHANGES + 1, -1);
+        assertNull(changes.getChangesSince(0, ChangeLog.MAX_CHANGES + 1));
+        assertArrayEquals(new long[] { -1 }, changes.getChangesSince(ChangeLog.MAX_CHANGES, ChangeLog.MAX_CHANGES + 1));
+    }
+
+    @Test
+    public void testVersionLargerThanTheLogIsNotKept() {
+        ChangeLog changes = new ChangeLog();
+        changes.add(1, 0);
+        for (int i = 0; i <= ChangeLog.MAX_CHANGES; i++) {
+            changes.add(2, i);
+        }
+        assertNull(changes.getChangesSince(1, 2));
+        assertArrayEquals(new long[0], changes.getChangesSince(2, 2));
+    }
+
+    @Test
+    public void testChangesRecordedSinceWrittenAreAppended() {
+        ChangeLog changes = new ChangeLog();
+        changes.add(1, 10);
+        changes.markWritten();
+        changes.add(2, 20);
+        changes.add(2, 30);
+        assertFalse(changes.isRewritten());
+        assertArrayEquals(new long[] { 20, 30 }, changes.getAppendedPositions());
+        assertArrayEquals(new long[] { 2, 2 }, changes.getAppendedVersions());
+        changes.markWritten();
+        assertArrayEquals(new long[0], changes.getAppendedPositions());
+    }
+
+    @Test
+    public void testDroppedChangesRewriteTheLog() {
+        ChangeLog changes = new ChangeLog();
+        changes.markWritten();
+        changes.clear(1);
+        assertTrue(changes.isRewritten());
+        changes.markWritten();
+        for (int i = 0; i <= ChangeLog.MAX_CHANGES; i++) {
+            changes.add(i + 2, i);
+        }
+        assertTrue(changes.isRewritten());
+    }
+}
@@ -0,0 +1,282 @@
+package com.minesweeper.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import com.minesweeper.model.Game.Status;
+import com.minesweeper.service.BoardInfo;
+
+public class ChunkedBoardTest {
+
+    @Test
+    public void testBoardCreationCreatesChunkedBoardForLargeBoards() {
+        assertTrue(Board.create(1000000, 1000000, 1000) instanceof ChunkedBoard);
+        assertFalse(Board.create(10, 10, 10) instanceof ChunkedBoard);
+    }
+
+    @Test
+    public void testBoardCreationScattersAllMinesAcrossTiles() {
+        int rows = 150;
+        int columns = 200;
+        int mines = 3001;
+        ChunkedBoard board = new ChunkedBoard(rows, columns, mines, 3);
+        int count = 0;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                count += (board.getCell(i, j).hasMine() ? 1 : 0);
+            }
+        }
+        assertEquals(mines, count);
+    }
+
+    @Test
+    public void testBoardCreationCalculatesMinesAdjacencyAcrossTiles() {
+        int rows = 150;
+        int columns = 200;
+        ChunkedBoard board = new ChunkedBoard(rows, columns, 4000, 5);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                Cell cell = board.getCell(i, j);
+                if (!cell.hasMine()) {
+                    int adjacentMines = 0;
+                    for (CellPosition adjacent : BoardTest.getAdjacents(board, i, j)) {
+                        adjacentMines += (board.getCell(adjacent).hasMine() ? 1 : 0);
+                    }
+                    assertEquals(adjacentMines, cell.getAdjacentMinesCounter());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUncoverOnlyStoresTouchedTiles() {
+        ChunkedBoard board = new ChunkedBoard(100000, 100000, 2000000000, 11);
+        int row = 50000 + ChunkedBoard.TILE_SIZE / 2;
+        int column = 50000 + ChunkedBoard.TILE_SIZE / 2;
+        while (board.getCell(row, column).hasMine()) {
+            column++;
+        }
+        board.uncover(row, column);
+        assertFalse(board.isFinished());
+        assertTrue(board.countStoredTiles() <= 9);
+    }
+
+    @Test
+    public void testUncoverCellWithMineFinishesTheBoard() {
+        ChunkedBoard board = new ChunkedBoard(1000, 1000, 200000, 13);
+        int column = 0;
+        while (!board.getCell(700, column).hasMine()) {
+            column++;
+        }
+        board.uncover(700, column);
+        assertTrue(board.isFinished());
+        assertFalse(board.areAllCellsWithoutMineUncovered());
+    }
+
+    @Test
+    public void testUncoverAllCellsWithoutMineFinishesTheBoard() {
+        ChunkedBoard board = new ChunkedBoard(100, 100, 1, 17);
+        int row = (board.getCell(0, 0).hasMine() ? 99 : 0);
+        board.uncover(row, 0);
+        assertTrue(board.isFinished());
+        assertTrue(board.areAllCellsWithoutMineUncovered());
+    }
+
+    @Test
+    public void testFirstUncoverKeepsItsSquareFreeOfMines() {
+        int rows = 200;
+        int columns = 200;
+        int mines = 20000;
+        ChunkedBoard board = ChunkedBoard.createSafe(rows, columns, mines, 29);
+        board.setRedFlag(0, 0);
+        int row = ChunkedBoard.TILE_SIZE;
+        int column = ChunkedBoard.TILE_SIZE;
+        while (!board.getCell(row, column).hasMine()) {
+            column++;
+        }
+        board.uncover(row, column);
+        assertFalse(board.isFinished());
+        assertFalse(board.getCell(row, column).hasMine());
+        for (CellPosition adjacent : BoardTest.getAdjacents(board, row, column)) {
+            assertFalse(board.getCell(adjacent).hasMine());
+        }
+        assertEquals("F", board.getCell(0, 0).getInfo());
+        int count = 0;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                count += (board.getCell(i, j).hasMine() ? 1 : 0);
+            }
+        }
+        assertEquals(mines, count);
+    }
+
+    @Test
+    public void testSafeFirstUncoverIsKeptByTheLoadedBoard() {
+        ChunkedBoard board = ChunkedBoard.createSafe(200, 200, 20000, 31);
+        board.uncover(100, 100);
+        String[] square = new String[9];
+        int i = 0;
+        for (CellPosition adjacent : BoardTest.getAdjacents(board, 100, 100)) {
+            square[i++] = board.getCell(adjacent).getInfo();
+        }
+        MappingMongoConverter converter = getConverter();
+        Document document = new Document();
+        converter.write(board, document);
+        ChunkedBoard loaded = converter.read(ChunkedBoard.class, document);
+        i = 0;
+        for (CellPosition adjacent : BoardTest.getAdjacents(loaded, 100, 100)) {
+            assertFalse(loaded.getCell(adjacent).hasMine());
+            assertEquals(square[i++], loaded.getCell(adjacent).getInfo());
+        }
+    }
+
+    @Test
+    public void testChordAcrossTilesUncoversTheSameCellsAsUncoveringEachAdjacentCell() {
+        ChunkedBoard chorded = new ChunkedBoard(200, 200, 4000, 23);
+        ChunkedBoard uncovered = new ChunkedBoard(200, 200, 4000, 23);
+        int row = ChunkedBoard.TILE_SIZE;
+        int column = ChunkedBoard.TILE_SIZE - 1;
+        while (chorded.getCell(row, column).hasMine() || chorded.getCell(row, column).getAdjacentMinesCounter() == 0) {
+            row++;
+        }
+        chorded.uncover(row, column);
+        uncovered.uncover(row, column);
+        for (CellPosition adjacent : BoardTest.getAdjacents(chorded, row, column)) {
+            if (chorded.getCell(adjacent).hasMine()) {
+                chorded.setRedFlag(adjacent.x, adjacent.y);
+                uncovered.setRedFlag(adjacent.x, adjacent.y);
+            }
+        }
+        chorded.chord(row, column);
+        for (CellPosition adjacent : BoardTest.getAdjacents(uncovered, row, column)) {
+            if (uncovered.getCell(adjacent).isCovered() && !uncovered.getCell(adjacent).hasMine()) {
+                uncovered.uncover(adjacent.x, adjacent.y);
+            }
+        }
+        for (int i = 0; i < 200; i++) {
+            for (int j = 0; j < 200; j++) {
+                assertEquals(uncovered.getCell(i, j).getInfo(), chorded.getCell(i, j).getInfo());
+            }
+        }
+        assertFalse(chorded.isFinished());
+    }
+
+    @Test
+    public void testBoardInfoIsAWindowAroundTheLastAction() {
+        ChunkedBoard board = new ChunkedBoard(1000000, 1000000, 1000, 19);
+        board.setRedFlag(1000, 2000);
+        BoardInfo boardInfo = board.toBoardInfo();
+        assertEquals(ChunkedBoard.VIEW_SIZE, boardInfo.cells.size());
+        assertEquals(1000000, boardInfo.rows.intValue());
+        int row = 1000 - boardInfo.row;
+        int column = 2000 - boardInfo.column;
+        assertEquals("F", boardInfo.cells.get(row).get(column));
+    }
+
+    @Test
+    public void testCascadeLargerThanAnActionIsResumedByTheNextOne() {
+        ChunkedBoard board = new ChunkedBoard(1000000, 1000000, 1000, 19);
+        board.uncover(500000, 500000);
+        // the cascade goes breadth first: the window is uncovered whole
+        BoardInfo boardInfo = board.toBoardInfo();
+        assertTrue(boardInfo.window);
+        assertTrue(boardInfo.cells.stream().flatMap(row -> row.stream()).allMatch(code -> code.equals("0")));
+        assertEquals("C", board.getCell(500150, 500000).getInfo());
+        MappingMongoConverter converter = getConverter();
+        Document document = new Document();
+        converter.write(board, document);
+        ChunkedBoard loaded = converter.read(ChunkedBoard.class, document);
+        loaded.uncover(0, 0);
+        assertEquals("0", loaded.getCell(500150, 500000).getInfo());
+        assertEquals(0, loaded.toBoardInfo().row.intValue());
+    }
+
+    @Test
+    public void testCellsMarkedBeforeTheCascadeResumesAreKept() {
+        ChunkedBoard board = new ChunkedBoard(1000000, 1000000, 1000, 19);
+        board.uncover(500000, 500000);
+        board.setRedFlag(500150, 500000);
+        board.setQuestionMark(500150, 500001);
+        board.uncover(0, 0);
+        assertEquals("F", board.getCell(500150, 500000).getInfo());
+        assertEquals("Q", board.getCell(500150, 500001).getInfo());
+        assertEquals("0", board.getCell(500150, 500002).getInfo());
+    }
+
+    @Test
+    public void testLostBoardShowsTheMinesOfTheTilesNotBuilt() {
+        ChunkedBoard board = new ChunkedBoard(1000, 1000, 200000, 13);
+        int column = 0;
+        while (!board.getCell(700, column).hasMine()) {
+            column++;
+        }
+        board.uncover(700, column);
+        BoardInfo boardInfo = board.toBoardInfo();
+        // the window reaches the row of tiles below, never built
+        assertTrue(boardInfo.row + ChunkedBoard.VIEW_SIZE > 11 * ChunkedBoard.TILE_SIZE);
+        assertTrue(boardInfo.cells.stream().flatMap(row -> row.stream()).noneMatch(code -> code.equals("C")));
+        assertTrue(boardInfo.cells.get(ChunkedBoard.VIEW_SIZE - 1).contains("M"));
+    }
+
+    @Test
+    public void testBoardInfoIsNotChangedByLaterActions() {
+        ChunkedBoard board = new ChunkedBoard(1000000, 1000000, 1000, 19);
+        board.setRedFlag(1000, 2000);
+        BoardInfo boardInfo = board.toBoardInfo();
+        board.setRedFlag(1001, 2001);
+        int row = 1001 - boardInfo.row;
+        int column = 2001 - boardInfo.column;
+        assertEquals("C", boardInfo.cells.get(row).get(column));
+    }
+
+    @Test
+    public void testPersistedGameKeepsTheChunkedBoard() {
+        Game game = new Game(1000000, 1000000, 1000000, "user");
+        game.setRedFlag(10, 10);
+        MappingMongoConverter converter = getConverter();
+        Document document = new Document();
+        converter.write(game, document);
+        Game loaded = converter.read(Game.class, document);
+        assertTrue(loaded.getBoard() instanceof ChunkedBoard);
+        assertEquals(game.toGameInfo().board.cells, loaded.toGameInfo().board.cells);
+        assertEquals(1, ((ChunkedBoard) loaded.getBoard()).countStoredTiles());
+    }
+
+    @Test
+    public void testLoadedGameOnlyWritesTheTilesChanged() {
+        Game game = new Game(1000000, 1000000, 1000000, "user");
+        game.setRedFlag(10, 10);
+        MappingMongoConverter converter = getConverter();
+        Document document = new Document();
+        converter.write(game, document);
+        Game loaded = converter.read(Game.class, document);
+        loaded.setRedFlag(10, 2000);
+        Map<String, Object> fields = loaded.getChangedFields();
+        assertEquals(Status.Started, fields.get("status"));
+        assertEquals(2000, fields.get("board.lastColumn"));
+        // tile 31 on the first row of tiles
+        assertTrue(fields.containsKey("board.tileStates.31"));
+        assertEquals(1, fields.keySet().stream().filter(field -> field.contains("States")).count());
+    }
+
+    private MappingMongoConverter getConverter() {
+        MongoCustomConversions conversions = new MongoCustomConversions(Collections.emptyList());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+}
@@ -13,11 +13,19 @@ import java.time.Clock;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.Collections;
 
+import org.bson.Document;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
 
 import com.minesweeper.model.Game.Status;
+import com.minesweeper.repository.GameRepository;
 import com.minesweeper.service.GameInfo;
+import com.minesweeper.service.GameSummaryInfo;
 
 public class GameTest {
 
@@ -226,4 +234,67 @@ public class GameTest {
         assertNotNull(gameInfo.duration);
         assertTrue(gameInfo.board.cells.stream().flatMap(aRow -> aRow.stream()).allMatch(value -> "C".equals(value)));
     }
+
+    @Test
+    public void testSummaryIsBuiltFromTheSummaryFieldsOnly() {
+        Game game = new Game(4, 4, 3, "user");
+        // mines on (0,0), (1,1) and (2,0)
+        game.setBoard(new Board(4, 4, 3, 277));
+        game.uncoverCell(3, 3);
+        MappingMongoConverter converter = getConverter();
+        Document document = new Document();
+        converter.write(game, document);
+        Document fields = Document.parse(GameRepository.SUMMARY_FIELDS);
+        document.keySet().removeIf(field -> !field.equals("_id") && !fields.containsKey(field) && !field.equals("board"));
+        ((Document) document.get("board")).keySet().removeIf(field -> !fields.containsKey("board." + field));
+        GameSummaryInfo summaryInfo = converter.read(Game.class, document).toSummaryInfo();
+        assertEquals(game.getId(), summaryInfo.id);
+        assertEquals(Status.Started.name(), summaryInfo.status);
+        assertEquals(4, summaryInfo.rows);
+        assertEquals(4, summaryInfo.columns);
+        assertEquals(3, summaryInfo.mines);
+        // 10 of the 13 cells without mine
+        assertEquals(76, summaryInfo.progress);
+    }
+
+    @Test
+    public void testActionsRecordTheirMovesUntilTheGameIsWritten() {
+        Game game = new Game(4, 4, 3, "user");
+        // mines on (0,0), (1,1) and (2,0)
+        game.setBoard(new Board(4, 4, 3, 277));
+        game.setRedFlag(0, 0);
+        game.uncoverCell(3, 3);
+        assertThrows(CellException.class, () -> game.setRedFlag(3, 3));
+        assertEquals(2, game.getMoves().size());
+        assertEquals(GameMove.FLAG, game.getMoves().get(0).getAction());
+        assertEquals(1, game.getMoves().get(0).getVersion());
+        assertEquals(GameMove.UNCOVER, game.getMoves().get(1).getAction());
+        assertEquals(3, game.getMoves().get(1).getRow());
+        assertEquals(2, game.getMoves().get(1).getVersion());
+        game.markWritten();
+        assertTrue(game.getMoves().isEmpty());
+    }
+
+    @Test
+    public void testReplayFinishesTheGameAtTheTimeOfTheMove() throws Exception {
+        Game game = new Game(4, 4, 3, "user");
+        game.setBoard(new Board(4, 4, 3, 277));
+        game.uncoverCell(1, 1);
+        Game replayed = new Game(4, 4, 3, "user");
+        replayed.setBoard(new Board(4, 4, 3, 277));
+        Thread.sleep(1);
+        replayed.replay(game.getMoves().get(0));
+        assertEquals(Status.Lost, replayed.getStatus());
+        assertEquals(game.getMoves().get(0).getTime(), replayed.getEndTime());
+    }
+
+    private MappingMongoConverter getConverter() {
+        MongoCustomConversions conversions = new MongoCustomConversions(Collections.emptyList());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
 }
@@ -0,0 +1,62 @@
+package com.minesweeper.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class MineBitboardTest {
+
+    @Test
+    public void testAdjacentMinesAreCountedAcrossWords() {
+        // 130 columns: two full words and a partial one per row
+        int rows = 5;
+        int columns = 130;
+        byte[] cells = new byte[rows * columns];
+        MineBitboard bitboard = new MineBitboard(rows, columns);
+        Random random = new Random(1);
+        for (int index = 0; index < cells.length; index++) {
+            if (random.nextInt(3) == 0) {
+                cells[index] = PackedCell.addMine(cells[index]);
+                bitboard.addMine(index / columns, index % columns);
+            }
+        }
+        bitboard.countAdjacentMines(cells, 0, rows);
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                byte cell = cells[row * columns + column];
+                int adjacentMines = 0;
+                for (int i = Math.max(row - 1, 0); i <= Math.min(row + 1, rows - 1); i++) {
+                    for (int j = Math.max(column - 1, 0); j <= Math.min(column + 1, columns - 1); j++) {
+                        adjacentMines += (bitboard.hasMine(i, j) && (i != row || j != column) ? 1 : 0);
+                    }
+                }
+                assertEquals(PackedCell.hasMine(cell) ? 0 : adjacentMines, PackedCell.getAdjacentMinesCounter(cell));
+            }
+        }
+    }
+
+    @Test
+    public void testCellSurroundedByMinesCountsEight() {
+        long[] planes = new long[MineBitboard.PLANES];
+        MineBitboard.countAdjacentMines(0, 0b111, 0, 0, 0b101, 0, 0, 0b111, 0, planes);
+        byte[] cells = new byte[64];
+        MineBitboard.writeCounters(cells, 0, 64, 0b101, planes);
+        assertEquals(8, PackedCell.getAdjacentMinesCounter(cells[1]));
+        assertEquals(0, PackedCell.getAdjacentMinesCounter(cells[0]));
+    }
+
+    @Test
+    public void testMinesAreCountedWithPopcounts() {
+        MineBitboard bitboard = new MineBitboard(3, 100);
+        bitboard.addMine(0, 0);
+        bitboard.addMine(1, 63);
+        bitboard.addMine(2, 99);
+        assertEquals(3, bitboard.countMines());
+        assertTrue(bitboard.hasMine(1, 63));
+        assertFalse(bitboard.hasMine(1, 64));
+    }
+}
@@ -0,0 +1,40 @@
+package com.minesweeper.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+public class NeighborhoodTest {
+
+    private final Neighborhood neighborhood = new Neighborhood(4, 5);
+    private final int[] adjacents = new int[Neighborhood.MAX_ADJACENTS];
+
+    @Test
+    public void testInteriorCellHasEightAdjacents() {
+        int count = neighborhood.getAdjacents(6, adjacents);
+        assertEquals(8, count);
+        assertArrayEquals(new int[] { 0, 1, 2, 5, 7, 10, 11, 12 }, adjacents);
+    }
+
+    @Test
+    public void testCornerCellHasThreeAdjacents() {
+        int count = neighborhood.getAdjacents(19, adjacents);
+        assertArrayEquals(new int[] { 13, 14, 18 }, Arrays.copyOf(adjacents, count));
+    }
+
+    @Test
+    public void testBorderCellHasFiveAdjacents() {
+        int count = neighborhood.getAdjacents(5, adjacents);
+        assertArrayEquals(new int[] { 0, 1, 6, 10, 11 }, Arrays.copyOf(adjacents, count));
+    }
+
+    @Test
+    public void testSingleColumnBoard() {
+        Neighborhood column = new Neighborhood(3, 1);
+        int count = column.getAdjacents(1, adjacents);
+        assertArrayEquals(new int[] { 0, 2 }, Arrays.copyOf(adjacents, count));
+    }
+}
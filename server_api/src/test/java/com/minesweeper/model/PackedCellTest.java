@@ -0,0 +1,62 @@
+package com.minesweeper.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.minesweeper.model.Cell.Status;
+
+public class PackedCellTest {
+
+    @Test
+    public void testZeroIsACoveredCellWithoutMine() {
+        byte packed = 0;
+        assertTrue(PackedCell.isCovered(packed));
+        assertFalse(PackedCell.hasMine(packed));
+        assertEquals(0, PackedCell.getAdjacentMinesCounter(packed));
+        assertEquals(Status.Covered, PackedCell.getStatus(packed));
+    }
+
+    @Test
+    public void testAddMineResetsTheAdjacentMinesCounter() {
+        byte packed = PackedCell.incrementAdjacentMinesCounter((byte) 0);
+        packed = PackedCell.addMine(packed);
+        assertTrue(PackedCell.hasMine(packed));
+        assertEquals(0, PackedCell.getAdjacentMinesCounter(packed));
+    }
+
+    @Test
+    public void testUncoverKeepsMineAndCounter() {
+        byte packed = PackedCell.pack(false, 8, Status.Flagged);
+        packed = PackedCell.uncover(packed);
+        assertFalse(PackedCell.isCovered(packed));
+        assertEquals(8, PackedCell.getAdjacentMinesCounter(packed));
+        assertEquals("8", PackedCell.getInfo(packed));
+    }
+
+    @Test
+    public void testCellPackRoundTrip() {
+        Cell cell = new Cell();
+        cell.incrementAdjacentMinesCounter();
+        cell.incrementAdjacentMinesCounter();
+        cell.setQuestionMark();
+        Cell unpacked = new Cell(cell.pack());
+        assertFalse(unpacked.hasMine());
+        assertEquals(2, unpacked.getAdjacentMinesCounter());
+        assertEquals("Q", unpacked.getInfo());
+    }
+
+    @Test
+    public void testGetInfoMatchesCellInfoForEveryState() {
+        for (Status status : Status.values()) {
+            for (int counter = 0; counter <= 8; counter++) {
+                byte packed = PackedCell.pack(false, counter, status);
+                assertEquals(new Cell(packed).getInfo(), PackedCell.getInfo(packed));
+            }
+            byte mine = PackedCell.pack(true, 0, status);
+            assertEquals(new Cell(mine).getInfo(), PackedCell.getInfo(mine));
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.minesweeper.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+import com.minesweeper.model.Game;
+import com.minesweeper.model.Game.Status;
+import com.minesweeper.model.GameMove;
+
+public class EventSourcedGameRepositoryTest {
+
+    private static final int SNAPSHOT_INTERVAL = 4;
+
+    private FakeGameRepository snapshots;
+    private List<GameMove> log;
+    private EventSourcedGameRepository repository;
+
+    @BeforeEach
+    public void before() {
+        snapshots = new FakeGameRepository();
+        log = new ArrayList<GameMove>();
+        MongoOperations operations = FakeMoveLog.operations(log);
+        repository = new EventSourcedGameRepository(snapshots, operations, SNAPSHOT_INTERVAL);
+    }
+
+    @Test
+    public void testNewGamesAreSnapshotted() {
+        Game game = new Game(10, 10, 8, "user");
+        repository.save(game);
+        assertEquals(1, snapshots.getSaves());
+        assertTrue(log.isEmpty());
+    }
+
+    @Test
+    public void testMovesAreAppendedBetweenSnapshots() {
+        Game game = create();
+        game.setRedFlag(0, 0);
+        game.setQuestionMark(1, 1);
+        repository.save(game);
+        assertEquals(1, snapshots.getSaves());
+        assertEquals(2, log.size());
+        assertEquals(GameMove.FLAG, log.get(0).getAction());
+        assertEquals(1, log.get(0).getVersion());
+        assertEquals(GameMove.QUESTION, log.get(1).getAction());
+        assertEquals(2, log.get(1).getVersion());
+        assertTrue(game.getMoves().isEmpty());
+    }
+
+    @Test
+    public void testSnapshotsEveryIntervalCompactTheLog() {
+        Game game = create();
+        for (int column = 0; column <= SNAPSHOT_INTERVAL; column++) {
+            game.setRedFlag(0, column);
+            repository.save(game);
+        }
+        assertEquals(2, snapshots.getSaves());
+        assertEquals(SNAPSHOT_INTERVAL, snapshots.getSavedVersion(game.getId()));
+        assertEquals(1, log.size());
+        assertEquals(SNAPSHOT_INTERVAL + 1, log.get(0).getVersion());
+    }
+
+    @Test
+    public void testGamesAreRebuiltFromTheSnapshotAndTheLog() {
+        // dense enough for the first cascade not to finish the game
+        Game game = new Game(10, 10, 40, "user");
+        repository.save(game);
+        game.setRedFlag(0, 0);
+        game.uncoverCell(9, 9);
+        game.setQuestionMark(0, 1);
+        repository.save(game);
+        Game rebuilt = repository.get(game.getId()).get();
+        assertEquals(0, snapshots.getSavedVersion(game.getId()));
+        assertEquals(game.getVersion(), rebuilt.getVersion());
+        assertEquals(game.getStatus(), rebuilt.getStatus());
+        assertEquals(game.toGameInfo().board.cells, rebuilt.toGameInfo().board.cells);
+        assertTrue(rebuilt.getMoves().isEmpty());
+    }
+
+    @Test
+    public void testGamesFinishedOnTheLogAreSnapshotted() {
+        // every cell but the first one uncovered has a mine
+        Game game = new Game(3, 3, 8, "user");
+        repository.save(game);
+        game.uncoverCell(1, 1);
+        GameMove move = game.getMoves().get(0);
+        // logged, but not snapshotted yet
+        log.add(move);
+        Game rebuilt = repository.get(game.getId()).get();
+        assertEquals(Status.Won, rebuilt.getStatus());
+        assertEquals(move.getTime(), rebuilt.getEndTime());
+        assertEquals(2, snapshots.getSaves());
+        assertTrue(log.isEmpty());
+    }
+
+    @Test
+    public void testMovesLoggedByAnotherWriterConflict() {
+        Game game = create();
+        Game other = repository.get(game.getId()).get();
+        game.setRedFlag(0, 0);
+        repository.save(game);
+        other.setRedFlag(1, 1);
+        assertThrows(OptimisticLockingFailureException.class, () -> repository.save(other));
+        assertEquals(1, log.size());
+    }
+
+    @Test
+    public void testMovesLoggedBeforeAConflictAreRemoved() {
+        Game game = create();
+        Game other = repository.get(game.getId()).get();
+        other.setRedFlag(0, 0);
+        other.setRedFlag(0, 1);
+        repository.save(other);
+        // another writer logged the version 2 only
+        log.remove(0);
+        game.setRedFlag(1, 0);
+        game.setRedFlag(1, 1);
+        game.setRedFlag(1, 2);
+        assertThrows(OptimisticLockingFailureException.class, () -> repository.save(game));
+        assertEquals(1, log.size());
+        assertEquals(0, log.get(0).getRow());
+        assertEquals(2, log.get(0).getVersion());
+    }
+
+    @Test
+    public void testFailedSnapshotIsWrittenByTheNextSave() {
+        // every cell but the first one uncovered has a mine
+        Game game = new Game(3, 3, 8, "user");
+        repository.save(game);
+        game.uncoverCell(1, 1);
+        snapshots.setFailing(true);
+        assertThrows(IllegalStateException.class, () -> repository.save(game));
+        assertEquals(1, log.size());
+        snapshots.setFailing(false);
+        repository.save(game);
+        assertEquals(2, snapshots.getSaves());
+        assertEquals(1, snapshots.getSavedVersion(game.getId()));
+        assertTrue(log.isEmpty());
+        Game rebuilt = repository.get(game.getId()).get();
+        assertEquals(Status.Won, rebuilt.getStatus());
+        assertNotNull(rebuilt.getEndTime());
+    }
+
+    @Test
+    public void testGamesHaveChangesAfterTheSnapshotWhileTheirMovesAreLogged() {
+        Game game = create();
+        assertFalse(repository.hasChangesAfter(game.getId(), 0));
+        game.setRedFlag(0, 0);
+        repository.save(game);
+        assertTrue(repository.hasChangesAfter(game.getId(), 0));
+        assertFalse(repository.hasChangesAfter(game.getId(), 1));
+    }
+
+    @Test
+    public void testGetMovesReturnsTheMovesLoggedAfterAVersion() {
+        Game game = create();
+        game.setRedFlag(0, 0);
+        game.setRedFlag(0, 1);
+        game.removeRedFlag(0, 0);
+        repository.save(game);
+        List<GameMove> moves = repository.getMoves(game.getId(), 1).get();
+        assertEquals(2, moves.size());
+        assertEquals(GameMove.FLAG, moves.get(0).getAction());
+        assertEquals(1, moves.get(0).getColumn());
+        assertEquals(GameMove.UNFLAG, moves.get(1).getAction());
+    }
+
+    private Game create() {
+        Game game = new Game(10, 10, 8, "user");
+        repository.save(game);
+        return game;
+    }
+}
@@ -0,0 +1,222 @@
+package com.minesweeper.repository;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bson.Document;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import com.minesweeper.model.Game;
+import com.minesweeper.model.Game.Status;
+
+/**
+ * Stand-in for the Mongo repository of games: the games are kept as the
+ * documents Mongo would store, so each read returns a new copy of the game as
+ * it was written (the changes of a game are written whole). Only saving and
+ * reading by id are supported
+ */
+public class FakeGameRepository implements GameRepository {
+
+    private final MappingMongoConverter converter;
+    private final Map<UUID, Document> documents = new ConcurrentHashMap<UUID, Document>();
+    private final AtomicInteger saves = new AtomicInteger();
+    private final AtomicInteger reads = new AtomicInteger();
+    private volatile boolean failing;
+
+    public FakeGameRepository() {
+        MongoCustomConversions conversions = new MongoCustomConversions(Collections.emptyList());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+    }
+
+    /**
+     * @param failing
+     *            whether the writes fail, as when the database is down
+     */
+    public void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    public int getSaves() {
+        return saves.get();
+    }
+
+    public int getReads() {
+        return reads.get();
+    }
+
+    /**
+     * Returns the board's version of a game as it was written, -1 if it was
+     * never written
+     * 
+     * @param id
+     * @return
+     */
+    public long getSavedVersion(UUID id) {
+        return (documents.containsKey(id) ? read(id).getVersion() : -1);
+    }
+
+    /**
+     * Writes a game whole if its revision is the one written, as the
+     * versioned save of Mongo does
+     */
+    @Override
+    public synchronized <S extends Game> S save(S game) {
+        if (failing) {
+            throw new IllegalStateException("database down");
+        }
+        Document written = documents.get(game.getId());
+        if (!Objects.equals(written != null ? written.get("revision") : null, game.getRevision())) {
+            throw new OptimisticLockingFailureException("Game changed by another writer: " + game.getId());
+        }
+        game.setRevision(game.getRevision() != null ? game.getRevision() + 1 : 0);
+        Document document = new Document();
+        converter.write(game, document);
+        documents.put(game.getId(), document);
+        saves.incrementAndGet();
+        return game;
+    }
+
+    @Override
+    public void saveChanges(Game game) {
+        save(game);
+        game.markWritten();
+    }
+
+    @Override
+    public Optional<Game> findById(UUID id) {
+        reads.incrementAndGet();
+        return Optional.ofNullable(documents.containsKey(id) ? read(id) : null);
+    }
+
+    @Override
+    public Optional<Game> findSummaryById(UUID id) {
+        return findById(id);
+    }
+
+    @Override
+    public boolean existsById(UUID id) {
+        return documents.containsKey(id);
+    }
+
+    @Override
+    public long count() {
+        return documents.size();
+    }
+
+    private Game read(UUID id) {
+        return converter.read(Game.class, documents.get(id));
+    }
+
+    @Override
+    public Page<Game> findSummariesByUsername(String username, Pageable pageable) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Page<Game> findSummariesByUsernameAndStatus(String username, Status status, Pageable pageable) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <S extends Game> List<S> saveAll(Iterable<S> games) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<Game> findAll() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<Game> findAll(Sort sort) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Page<Game> findAll(Pageable pageable) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Iterable<Game> findAllById(Iterable<UUID> ids) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <S extends Game> S insert(S game) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <S extends Game> List<S> insert(Iterable<S> games) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <S extends Game> List<S> findAll(Example<S> example) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <S extends Game> List<S> findAll(Example<S> example, Sort sort) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <S extends Game> Optional<S> findOne(Example<S> example) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <S extends Game> Page<S> findAll(Example<S> example, Pageable pageable) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <S extends Game> long count(Example<S> example) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <S extends Game> boolean exists(Example<S> example) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteById(UUID id) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void delete(Game game) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends Game> games) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteAll() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,104 @@
+package com.minesweeper.repository;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.minesweeper.model.GameMove;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+
+/**
+ * Move log of the event-sourced repository kept on a list, through mocked
+ * Mongo operations: the moves are inserted, found, counted and removed by
+ * the game and the version conditions of the queries
+ */
+public class FakeMoveLog {
+
+    private FakeMoveLog() {
+    }
+
+    /**
+     * Returns the operations on a move log kept on the given list
+     * 
+     * @param log
+     * @return
+     */
+    public static MongoOperations operations(List<GameMove> log) {
+        MongoOperations operations = mock(MongoOperations.class);
+        // an ordered insert: the moves before a duplicate one are logged
+        when(operations.insert(anyCollection(), eq(GameMove.class))).thenAnswer(invocation -> {
+            Collection<GameMove> moves = invocation.getArgument(0);
+            int index = 0;
+            for (GameMove move : moves) {
+                if (log.stream().anyMatch(logged -> logged.getId().equals(move.getId()))) {
+                    BulkWriteError error = new BulkWriteError(11000, "duplicate move: " + move.getId(), new BsonDocument(), index);
+                    throw new DuplicateKeyException(error.getMessage(), new MongoBulkWriteException(BulkWriteResult.unacknowledged(),
+                            Collections.singletonList(error), null, new ServerAddress()));
+                }
+                log.add(move);
+                index++;
+            }
+            return moves;
+        });
+        when(operations.find(any(Query.class), eq(GameMove.class))).thenAnswer(invocation -> select(log, invocation.getArgument(0)));
+        when(operations.exists(any(Query.class), eq(GameMove.class)))
+                .thenAnswer(invocation -> !select(log, invocation.getArgument(0)).isEmpty());
+        doAnswer(invocation -> {
+            log.removeAll(select(log, invocation.getArgument(0)));
+            return null;
+        }).when(operations).remove(any(Query.class), eq(GameMove.class));
+        return operations;
+    }
+
+    /**
+     * Returns the moves logged of the game a query asks for, whose version
+     * matches all of the query's conditions
+     *
+     * @param log
+     * @param query
+     * @return
+     */
+    private static List<GameMove> select(List<GameMove> log, Query query) {
+        Document queryObject = query.getQueryObject();
+        UUID gameId = (UUID) queryObject.get("gameId");
+        Document conditions = (Document) queryObject.get("version");
+        return log.stream().filter(move -> move.getGameId().equals(gameId) && matches(conditions, move.getVersion()))
+                .sorted((a, b) -> Long.compare(a.getVersion(), b.getVersion())).collect(Collectors.toList());
+    }
+
+    private static boolean matches(Document conditions, long version) {
+        return conditions.entrySet().stream().allMatch(condition -> {
+            long limit = (Long) condition.getValue();
+            switch (condition.getKey()) {
+            case "$gt":
+                return version > limit;
+            case "$gte":
+                return version >= limit;
+            case "$lt":
+                return version < limit;
+            case "$lte":
+                return version <= limit;
+            default:
+                throw new IllegalArgumentException("unexpected condition: " + condition.getKey());
+            }
+        });
+    }
+}
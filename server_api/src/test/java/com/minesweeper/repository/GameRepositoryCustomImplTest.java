@@ -0,0 +1,178 @@
+package com.minesweeper.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.convert.UpdateMapper;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.minesweeper.model.Game;
+import com.mongodb.client.result.UpdateResult;
+
+public class GameRepositoryCustomImplTest {
+
+    private MongoMappingContext mappingContext;
+    private MappingMongoConverter converter;
+    private MongoOperations operations;
+    private GameRepositoryCustomImpl repository;
+
+    @BeforeEach
+    public void before() {
+        MongoCustomConversions conversions = new MongoCustomConversions(Collections.emptyList());
+        mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        operations = mock(MongoOperations.class);
+        when(operations.updateFirst(any(Query.class), any(Update.class), eq(Game.class))).thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        repository = new GameRepositoryCustomImpl(operations);
+    }
+
+    @Test
+    public void testNewGamesAreWrittenWhole() {
+        Game game = new Game(10, 10, 8, "user");
+        repository.saveChanges(game);
+        verify(operations, times(1)).save(game);
+        verify(operations, never()).updateFirst(any(Query.class), any(Update.class), eq(Game.class));
+    }
+
+    @Test
+    public void testLoadedGamesOnlySetTheFieldsChanged() {
+        Game game = load(new Game(300, 300, 8, "user"), 0, 1);
+        game.setRedFlag(299, 299);
+        repository.saveChanges(game);
+        Document set = getSetFields(1);
+        assertEquals("Started", set.get("status"));
+        assertEquals(2L, set.get("board.version"));
+        // 90000 cells, the last one on the block 21
+        assertTrue(set.containsKey("board.stateBlocks.21"));
+        assertFalse(set.containsKey("board"));
+        assertEquals(1, set.keySet().stream().filter(field -> field.startsWith("board.stateBlocks")).count());
+        verify(operations, never()).save(game);
+    }
+
+    @Test
+    public void testChangesOfAMoveAreAppendedToTheLog() {
+        Game game = load(new Game(300, 300, 8, "user"), 0, 1);
+        game.setRedFlag(299, 299);
+        repository.saveChanges(game);
+        Document set = getSetFields(1);
+        assertFalse(set.containsKey("board.changes"));
+        assertEquals(2, set.get("board.changes.size"));
+        Document push = (Document) getMappedUpdate(1).get("$push");
+        assertEquals(Collections.singletonList(89999L), ((Document) push.get("board.changes.positions")).get("$each"));
+        assertEquals(Collections.singletonList(2L), ((Document) push.get("board.changes.versions")).get("$each"));
+    }
+
+    @Test
+    public void testBlocksOfABoardWithoutThemAreSetWhole() {
+        Game game = new Game(300, 300, 8, "user");
+        Document document = new Document();
+        converter.write(game, document);
+        game = converter.read(Game.class, document);
+        game.setRedFlag(299, 299);
+        repository.saveChanges(game);
+        Document set = getSetFields(1);
+        assertEquals(22, ((List<?>) set.get("board.stateBlocks")).size());
+    }
+
+    @Test
+    public void testWrittenBlocksAreNotSetAgain() {
+        Game game = load(new Game(300, 300, 8, "user"), 0, 1);
+        game.setRedFlag(299, 299);
+        repository.saveChanges(game);
+        game.setQuestionMark(0, 0);
+        repository.saveChanges(game);
+        Document set = getSetFields(2);
+        assertTrue(set.containsKey("board.stateBlocks.0"));
+        assertFalse(set.containsKey("board.stateBlocks.21"));
+    }
+
+    /**
+     * Returns a copy of a game as loaded from Mongo, with a flag set on it
+     * before writing it
+     * 
+     * @param game
+     * @param row
+     * @param column
+     * @return
+     */
+    @Test
+    public void testUpdatesAreConditionedOnTheRevision() {
+        Game game = load(new Game(10, 10, 8, "user"), 0, 1);
+        game.setRevision(3L);
+        game.setRedFlag(2, 3);
+        repository.saveChanges(game);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(operations).updateFirst(query.capture(), update.capture(), eq(Game.class));
+        assertEquals(3L, query.getValue().getQueryObject().get("revision"));
+        assertEquals(4L, ((Document) update.getValue().getUpdateObject().get("$set")).get("revision"));
+        assertEquals(4L, game.getRevision());
+    }
+
+    @Test
+    public void testUpdatesOfGamesWrittenMeanwhileFail() {
+        when(operations.updateFirst(any(Query.class), any(Update.class), eq(Game.class))).thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        Game game = load(new Game(10, 10, 8, "user"), 0, 1);
+        game.setRevision(3L);
+        game.setRedFlag(2, 3);
+        assertThrows(OptimisticLockingFailureException.class, () -> repository.saveChanges(game));
+        assertEquals(3L, game.getRevision());
+    }
+
+    private Game load(Game game, int row, int column) {
+        game.setRedFlag(row, column);
+        Document document = new Document();
+        converter.write(game, document);
+        return converter.read(Game.class, document);
+    }
+
+    /**
+     * Returns the fields set by the last update, as they are sent to Mongo
+     * 
+     * @param updates
+     *            number of updates done
+     * @return
+     */
+    private Document getSetFields(int updates) {
+        return (Document) getMappedUpdate(updates).get("$set");
+    }
+
+    /**
+     * Returns the last update, as it is sent to Mongo
+     * 
+     * @param updates
+     *            number of updates done
+     * @return
+     */
+    private Document getMappedUpdate(int updates) {
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(operations, times(updates)).updateFirst(any(Query.class), update.capture(), eq(Game.class));
+        return new UpdateMapper(converter).getMappedObject(update.getValue().getUpdateObject(), mappingContext.getPersistentEntity(Game.class));
+    }
+}
@@ -0,0 +1,195 @@
+package com.minesweeper.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.minesweeper.model.Board;
+import com.minesweeper.model.Game;
+import com.minesweeper.model.Game.Status;
+
+public class GameStoreTest {
+
+    /** long enough for the scheduled flush not to run during a test **/
+    private static final long NEVER = 3600000;
+
+    private FakeGameRepository repository;
+    private ScheduledExecutorService flusher;
+
+    @BeforeEach
+    public void before() {
+        repository = new FakeGameRepository();
+        flusher = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    public void after() {
+        flusher.shutdownNow();
+    }
+
+    @Test
+    public void testNewGamesAreWrittenAtOnce() {
+        GameStore store = new GameStore(repository, 10, NEVER, flusher);
+        Game game = new Game(10, 10, 8, "user");
+        store.save(game);
+        assertEquals(1, repository.getSaves());
+        assertEquals(0, store.countDirty());
+    }
+
+    @Test
+    public void testReadsAreServedFromMemory() {
+        Game game = new Game(10, 10, 8, "user");
+        repository.save(game);
+        GameStore store = new GameStore(repository, 10, NEVER, flusher);
+        Game read = store.findById(game.getId()).get();
+        assertSame(read, store.findById(game.getId()).get());
+        assertSame(read, store.findSummaryById(game.getId()).get());
+        assertEquals(1, repository.getReads());
+        assertEquals(1, store.getHits());
+        assertEquals(1, store.getMisses());
+    }
+
+    @Test
+    public void testChangesAreWrittenByTheFlush() {
+        GameStore store = new GameStore(repository, 10, NEVER, flusher);
+        Game game = new Game(10, 10, 8, "user");
+        store.save(game);
+        game.setRedFlag(2, 3);
+        store.save(game);
+        game.setRedFlag(4, 5);
+        store.save(game);
+        assertEquals(0, repository.getSavedVersion(game.getId()));
+        assertEquals(1, store.countDirty());
+        store.flush();
+        assertEquals(2, repository.getSavedVersion(game.getId()));
+        assertEquals(2, repository.getSaves());
+        assertEquals(0, store.countDirty());
+    }
+
+    @Test
+    public void testChangesAreWrittenWithinTheFlushInterval() throws InterruptedException {
+        GameStore store = new GameStore(repository, 10, 20, flusher);
+        Game game = new Game(10, 10, 8, "user");
+        store.save(game);
+        synchronized (game) {
+            game.setRedFlag(2, 3);
+            store.save(game);
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (repository.getSavedVersion(game.getId()) != 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, repository.getSavedVersion(game.getId()));
+    }
+
+    @Test
+    public void testFinishedGamesAreWrittenAtOnce() {
+        GameStore store = new GameStore(repository, 10, NEVER, flusher);
+        Game game = new Game(4, 4, 3, "user");
+        // mines on (0,0), (1,1) and (2,0)
+        game.setBoard(new Board(4, 4, 3, 277));
+        store.save(game);
+        game.uncoverCell(0, 0);
+        assertEquals(Status.Lost, game.getStatus());
+        store.save(game);
+        assertEquals(1, repository.getSavedVersion(game.getId()));
+    }
+
+    @Test
+    public void testWriteThroughWritesEveryChange() {
+        GameStore store = new GameStore(repository, 10, 0, flusher);
+        Game game = new Game(10, 10, 8, "user");
+        store.save(game);
+        game.setRedFlag(2, 3);
+        store.save(game);
+        assertEquals(1, repository.getSavedVersion(game.getId()));
+    }
+
+    @Test
+    public void testEvictedDirtyGamesAreWritten() throws InterruptedException {
+        GameStore store = new GameStore(repository, 2, NEVER, flusher);
+        Game game = new Game(10, 10, 8, "user");
+        store.save(game);
+        game.setRedFlag(2, 3);
+        store.save(game);
+        store.save(new Game(10, 10, 8, "user"));
+        store.save(new Game(10, 10, 8, "user"));
+        assertEquals(2, store.size());
+        assertEquals(1, store.getEvictions());
+        assertEquals(1, store.getDirtyEvictions());
+        flusher.shutdown();
+        assertTrue(flusher.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(1, repository.getSavedVersion(game.getId()));
+        assertEquals(0, store.countDirty());
+    }
+
+    @Test
+    public void testEvictedGamesAreReadAgain() {
+        GameStore store = new GameStore(repository, 1, NEVER, flusher);
+        Game game = new Game(10, 10, 8, "user");
+        store.save(game);
+        store.save(new Game(10, 10, 8, "user"));
+        Game read = store.findById(game.getId()).get();
+        assertFalse(read == game);
+        assertEquals(game.getId(), read.getId());
+        assertEquals(2, store.getEvictions());
+        assertEquals(0, store.getDirtyEvictions());
+    }
+
+    @Test
+    public void testFailedWritesAreRetried() {
+        GameStore store = new GameStore(repository, 10, NEVER, flusher);
+        Game game = new Game(10, 10, 8, "user");
+        store.save(game);
+        game.setRedFlag(2, 3);
+        store.save(game);
+        repository.setFailing(true);
+        assertThrows(IllegalStateException.class, () -> store.flush());
+        assertEquals(1, store.getWriteErrors());
+        assertEquals(1, store.countDirty());
+        repository.setFailing(false);
+        store.close();
+        assertEquals(1, repository.getSavedVersion(game.getId()));
+        assertEquals(0, store.countDirty());
+    }
+
+    @Test
+    public void testEvictedGamesAreWrittenWithoutHoldingTheStore() {
+        AtomicReference<GameStore> holder = new AtomicReference<GameStore>();
+        AtomicBoolean holdingStore = new AtomicBoolean();
+        repository = new FakeGameRepository() {
+            @Override
+            public synchronized <S extends Game> S save(S game) {
+                holdingStore.compareAndSet(false, Thread.holdsLock(holder.get()));
+                return super.save(game);
+            }
+        };
+        GameStore store = new GameStore(repository, 1);
+        holder.set(store);
+        Game game = new Game(10, 10, 8, "user");
+        store.save(game);
+        game.setRedFlag(2, 3);
+        repository.setFailing(true);
+        assertThrows(IllegalStateException.class, () -> store.save(game));
+        // evicts the game, which fails to be written again and is kept apart
+        Game other = new Game(10, 10, 8, "user");
+        assertThrows(IllegalStateException.class, () -> store.save(other));
+        repository.setFailing(false);
+        // taking the game back evicts the other one, written at once
+        assertSame(game, store.findById(game.getId()).get());
+        assertEquals(0, repository.getSavedVersion(other.getId()));
+        assertFalse(holdingStore.get());
+    }
+}
@@ -0,0 +1,38 @@
+package com.minesweeper.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.minesweeper.model.Game;
+
+public class CellsSerializerTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testCellsAreWrittenAsNestedArraysOfCodes() throws Exception {
+        BoardInfo boardInfo = new BoardInfo();
+        boardInfo.cells = Arrays.asList(Arrays.asList("C", "1"), Arrays.asList("F", "M"));
+        assertEquals("{\"cells\":[[\"C\",\"1\"],[\"F\",\"M\"]]}", mapper.writeValueAsString(boardInfo));
+    }
+
+    @Test
+    public void testBoardViewIsWrittenAsPlainListsAre() throws Exception {
+        Game game = new Game(20, 30, 50, "user");
+        game.uncoverCell(10, 10);
+        BoardInfo boardInfo = game.toGameInfo().board;
+        List<List<String>> copy = new ArrayList<List<String>>();
+        for (List<String> row : boardInfo.cells) {
+            copy.add(new ArrayList<String>(row));
+        }
+        // plain lists written by jackson's default serializers
+        assertEquals(mapper.writeValueAsString(Collections.singletonMap("cells", copy)), mapper.writeValueAsString(boardInfo));
+    }
+}
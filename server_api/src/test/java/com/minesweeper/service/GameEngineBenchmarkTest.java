@@ -0,0 +1,116 @@
+package com.minesweeper.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.context.ApplicationEventPublisher;
+
+import com.minesweeper.repository.FakeGameRepository;
+import com.minesweeper.repository.GameStore;
+import com.minesweeper.security.SecurityContext;
+
+/**
+ * 
+ * Measures the moves per second applied on many games by clients in parallel
+ * with one shard and with a shard per processor (at least 2), and checks the
+ * shards applied every move without rejecting any and that the shards added
+ * do not cost throughput. The throughputs and the latencies of the shards are
+ * published as report entries of the test (shown by the IDE or the JUnit
+ * console launcher). Excluded from the build, run it with:
+ * mvn test -Dgroups=benchmark -DexcludedGroups=none
+ *
+ */
+@Tag("benchmark")
+public class GameEngineBenchmarkTest {
+
+    private static final int GAMES = 256;
+    private static final int SIZE = 100;
+    private static final int MOVES_PER_CLIENT = 2000;
+    private static final int CLIENTS = 64;
+
+    /** share of the throughput of one shard the sharded engine must reach at least **/
+    private static final double MIN_SCALING = 0.8;
+
+    @Test
+    public void benchmarkMovesWithMoreShards(TestReporter reporter) throws Exception {
+        int shards = Math.max(2, Runtime.getRuntime().availableProcessors());
+        long single = measure(1, reporter);
+        long sharded = measure(shards, reporter);
+        assertTrue(sharded >= single * MIN_SCALING, shards + " shards: " + sharded + " moves/s, 1 shard: " + single + " moves/s");
+    }
+
+    /**
+     * Returns the moves per second applied: each client flags and unflags
+     * cells of random games
+     */
+    private long measure(int shards, TestReporter reporter) throws Exception {
+        GameEngine engine = new GameEngine(shards, 1024);
+        ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor();
+        // the games are kept on memory, the repository is only written once
+        GameService service = new GameService(new GameStore(new FakeGameRepository(), GAMES, 3600000, flusher), engine,
+                mock(ApplicationEventPublisher.class));
+        SecurityContext.setPrincipal("user");
+        List<UUID> games = new ArrayList<UUID>();
+        for (int i = 0; i < GAMES; i++) {
+            games.add(service.createGame(SIZE, SIZE, 10, null).id);
+        }
+        long created = getCompleted(engine);
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        List<Future<?>> done = new ArrayList<Future<?>>();
+        long start = System.nanoTime();
+        for (int client = 0; client < CLIENTS; client++) {
+            int seed = client;
+            done.add(clients.submit(() -> {
+                SecurityContext.setPrincipal("user");
+                BoardView view = new BoardView(0L, true);
+                for (int move = 0; move < MOVES_PER_CLIENT; move++) {
+                    UUID id = games.get((seed * 31 + move * 7) % GAMES);
+                    int row = (seed + move) % SIZE;
+                    int column = (seed * 3 + move / 2) % SIZE;
+                    try {
+                        service.setRedFlag(id, row, column, view);
+                    } catch (RuntimeException e) {
+                        service.removeRedFlag(id, row, column, view);
+                    }
+                }
+            }));
+        }
+        for (Future<?> client : done) {
+            client.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        clients.shutdown();
+        engine.close();
+        flusher.shutdown();
+        long movesPerSecond = (long) CLIENTS * MOVES_PER_CLIENT * 1000000000L / elapsed;
+        reporter.publishEntry(shards + " shards", movesPerSecond + " moves/s");
+        for (int shard = 0; shard < shards; shard++) {
+            assertEquals(0, engine.getRejected(shard));
+            reporter.publishEntry(shards + " shards, shard " + shard, engine.getCompleted(shard) + " moves, "
+                    + engine.getAverageLatency(shard) + " us average latency, " + engine.getMaxLatency(shard) + " us max latency");
+        }
+        // a flag refused is removed instead, applied as another move
+        assertTrue(getCompleted(engine) - created >= (long) CLIENTS * MOVES_PER_CLIENT);
+        return movesPerSecond;
+    }
+
+    private long getCompleted(GameEngine engine) {
+        long completed = 0;
+        for (int shard = 0; shard < engine.getShards(); shard++) {
+            completed += engine.getCompleted(shard);
+        }
+        return completed;
+    }
+}
@@ -0,0 +1,104 @@
+package com.minesweeper.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class GameEngineTest {
+
+    private GameEngine engine;
+
+    @AfterEach
+    public void after() throws InterruptedException {
+        engine.close();
+    }
+
+    @Test
+    public void testActionsOnAGameRunInOrderOnItsShardThread() {
+        engine = new GameEngine(4, 1024);
+        UUID id = UUID.randomUUID();
+        List<Integer> applied = new ArrayList<Integer>();
+        Set<String> threads = new HashSet<String>();
+        List<CompletableFuture<Integer>> results = new ArrayList<CompletableFuture<Integer>>();
+        for (int i = 0; i < 500; i++) {
+            int action = i;
+            results.add(engine.submit(id, () -> {
+                // not synchronized, only the shard's thread touches it
+                applied.add(action);
+                threads.add(Thread.currentThread().getName());
+                return action;
+            }));
+        }
+        results.forEach(CompletableFuture::join);
+        assertEquals(500, applied.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i, applied.get(i).intValue());
+        }
+        assertEquals(1, threads.size());
+        assertEquals("game-shard-" + engine.getShard(id), threads.iterator().next());
+        assertEquals(500, engine.getCompleted(engine.getShard(id)));
+    }
+
+    @Test
+    public void testGamesAreSpreadOnTheShards() {
+        engine = new GameEngine(8, 16);
+        int[] games = new int[8];
+        for (int i = 0; i < 8000; i++) {
+            games[engine.getShard(UUID.randomUUID())]++;
+        }
+        for (int shard = 0; shard < 8; shard++) {
+            assertTrue(games[shard] > 800, "shard " + shard + " has " + games[shard] + " games");
+        }
+    }
+
+    @Test
+    public void testActionsOnAFullShardAreRejected() throws InterruptedException {
+        engine = new GameEngine(1, 1);
+        UUID id = UUID.randomUUID();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> running = engine.submit(id, () -> {
+            started.countDown();
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        });
+        started.await();
+        CompletableFuture<Integer> waiting = engine.submit(id, () -> 1);
+        assertEquals(1, engine.getQueueDepth(0));
+        CompletionException exception = assertThrows(CompletionException.class, () -> engine.submit(id, () -> 2).join());
+        assertTrue(exception.getCause() instanceof GameBusyException);
+        assertEquals(1, engine.getRejected(0));
+        release.countDown();
+        assertTrue(running.join());
+        assertEquals(1, waiting.join().intValue());
+        assertEquals(2, engine.getCompleted(0));
+        assertNotEquals(0, engine.getMaxLatency(0));
+    }
+
+    @Test
+    public void testFailedActionsCompleteWithTheirException() {
+        engine = new GameEngine(2, 16);
+        CompletableFuture<Object> result = engine.submit(UUID.randomUUID(), () -> {
+            throw new GameNotFoundException("Game not found");
+        });
+        CompletionException exception = assertThrows(CompletionException.class, () -> result.join());
+        assertTrue(exception.getCause() instanceof GameNotFoundException);
+    }
+}
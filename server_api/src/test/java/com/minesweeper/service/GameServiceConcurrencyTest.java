@@ -0,0 +1,117 @@
+package com.minesweeper.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import com.minesweeper.model.Game;
+import com.minesweeper.repository.FakeGameRepository;
+import com.minesweeper.repository.GameStore;
+import com.minesweeper.security.SecurityContext;
+
+/**
+ * Fires hundreds of moves at once on a game, each one flagging a different
+ * cell, and checks that none of them is lost
+ */
+public class GameServiceConcurrencyTest {
+
+    private static final int SIZE = 20;
+    private static final int THREADS = 16;
+
+    private FakeGameRepository repository;
+    private ScheduledExecutorService flusher;
+    private ExecutorService players;
+    private GameEngine engine;
+    private GameEngine secondEngine;
+    private int maxAttempts;
+
+    @BeforeEach
+    public void before() {
+        repository = new FakeGameRepository();
+        flusher = Executors.newSingleThreadScheduledExecutor();
+        players = Executors.newFixedThreadPool(THREADS);
+        engine = new GameEngine(4, 1024);
+        secondEngine = new GameEngine(4, 1024);
+        maxAttempts = GameService.MAX_ATTEMPTS;
+        SecurityContext.setPrincipal("user");
+    }
+
+    @AfterEach
+    public void after() throws InterruptedException {
+        engine.close();
+        secondEngine.close();
+        GameService.MAX_ATTEMPTS = maxAttempts;
+        players.shutdownNow();
+        flusher.shutdownNow();
+    }
+
+    @Test
+    public void testParallelMovesOnAServerAreNotLost() throws Exception {
+        GameStore store = new GameStore(repository, 100, 50, flusher);
+        GameService service = new GameService(store, engine, mock(ApplicationEventPublisher.class));
+        UUID id = service.createGame(SIZE, SIZE, 10, null).id;
+        flagAllCells(service, service, id);
+        store.close();
+        assertAllCellsFlagged(id);
+        assertEquals(0, service.getConflicts());
+    }
+
+    @Test
+    public void testParallelMovesOnServersSharingTheGamesAreRetriedAndNotLost() throws Exception {
+        // every move may have to wait for the rest of the moves of the other server
+        GameService.MAX_ATTEMPTS = SIZE * SIZE;
+        GameService first = new GameService(new GameStore(repository, 100), engine, mock(ApplicationEventPublisher.class));
+        GameService second = new GameService(new GameStore(repository, 100), secondEngine, mock(ApplicationEventPublisher.class));
+        UUID id = first.createGame(SIZE, SIZE, 10, null).id;
+        flagAllCells(first, second, id);
+        assertAllCellsFlagged(id);
+        assertEquals(first.getConflicts() + second.getConflicts(), first.getRetries() + second.getRetries());
+        assertEquals(0, first.getFailures() + second.getFailures());
+    }
+
+    /**
+     * Flags every cell of the board at once, the moves alternate between two
+     * services
+     */
+    private void flagAllCells(GameService first, GameService second, UUID id) throws Exception {
+        List<Callable<GameInfo>> moves = new ArrayList<Callable<GameInfo>>();
+        for (int row = 0; row < SIZE; row++) {
+            for (int column = 0; column < SIZE; column++) {
+                GameService service = ((row + column) % 2 == 0 ? first : second);
+                int cellRow = row;
+                int cellColumn = column;
+                moves.add(() -> {
+                    SecurityContext.setPrincipal("user");
+                    return service.setRedFlag(id, cellRow, cellColumn, new BoardView(0L, false));
+                });
+            }
+        }
+        for (Future<GameInfo> move : players.invokeAll(moves)) {
+            move.get();
+        }
+    }
+
+    private void assertAllCellsFlagged(UUID id) {
+        Game game = repository.findById(id).get();
+        assertEquals(SIZE * SIZE, game.getVersion());
+        GameInfo gameInfo = game.toGameInfo();
+        for (int row = 0; row < SIZE; row++) {
+            for (int column = 0; column < SIZE; column++) {
+                assertEquals("F", gameInfo.board.cells.get(row).get(column));
+            }
+        }
+    }
+}
@@ -1,42 +1,67 @@
 package com.minesweeper.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 
+import com.minesweeper.model.Board;
 import com.minesweeper.model.Game;
 import com.minesweeper.model.Game.Status;
+import com.minesweeper.model.GameMove;
 import com.minesweeper.repository.GameRepository;
+import com.minesweeper.repository.GameStore;
+import com.minesweeper.repository.IGameRepository;
 import com.minesweeper.security.SecurityContext;
 import com.minesweeper.security.UnauthorizedException;
+import com.minesweeper.service.MoveResultInfo.Result;
 
 public class GameServiceTest {
 
     private GameRepository repository;
+    private ApplicationEventPublisher publisher;
+    private GameEngine engine;
     private GameService service;
 
     @BeforeEach
     public void before() {
         repository = mock(GameRepository.class);
-        service = new GameService(repository);
+        publisher = mock(ApplicationEventPublisher.class);
+        engine = new GameEngine(2, 64);
+        service = new GameService(new GameStore(repository, 100), engine, publisher);
         SecurityContext.setPrincipal("user");
     }
 
+    @AfterEach
+    public void after() throws InterruptedException {
+        engine.close();
+    }
+
     @Test
     public void testCreateNewGameUsesDefaultValuesIfParametersAreNotIndicated() {
-        GameInfo gameInfo = service.createGame(null, null, null);
+        GameInfo gameInfo = service.createGame(null, null, null, null);
         assertEquals(GameService.DEFAULT_ROWS, gameInfo.board.cells.size());
         gameInfo.board.cells.forEach(row -> assertEquals(GameService.DEFAULT_COLUMNS, row.size()));
     }
@@ -44,15 +69,15 @@ public class GameServiceTest {
     @Test
     public void testCreateNewGameSavesChanges() {
         ArgumentCaptor<Game> argCaptor = ArgumentCaptor.forClass(Game.class);
-        GameInfo gameInfo = service.createGame(null, null, null);
-        verify(repository, times(1)).save(argCaptor.capture());
+        GameInfo gameInfo = service.createGame(null, null, null, null);
+        verify(repository, times(1)).saveChanges(argCaptor.capture());
         assertEquals(gameInfo.id, argCaptor.getValue().getId());
     }
 
     @Test
     public void testCreateNewGameAssociatesThePrincipalToTheGame() {
         SecurityContext.setPrincipal("testprincipal");
-        GameInfo gameInfo = service.createGame(10, 10, 8);
+        GameInfo gameInfo = service.createGame(10, 10, 8, null);
         assertEquals("testprincipal", gameInfo.username);
     }
 
@@ -60,7 +85,7 @@ public class GameServiceTest {
     public void testGetGameThrowsExceptionIfNotFound() {
         when(repository.findById(any(UUID.class))).thenReturn(Optional.ofNullable(null));
         Exception exception = assertThrows(GameNotFoundException.class, () -> {
-            service.getGame(UUID.randomUUID());
+            service.getGame(UUID.randomUUID(), null);
         });
         assertTrue(exception.getMessage().contains("Game not found"));
     }
@@ -71,7 +96,7 @@ public class GameServiceTest {
         Game game = new Game(10, 10, 8, "user");
         when(repository.findById(game.getId())).thenReturn(Optional.of(game));
         Exception exception = assertThrows(UnauthorizedException.class, () -> {
-            service.getGame(game.getId());
+            service.getGame(game.getId(), null);
         });
         assertTrue(exception.getMessage().contains("Game does not belong to user"));
     }
@@ -80,17 +105,222 @@ public class GameServiceTest {
     public void testGetGameReturnsTheGameInfo() {
         Game game = new Game(10, 10, 8, "user");
         when(repository.findById(game.getId())).thenReturn(Optional.of(game));
-        GameInfo gameInfo = service.getGame(game.getId());
+        GameInfo gameInfo = service.getGame(game.getId(), null);
         assertEquals(game.getId(), gameInfo.id);
         assertEquals(Status.Started.name(), gameInfo.status);
         assertEquals(10, gameInfo.board.cells.size());
     }
 
+    @Test
+    public void testSetRedFlagSinceAVersionReturnsOnlyTheChangedCells() {
+        Game game = new Game(10, 10, 8, "user");
+        when(repository.findById(game.getId())).thenReturn(Optional.of(game));
+        GameInfo gameInfo = service.setRedFlag(game.getId(), 2, 3, new BoardView(0L, false));
+        assertEquals(1, gameInfo.version);
+        assertNull(gameInfo.board.cells);
+        assertEquals(1, gameInfo.board.changes.size());
+        assertEquals(2, gameInfo.board.changes.get(0).row);
+        assertEquals(3, gameInfo.board.changes.get(0).column);
+        assertEquals("F", gameInfo.board.changes.get(0).code);
+    }
+
+    @Test
+    public void testGetGameStateReturnsTheGameWithoutBoard() {
+        Game game = new Game(10, 10, 8, "user");
+        game.setRedFlag(1, 1);
+        when(repository.findSummaryById(game.getId())).thenReturn(Optional.of(game));
+        GameInfo gameInfo = service.getGameState(game.getId());
+        assertEquals(1, gameInfo.version);
+        assertEquals(Status.Started.name(), gameInfo.status);
+        assertNull(gameInfo.board);
+    }
+
+    @Test
+    public void testGetGameStateThrowsExceptionIfNotAuthorizedUser() {
+        SecurityContext.setPrincipal("anotheruser");
+        Game game = new Game(10, 10, 8, "user");
+        when(repository.findSummaryById(game.getId())).thenReturn(Optional.of(game));
+        assertThrows(UnauthorizedException.class, () -> service.getGameState(game.getId()));
+    }
+
+    @Test
+    public void testGetGamesReturnsTheSummariesOfThePrincipalGames() {
+        Game game = new Game(10, 20, 8, "user");
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        when(repository.findSummariesByUsernameAndStatus(eq("user"), eq(Status.Started), pageable.capture()))
+                .thenReturn(new PageImpl<Game>(Arrays.asList(game), PageRequest.of(1, 5), 6));
+        GamesInfo gamesInfo = service.getGames("Started", 1, 5);
+        assertEquals(1, pageable.getValue().getPageNumber());
+        assertEquals(5, pageable.getValue().getPageSize());
+        assertTrue(pageable.getValue().getSort().getOrderFor("startTime").isDescending());
+        assertEquals(6, gamesInfo.total);
+        assertEquals(1, gamesInfo.games.size());
+        assertEquals(game.getId(), gamesInfo.games.get(0).id);
+        assertEquals(10, gamesInfo.games.get(0).rows);
+        assertEquals(20, gamesInfo.games.get(0).columns);
+        assertEquals(0, gamesInfo.games.get(0).progress);
+    }
+
+    @Test
+    public void testGetGamesWithoutStatusReturnsAllThePrincipalGames() {
+        when(repository.findSummariesByUsername(eq("user"), any(Pageable.class))).thenReturn(new PageImpl<Game>(Arrays.asList()));
+        GamesInfo gamesInfo = service.getGames(null, null, null);
+        assertEquals(0, gamesInfo.page);
+        assertEquals(GameService.DEFAULT_PAGE_SIZE, gamesInfo.size);
+        assertEquals(0, gamesInfo.games.size());
+    }
+
+    @Test
+    public void testGetGamesWithInvalidParametersThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> service.getGames("Paused", null, null));
+        assertThrows(IllegalArgumentException.class, () -> service.getGames(null, -1, null));
+        assertThrows(IllegalArgumentException.class, () -> service.getGames(null, 0, GameService.MAX_PAGE_SIZE + 1));
+    }
+
+    @Test
+    public void testGetCellsReturnsOnlyTheRegion() {
+        Game game = new Game(100, 100, 8, "user");
+        when(repository.findById(game.getId())).thenReturn(Optional.of(game));
+        GameInfo gameInfo = service.getCells(game.getId(), 90, 10, null, 5, null);
+        assertEquals(90, gameInfo.board.row);
+        assertEquals(10, gameInfo.board.column);
+        assertEquals(10, gameInfo.board.cells.size());
+        assertEquals(5, gameInfo.board.cells.get(0).size());
+    }
+
+    @Test
+    public void testGamesAreLoadedOnceAndThenReadFromTheStore() {
+        Game game = new Game(10, 10, 8, "user");
+        when(repository.findById(game.getId())).thenReturn(Optional.of(game));
+        service.setRedFlag(game.getId(), 2, 3, null);
+        GameInfo gameInfo = service.getGame(game.getId(), null);
+        assertEquals(1, gameInfo.version);
+        verify(repository, times(1)).findById(game.getId());
+    }
+
+    @Test
+    public void testActionsOnGamesWrittenMeanwhileAreRetriedUpToTheMaximum() {
+        UUID id = UUID.randomUUID();
+        when(repository.findById(id)).thenAnswer(invocation -> {
+            Game game = new Game(10, 10, 8, "user");
+            game.setId(id);
+            return Optional.of(game);
+        });
+        doThrow(new OptimisticLockingFailureException("changed")).when(repository).saveChanges(any(Game.class));
+        assertThrows(GameConflictException.class, () -> service.setRedFlag(id, 2, 3, null));
+        verify(repository, times(GameService.MAX_ATTEMPTS)).findById(id);
+        assertEquals(GameService.MAX_ATTEMPTS, service.getConflicts());
+        assertEquals(GameService.MAX_ATTEMPTS - 1, service.getRetries());
+        assertEquals(1, service.getFailures());
+        verify(publisher, times(0)).publishEvent(any(GameChangedEvent.class));
+    }
+
+    @Test
+    public void testActionsPublishTheChangedCells() {
+        Game game = new Game(10, 10, 8, "user");
+        when(repository.findById(game.getId())).thenReturn(Optional.of(game));
+        service.setRedFlag(game.getId(), 2, 3, null);
+        ArgumentCaptor<GameChangedEvent> event = ArgumentCaptor.forClass(GameChangedEvent.class);
+        verify(publisher, times(1)).publishEvent(event.capture());
+        assertEquals(1, event.getValue().getChange().version);
+        assertEquals(1, event.getValue().getChange().board.changes.size());
+        assertEquals("F", event.getValue().getChange().board.changes.get(0).code);
+    }
+
+    @Test
+    public void testApplyMovesAppliesThemInOrderAndSavesOnce() {
+        Game game = new Game(10, 10, 8, "user");
+        when(repository.findById(game.getId())).thenReturn(Optional.of(game));
+        MovesInfo movesInfo = service.applyMoves(game.getId(), Arrays.asList(new MoveInfo(MoveInfo.FLAG, 2, 3),
+                new MoveInfo(MoveInfo.QUESTION, 4, 5), new MoveInfo(MoveInfo.UNFLAG, 2, 3)), null);
+        assertEquals(3, movesInfo.moves.size());
+        movesInfo.moves.forEach(move -> assertEquals(Result.Applied.name(), move.result));
+        assertEquals(3, movesInfo.game.version);
+        assertEquals("C", movesInfo.game.board.cells.get(2).get(3));
+        assertEquals("Q", movesInfo.game.board.cells.get(4).get(5));
+        verify(repository, times(1)).saveChanges(game);
+        verify(publisher, times(1)).publishEvent(any(GameChangedEvent.class));
+    }
+
+    @Test
+    public void testChordCellUncoversTheAdjacentCellsAndSavesOnce() {
+        Game game = new Game(4, 4, 3, "user");
+        // mines on (0,0), (1,1) and (2,0)
+        game.setBoard(new Board(4, 4, 3, 277));
+        game.uncoverCell(1, 2);
+        game.setRedFlag(1, 1);
+        when(repository.findById(game.getId())).thenReturn(Optional.of(game));
+        GameInfo gameInfo = service.chordCell(game.getId(), 1, 2, new BoardView(2L, false));
+        assertEquals(3, gameInfo.version);
+        assertEquals(10, gameInfo.board.changes.size());
+        verify(repository, times(1)).saveChanges(game);
+        verify(publisher, times(1)).publishEvent(any(GameChangedEvent.class));
+    }
+
+    @Test
+    public void testApplyMovesChordsCells() {
+        Game game = new Game(4, 4, 3, "user");
+        // mines on (0,0), (1,1) and (2,0)
+        game.setBoard(new Board(4, 4, 3, 277));
+        when(repository.findById(game.getId())).thenReturn(Optional.of(game));
+        MovesInfo movesInfo = service.applyMoves(game.getId(), Arrays.asList(new MoveInfo(MoveInfo.UNCOVER, 2, 1),
+                new MoveInfo(MoveInfo.CHORD, 2, 1), new MoveInfo(MoveInfo.FLAG, 1, 1), new MoveInfo(MoveInfo.FLAG, 2, 0),
+                new MoveInfo(MoveInfo.CHORD, 2, 1)), null);
+        assertEquals(Result.Rejected.name(), movesInfo.moves.get(1).result);
+        assertTrue(movesInfo.moves.get(1).error.contains("chord not allowed"));
+        assertEquals(Result.Applied.name(), movesInfo.moves.get(4).result);
+        assertEquals("1", movesInfo.game.board.cells.get(3).get(0));
+        assertEquals("3", movesInfo.game.board.cells.get(1).get(0));
+        verify(repository, times(1)).saveChanges(game);
+    }
+
+    @Test
+    public void testApplyMovesRejectsInvalidMovesAndAppliesTheRest() {
+        Game game = new Game(10, 10, 8, "user");
+        when(repository.findById(game.getId())).thenReturn(Optional.of(game));
+        MovesInfo movesInfo = service.applyMoves(game.getId(), Arrays.asList(new MoveInfo("jump", 2, 3),
+                new MoveInfo(MoveInfo.FLAG, 20, 3), new MoveInfo(MoveInfo.FLAG, 2, 3)), null);
+        assertEquals(Result.Rejected.name(), movesInfo.moves.get(0).result);
+        assertTrue(movesInfo.moves.get(0).error.contains("invalid action"));
+        assertEquals(Result.Rejected.name(), movesInfo.moves.get(1).result);
+        assertTrue(movesInfo.moves.get(1).error.contains("invalid row"));
+        assertEquals(Result.Applied.name(), movesInfo.moves.get(2).result);
+        assertEquals(1, movesInfo.game.version);
+    }
+
+    @Test
+    public void testApplyMovesSkipsTheMovesAfterTheGameIsOver() {
+        Game game = new Game(4, 4, 3, "user");
+        // mines on (0,0), (1,1) and (2,0)
+        game.setBoard(new Board(4, 4, 3, 277));
+        when(repository.findById(game.getId())).thenReturn(Optional.of(game));
+        MovesInfo movesInfo = service.applyMoves(game.getId(),
+                Arrays.asList(new MoveInfo(MoveInfo.UNCOVER, 0, 0), new MoveInfo(MoveInfo.FLAG, 3, 3)), null);
+        assertEquals(Result.Applied.name(), movesInfo.moves.get(0).result);
+        assertEquals(Result.Skipped.name(), movesInfo.moves.get(1).result);
+        assertEquals(Status.Lost.name(), movesInfo.game.status);
+    }
+
+    @Test
+    public void testApplyMovesWithoutChangesDoesNotSave() {
+        Game game = new Game(10, 10, 8, "user");
+        when(repository.findById(game.getId())).thenReturn(Optional.of(game));
+        service.applyMoves(game.getId(), Arrays.asList(new MoveInfo(MoveInfo.UNFLAG, 2, 3)), null);
+        verify(repository, times(0)).saveChanges(game);
+    }
+
+    @Test
+    public void testApplyMovesThrowsExceptionIfThereAreTooMany() {
+        MoveInfo[] moves = new MoveInfo[GameService.MAX_MOVES + 1];
+        Arrays.fill(moves, new MoveInfo(MoveInfo.FLAG, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> service.applyMoves(UUID.randomUUID(), Arrays.asList(moves), null));
+    }
+
     @Test
     public void testUncoverThrowsExceptionIfNotFound() {
         when(repository.findById(any(UUID.class))).thenReturn(Optional.ofNullable(null));
         Exception exception = assertThrows(GameNotFoundException.class, () -> {
-            service.uncoverCell(UUID.randomUUID(), 2, 2);
+            service.uncoverCell(UUID.randomUUID(), 2, 2, null);
         });
         assertTrue(exception.getMessage().contains("Game not found"));
     }
@@ -100,8 +330,8 @@ public class GameServiceTest {
         Game game = new Game(10, 10, 8, "user");
         when(repository.findById(game.getId())).thenReturn(Optional.of(game));
         ArgumentCaptor<Game> argCaptor = ArgumentCaptor.forClass(Game.class);
-        GameInfo gameInfo = service.uncoverCell(game.getId(), 2, 2);
-        verify(repository, times(1)).save(argCaptor.capture());
+        GameInfo gameInfo = service.uncoverCell(game.getId(), 2, 2, null);
+        verify(repository, times(1)).saveChanges(argCaptor.capture());
         assertEquals(gameInfo.id, argCaptor.getValue().getId());
     }
 
@@ -109,7 +339,7 @@ public class GameServiceTest {
     public void testSetRedFlagThrowsExceptionIfNotFound() {
         when(repository.findById(any(UUID.class))).thenReturn(Optional.ofNullable(null));
         Exception exception = assertThrows(GameNotFoundException.class, () -> {
-            service.setRedFlag(UUID.randomUUID(), 2, 2);
+            service.setRedFlag(UUID.randomUUID(), 2, 2, null);
         });
         assertTrue(exception.getMessage().contains("Game not found"));
     }
@@ -119,8 +349,8 @@ public class GameServiceTest {
         Game game = new Game(10, 10, 8, "user");
         when(repository.findById(game.getId())).thenReturn(Optional.of(game));
         ArgumentCaptor<Game> argCaptor = ArgumentCaptor.forClass(Game.class);
-        GameInfo gameInfo = service.setRedFlag(game.getId(), 2, 2);
-        verify(repository, times(1)).save(argCaptor.capture());
+        GameInfo gameInfo = service.setRedFlag(game.getId(), 2, 2, null);
+        verify(repository, times(1)).saveChanges(argCaptor.capture());
         assertEquals(gameInfo.id, argCaptor.getValue().getId());
     }
 
@@ -128,7 +358,7 @@ public class GameServiceTest {
     public void testRemoveRedFlagThrowsExceptionIfNotFound() {
         when(repository.findById(any(UUID.class))).thenReturn(Optional.ofNullable(null));
         Exception exception = assertThrows(GameNotFoundException.class, () -> {
-            service.removeRedFlag(UUID.randomUUID(), 2, 2);
+            service.removeRedFlag(UUID.randomUUID(), 2, 2, null);
         });
         assertTrue(exception.getMessage().contains("Game not found"));
     }
@@ -138,9 +368,9 @@ public class GameServiceTest {
         Game game = new Game(10, 10, 8, "user");
         when(repository.findById(game.getId())).thenReturn(Optional.of(game));
         ArgumentCaptor<Game> argCaptor = ArgumentCaptor.forClass(Game.class);
-        service.setRedFlag(game.getId(), 2, 2);
-        GameInfo gameInfo = service.removeRedFlag(game.getId(), 2, 2);
-        verify(repository, times(2)).save(argCaptor.capture());
+        service.setRedFlag(game.getId(), 2, 2, null);
+        GameInfo gameInfo = service.removeRedFlag(game.getId(), 2, 2, null);
+        verify(repository, times(2)).saveChanges(argCaptor.capture());
         assertEquals(gameInfo.id, argCaptor.getValue().getId());
     }
 
@@ -148,7 +378,7 @@ public class GameServiceTest {
     public void testSetQuestionMarkThrowsExceptionIfNotFound() {
         when(repository.findById(any(UUID.class))).thenReturn(Optional.ofNullable(null));
         Exception exception = assertThrows(GameNotFoundException.class, () -> {
-            service.setQuestionMark(UUID.randomUUID(), 2, 2);
+            service.setQuestionMark(UUID.randomUUID(), 2, 2, null);
         });
         assertTrue(exception.getMessage().contains("Game not found"));
     }
@@ -158,8 +388,8 @@ public class GameServiceTest {
         Game game = new Game(10, 10, 8, "user");
         when(repository.findById(game.getId())).thenReturn(Optional.of(game));
         ArgumentCaptor<Game> argCaptor = ArgumentCaptor.forClass(Game.class);
-        GameInfo gameInfo = service.setQuestionMark(game.getId(), 2, 2);
-        verify(repository, times(1)).save(argCaptor.capture());
+        GameInfo gameInfo = service.setQuestionMark(game.getId(), 2, 2, null);
+        verify(repository, times(1)).saveChanges(argCaptor.capture());
         assertEquals(gameInfo.id, argCaptor.getValue().getId());
     }
 
@@ -167,7 +397,7 @@ public class GameServiceTest {
     public void testRemoveQuestionMarkThrowsExceptionIfNotFound() {
         when(repository.findById(any(UUID.class))).thenReturn(Optional.ofNullable(null));
         Exception exception = assertThrows(GameNotFoundException.class, () -> {
-            service.removeQuestionMark(UUID.randomUUID(), 2, 2);
+            service.removeQuestionMark(UUID.randomUUID(), 2, 2, null);
         });
         assertTrue(exception.getMessage().contains("Game not found"));
     }
@@ -177,9 +407,52 @@ public class GameServiceTest {
         Game game = new Game(10, 10, 8, "user");
         when(repository.findById(game.getId())).thenReturn(Optional.of(game));
         ArgumentCaptor<Game> argCaptor = ArgumentCaptor.forClass(Game.class);
-        service.setQuestionMark(game.getId(), 2, 2);
-        GameInfo gameInfo = service.removeQuestionMark(game.getId(), 2, 2);
-        verify(repository, times(2)).save(argCaptor.capture());
+        service.setQuestionMark(game.getId(), 2, 2, null);
+        GameInfo gameInfo = service.removeQuestionMark(game.getId(), 2, 2, null);
+        verify(repository, times(2)).saveChanges(argCaptor.capture());
         assertEquals(gameInfo.id, argCaptor.getValue().getId());
     }
+
+    @Test
+    public void testGetMovesFailsIfTheMovesAreNotLogged() {
+        Game game = new Game(10, 10, 8, "user");
+        when(repository.findById(game.getId())).thenReturn(Optional.of(game));
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> service.getMoves(game.getId(), null));
+        assertTrue(exception.getMessage().contains("not logged"));
+    }
+
+    @Test
+    public void testGetMovesReturnsTheMovesLoggedAndTheOnesNotWrittenYet() {
+        IGameRepository games = mock(IGameRepository.class);
+        service = new GameService(new GameStore(repository, games, 100, 0, null), engine, publisher);
+        Game game = new Game(10, 10, 8, "user");
+        game.setRedFlag(2, 3);
+        GameMove logged = game.getMoves().get(0);
+        game.clearMoves();
+        game.setQuestionMark(4, 5);
+        when(games.get(game.getId())).thenReturn(Optional.of(game));
+        when(games.getMoves(game.getId(), 0)).thenReturn(Optional.of(Arrays.asList(logged)));
+        List<MoveInfo> moves = service.getMoves(game.getId(), null);
+        assertEquals(2, moves.size());
+        assertEquals(MoveInfo.FLAG, moves.get(0).action);
+        assertEquals(2, moves.get(0).row);
+        assertEquals(3, moves.get(0).column);
+        assertEquals(MoveInfo.QUESTION, moves.get(1).action);
+    }
+
+    @Test
+    public void testGetMovesFailsIfTheMovesWereCompacted() {
+        IGameRepository games = mock(IGameRepository.class);
+        service = new GameService(new GameStore(repository, games, 100, 0, null), engine, publisher);
+        Game game = new Game(10, 10, 8, "user");
+        game.setRedFlag(2, 3);
+        game.setQuestionMark(4, 5);
+        GameMove logged = game.getMoves().get(1);
+        game.clearMoves();
+        when(games.get(game.getId())).thenReturn(Optional.of(game));
+        when(games.getMoves(eq(game.getId()), any(Long.class))).thenReturn(Optional.of(Arrays.asList(logged)));
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> service.getMoves(game.getId(), null));
+        assertTrue(exception.getMessage().contains("up to version 1"));
+        assertEquals(1, service.getMoves(game.getId(), 1L).size());
+    }
 }